@@ -0,0 +1,146 @@
+package com.github.david32768.jynxwasm32.bench;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.logging.Handler;
+import java.util.logging.Logger;
+
+/*
+    2JYNX of a version built before the Jynx text emitter used StringBuilder against the current version
+    both are loaded in this jvm by their own class loader and run through Main.main
+    the Jynx output of both must be the same
+    then 2JYNX and PARSE of each are timed (best and median of RUNS after WARMUPS, versions interleaved)
+    2JYNX less PARSE is about the time taken to emit the Jynx text
+    usage: EmitBench before-classes current-classes wasm-file ...
+*/
+public class EmitBench {
+
+    private static final int WARMUPS = 20;
+    private static final int RUNS = 50;
+    private static final String MAIN = "com.github.david32768.jynxwasm32.Main";
+
+    private EmitBench() {}
+
+    private static class Version {
+
+        private final String name;
+        private final Method main;
+
+        private Version(String name, Path classes) throws Exception {
+            this.name = name;
+            URL[] urls = new URL[]{classes.toUri().toURL()};
+            ClassLoader loader = new URLClassLoader(urls, ClassLoader.getPlatformClassLoader());
+            this.main = loader.loadClass(MAIN).getMethod("main", String[].class);
+        }
+
+        // Jynx output of 2JYNX (PARSE output is empty) ; log messages below SEVERE are not written
+        private byte[] run(String action, String file) throws Exception {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            PrintStream sysout = System.out;
+            PrintStream syserr = System.err;
+            System.setOut(new PrintStream(out));
+            System.setErr(new PrintStream(OutputStream.nullOutputStream()));
+            try {
+                main.invoke(null, (Object)new String[]{action, "--LEVEL", "SEVERE", file});
+            } catch (InvocationTargetException ex) {
+                throw new IllegalStateException(name + " " + action + " " + file, ex.getCause());
+            } finally {
+                System.setOut(sysout);
+                System.setErr(syserr);
+                // Main.main adds a handler to the global logger each time it is run
+                Logger global = Logger.getGlobal();
+                for (Handler handler : global.getHandlers()) {
+                    global.removeHandler(handler);
+                }
+            }
+            return out.toByteArray();
+        }
+
+    }
+
+    private static boolean same(Version before, Version current, String file) throws Exception {
+        byte[] expected = before.run("2JYNX", file);
+        byte[] actual = current.run("2JYNX", file);
+        boolean same = Arrays.equals(expected, actual);
+        System.out.format("%s: Jynx output of %s is %d bytes, of %s is %d bytes, %s%n",
+                file, before.name, expected.length, current.name, actual.length, same? "same": "DIFFERENT");
+        return same;
+    }
+
+    // ms of each run sorted
+    private static double[][] time(Version[] versions, String action, String file) throws Exception {
+        for (int i = 0; i < WARMUPS; ++i) {
+            for (Version version : versions) {
+                version.run(action, file);
+            }
+        }
+        double[][] ms = new double[versions.length][RUNS];
+        for (int i = 0; i < RUNS; ++i) {
+            for (int v = 0; v < versions.length; ++v) {
+                long start = System.nanoTime();
+                versions[v].run(action, file);
+                ms[v][i] = (System.nanoTime() - start)/1_000_000.0;
+            }
+        }
+        for (double[] times : ms) {
+            Arrays.sort(times);
+        }
+        return ms;
+    }
+
+    private static void print(String file, String what, Version[] versions, double[] best, double[] median) {
+        System.out.format("%s: %-6s", file, what);
+        for (int v = 0; v < versions.length; ++v) {
+            System.out.format("  %s best %8.2f ms median %8.2f ms", versions[v].name, best[v], median[v]);
+        }
+        System.out.format("  speedup %.2fx (median)%n", median[0]/median[1]);
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("Usage: before-classes current-classes wasm-file ...");
+            System.exit(1);
+        }
+        Version before = new Version("before", Paths.get(args[0]));
+        Version current = new Version("current", Paths.get(args[1]));
+        Version[] versions = {before, current};
+        boolean ok = true;
+        for (String file : Arrays.asList(args).subList(2, args.length)) {
+            if (!same(before, current, file)) {
+                ok = false;
+                continue;
+            }
+            double[][] jynx = time(versions, "2JYNX", file);
+            double[][] parse = time(versions, "PARSE", file);
+            double[] best = new double[versions.length];
+            double[] median = new double[versions.length];
+            for (int v = 0; v < versions.length; ++v) {
+                best[v] = jynx[v][0];
+                median[v] = jynx[v][RUNS/2];
+            }
+            print(file, "2JYNX", versions, best, median);
+            for (int v = 0; v < versions.length; ++v) {
+                best[v] = parse[v][0];
+                median[v] = parse[v][RUNS/2];
+            }
+            print(file, "PARSE", versions, best, median);
+            for (int v = 0; v < versions.length; ++v) {
+                best[v] = jynx[v][0] - parse[v][0];
+                median[v] = jynx[v][RUNS/2] - parse[v][RUNS/2];
+            }
+            print(file, "emit", versions, best, median);
+        }
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+
+}
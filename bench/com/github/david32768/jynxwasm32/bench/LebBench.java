@@ -0,0 +1,324 @@
+package com.github.david32768.jynxwasm32.bench;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static parse.Reason.M205;
+import static parse.Reason.M206;
+
+import parse.ParseException;
+import parse.Section;
+import parse.SectionType;
+import parse.ValueType;
+
+/*
+    LEB128 decoders of Section against the decoder they replaced (Reference below)
+    every encoding must give the same value, position and exception message
+    then ns per op of each is timed (best of ROUNDS) on encodings with the mix found in code sections
+    one kind is run in each jvm so that the jit profile of one kind does not slow another (see bench/run.sh)
+    usage: LebBench kind [count]  ; default count is 1000000
+*/
+public class LebBench {
+
+    private static final int ROUNDS = 10;
+
+    private LebBench() {}
+
+    private enum Kind {
+
+        U32(32, false),
+        U32L(32, false),
+        I32(32, true),
+        I64(64, true),
+        VARINT7(7, true),
+        ;
+
+        private final int bits;
+        private final boolean signed;
+
+        private Kind(int bits, boolean signed) {
+            this.bits = bits;
+            this.signed = signed;
+        }
+
+        private long decode(Section section) {
+            switch (this) {
+                case U32:
+                    return section.getU32();
+                case U32L:
+                    return section.getU32L();
+                case I32:
+                    return section.getImm(ValueType.I32).intValue();
+                case I64:
+                    return section.getImm(ValueType.I64).longValue();
+                case VARINT7:
+                    return section.varint7();
+                default:
+                    throw new AssertionError();
+            }
+        }
+
+        private long reference(ByteBuffer bb) {
+            switch (this) {
+                case I32:
+                    return Reference.getImm(bb, ValueType.I32).intValue();
+                case I64:
+                    return Reference.getImm(bb, ValueType.I64).longValue();
+                default:
+                    break;
+            }
+            long result = Reference.LEBint(bb, bits, signed);
+            if (this == U32 && (int)result < 0) {
+                throw new ParseException(M206,"(Java limitation) as unsigned %d would be negative",
+                        Integer.toUnsignedLong((int)result));
+            }
+            return this == U32? (int)result: result;
+        }
+
+    }
+
+    // LEBint, unusedLEB and getImm of Section before the fast paths
+    private static class Reference {
+
+        private static Number getImm(ByteBuffer sectionbb, ValueType type) {
+            Number value = 0;
+            switch (type) {
+                case I32:
+                    value = (int)LEBint(sectionbb, 32, true);
+                    break;
+                case I64:
+                    value = LEBint(sectionbb, 64, true);
+                    break;
+                case F32:
+                    value = sectionbb.getFloat();
+                    break;
+                case F64:
+                    value = sectionbb.getDouble();
+                    break;
+                default:
+                    throw new AssertionError();
+            }
+            return value;
+        }
+
+        private static byte unusedLEB(int N, boolean signed) {
+            int bits = signed? N - 1:N;
+            int result = (-1 << (bits % 7));
+            result &= 0x7f;
+            return (byte)result;
+        }
+
+        private static long LEBint(ByteBuffer sectionbb, int N, boolean signed) {
+            long result = 0;
+            for (int i = 0;i < N;i+=7) {
+                byte bit8 = sectionbb.get();
+                result |= Integer.toUnsignedLong(bit8 & 0x7f) << i;
+                if (bit8 >= 0) {
+                    int shift = 64 - (i + 7);
+                    if (signed && shift > 0) {
+                        result <<= shift;
+                        result >>= shift;
+                    }
+                    if (i > N - 7) {
+                        byte mask = unusedLEB(N,signed);
+                        byte unused = signed && result < 0?mask:0;
+                        if ((bit8 & mask) != unused) {
+                            throw new ParseException(M206,"unused bits: result = %d bit8 = %02x mask = %016x",
+                                    result,bit8,mask);
+                        }
+                    }
+                    return result;
+                }
+            }
+            throw new ParseException(M205,"expected %s%d",signed?"I":"U",N);
+        }
+
+    }
+
+    // minimal encoding of value then padding bytes of 0x80 (or 0xff if negative) before the last byte
+    private static void encode(ByteArrayOutputStream out, long value, boolean signed, int padding) {
+        while (true) {
+            int b = (int)(value & 0x7f);
+            value = signed? value >> 7: value >>> 7;
+            boolean last = signed? value == 0 && (b & 0x40) == 0 || value == -1 && (b & 0x40) != 0: value == 0;
+            if (last) {
+                int pad = value == -1? 0x7f: 0;
+                if (padding > 0) {
+                    out.write(b | 0x80);
+                    for (int i = 1; i < padding; ++i) {
+                        out.write(pad | 0x80);
+                    }
+                    out.write(pad);
+                } else {
+                    out.write(b);
+                }
+                return;
+            }
+            out.write(b | 0x80);
+        }
+    }
+
+    private static long value(Kind kind, Random random) {
+        long value = random.nextLong() >> random.nextInt(64);
+        switch (kind) {
+            case U32:
+            case U32L:
+                return value & 0xffffffffL;
+            case I32:
+                return (int)value;
+            case VARINT7:
+                return value << 57 >> 57;
+            default:
+                return value;
+        }
+    }
+
+    // valid, padded and invalid (random bytes) encodings
+    private static byte[] mixed(Kind kind, Random random, int count) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < count; ++i) {
+            switch (random.nextInt(4)) {
+                case 0:
+                    encode(out, value(kind, random), kind.signed, random.nextInt(3));
+                    break;
+                case 1:
+                    int length = 1 + random.nextInt(11);
+                    for (int j = 0; j < length - 1; ++j) {
+                        out.write(random.nextInt(256) | 0x80);
+                    }
+                    out.write(random.nextInt(256) & 0x7f | (random.nextInt(8) == 0? 0x80: 0));
+                    break;
+                default:
+                    encode(out, value(kind, random), kind.signed, 0);
+                    break;
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static String outcome(long value, int position, RuntimeException ex) {
+        return ex == null? value + "@" + position: ex.getClass().getSimpleName() + ":" + ex.getMessage();
+    }
+
+    // bytes with the u32 length that Section.getInstance reads first ; section positions are PREFIX more than in bytes
+    private static final int PREFIX = 5;
+
+    private static Section section(byte[] bytes) {
+        ByteBuffer bb = ByteBuffer.allocate(PREFIX + bytes.length);
+        int length = bytes.length;
+        for (int i = 0; i < PREFIX - 1; ++i) {
+            bb.put((byte)(length & 0x7f | 0x80));
+            length >>>= 7;
+        }
+        bb.put((byte)length);
+        bb.put(bytes);
+        bb.flip();
+        return Section.getInstance(SectionType.st_code, bb);
+    }
+
+    // returns number of encodings that differ
+    private static int check(Kind kind, byte[] bytes) {
+        Section section = section(bytes);
+        ByteBuffer reference = ByteBuffer.wrap(bytes);
+        int differ = 0;
+        int count = 0;
+        while (reference.hasRemaining()) {
+            int start = reference.position();
+            section.position(PREFIX + start);
+            String expected;
+            try {
+                long value = kind.reference(reference);
+                expected = outcome(value, reference.position(), null);
+            } catch (RuntimeException ex) {
+                expected = outcome(0, 0, ex);
+                reference.position(start + 1);
+            }
+            String actual;
+            try {
+                long value = kind.decode(section);
+                actual = outcome(value, section.position() - PREFIX, null);
+            } catch (RuntimeException ex) {
+                actual = outcome(0, 0, ex);
+            }
+            ++count;
+            if (!expected.equals(actual)) {
+                if (differ < 10) {
+                    System.out.format("DIFFER %s at %d: expected %s actual %s%n", kind, start, expected, actual);
+                }
+                ++differ;
+            }
+        }
+        System.out.format("%-8s %9d decodes checked, %d differ%n", kind, count, differ);
+        return differ;
+    }
+
+    // 70% one byte, 25% two bytes, 5% three to five bytes as in indices and immediates
+    private static byte[] typical(Kind kind, Random random, int count) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < count; ++i) {
+            int pick = random.nextInt(100);
+            // getU32 does not accept 2^31 or more and a signed value has a sign bit
+            int maxbits = kind == Kind.U32L? 32: kind.bits - 1;
+            int bits = kind == Kind.VARINT7 || pick < 70? 6: pick < 95? 13: 20 + random.nextInt(maxbits - 20 + 1);
+            long value = random.nextLong() & ((1L << bits) - 1);
+            if (kind.signed && random.nextBoolean()) {
+                value = -value;
+            }
+            encode(out, value, kind.signed, 0);
+        }
+        return out.toByteArray();
+    }
+
+    private static long timeSection(Kind kind, byte[] bytes) {
+        Section section = section(bytes);
+        long sum = 0;
+        while (section.hasRemaining()) {
+            sum += kind.decode(section);
+        }
+        return sum;
+    }
+
+    private static long timeReference(Kind kind, byte[] bytes) {
+        ByteBuffer bb = ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+        long sum = 0;
+        while (bb.hasRemaining()) {
+            sum += kind.reference(bb);
+        }
+        return sum;
+    }
+
+    private static void time(Kind kind, byte[] bytes, int count) {
+        long bestref = Long.MAX_VALUE;
+        long bestfast = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; ++round) {
+            long start = System.nanoTime();
+            long refsum = timeReference(kind, bytes);
+            long mid = System.nanoTime();
+            long fastsum = timeSection(kind, bytes);
+            long end = System.nanoTime();
+            if (refsum != fastsum) {
+                throw new AssertionError(kind + " sums differ");
+            }
+            bestref = Math.min(bestref, mid - start);
+            bestfast = Math.min(bestfast, end - mid);
+        }
+        System.out.format("%-8s best of %d rounds: reference %6.2f ns/op  fast path %6.2f ns/op  speedup %.2fx%n",
+                kind, ROUNDS, (double)bestref / count, (double)bestfast / count, (double)bestref / bestfast);
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: (U32 | U32L | I32 | I64 | VARINT7) [count]");
+            System.exit(1);
+        }
+        Kind kind = Kind.valueOf(args[0].toUpperCase());
+        int count = args.length > 1? Integer.parseInt(args[1]): 1_000_000;
+        Random random = new Random(1);
+        if (check(kind, mixed(kind, random, count)) != 0) {
+            System.exit(1);
+        }
+        time(kind, typical(kind, random, count), count);
+    }
+
+}
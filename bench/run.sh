@@ -0,0 +1,38 @@
+#!/bin/sh
+# compiles src and bench and runs the benchmarks ; each checks its output against the code it replaced first
+# usage: bench/run.sh [count [revision [wasm-file ...]]]
+#   count is number of LEB128 encodings of each kind ; default 1000000
+#   revision is the git revision 2JYNX is compared with ; default is the first commit
+#   wasm-files are relative to test/fixtures ; default is funcs.wasm
+# src/jynx and the classes only it uses are not part of the build so are not compiled
+set -e
+benchdir=$(cd "$(dirname "$0")" && pwd)
+root=$(dirname "$benchdir")
+count=${1:-1000000}
+revision=${2:-$(git -C "$root" rev-list --max-parents=0 HEAD)}
+if [ $# -gt 2 ]; then
+    shift 2
+else
+    set -- funcs.wasm
+fi
+build=$(mktemp -d)
+trap 'rm -rf "$build"' EXIT
+compile() {
+    find "$@" -name '*.java' \
+        | grep -v -e '/src/jynx/' -e '/src/main/Main.java' -e '/parse/Expression.java' \
+            -e '/wasm/ImmediateInstruction.java' -e '/wasm/ObjectInstruction.java' -e 'module-info.java' \
+        > "$build/sources"
+    javac -nowarn -d "$classes" @"$build/sources"
+}
+classes="$build/classes"
+compile "$root/src" "$benchdir"
+mkdir "$build/before"
+git -C "$root" archive "$revision" src | tar -x -C "$build/before"
+classes="$build/before/classes"
+compile "$build/before/src"
+for kind in U32 U32L I32 I64 VARINT7; do
+    java -cp "$build/classes" com.github.david32768.jynxwasm32.bench.LebBench $kind "$count"
+done
+cd "$root/test/fixtures"
+java -cp "$build/classes" com.github.david32768.jynxwasm32.bench.EmitBench \
+    "$build/before/classes" "$build/classes" "$@"
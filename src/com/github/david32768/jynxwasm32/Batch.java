@@ -0,0 +1,238 @@
+package com.github.david32768.jynxwasm32;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import main.Option;
+import util.OutputFile;
+
+/*
+    converts many wasm files in one jvm on a fixed pool of workers
+    each file is parsed and printed by one worker; workers share only the (read-only) options
+    summary is printed in input order
+    a file whose output path is that of an earlier file (e.g. list-file entries outside base) is not converted
+*/
+class Batch {
+
+    private static final String EXTENSION = ".wasm";
+    private static final String GLOB_CHARS = "*?[{";
+
+    private final Map<Option,String> options;
+    private final int workers;
+    private final Path outDir;
+
+    // outdir is null if .jx file is written next to wasm file
+    Batch(Map<Option,String> options, int workers, Path outdir) {
+        this.options = options;
+        this.workers = workers;
+        this.outDir = outdir;
+    }
+
+    private static class Result {
+
+        private final Path file;
+        private final long bytes;
+        private final long nanos;
+        private final String error;
+
+        // error is null if converted
+        private Result(Path file, long bytes, long nanos, String error) {
+            this.file = file;
+            this.bytes = bytes;
+            this.nanos = nanos;
+            this.error = error;
+        }
+
+        private boolean isOK() {
+            return error == null;
+        }
+
+        @Override
+        public String toString() {
+            String status = isOK()? "OK": "FAILED";
+            String line = String.format("%-6s %8d %10d %s", status, nanos/1_000_000, bytes, file);
+            return isOK()? line: line + " : " + error;
+        }
+
+    }
+
+    // returns true if all files are converted
+    boolean run(String target) throws IOException {
+        Path base;
+        List<Path> files;
+        Path path = Paths.get(target);
+        if (Files.isDirectory(path)) {
+            base = path;
+            files = wasmFiles(path, p -> true);
+        } else if (target.chars().anyMatch(c -> GLOB_CHARS.indexOf(c) >= 0)) {
+            int last = target.lastIndexOf(path.getFileSystem().getSeparator(),firstGlobChar(target));
+            base = Paths.get(last < 0? "": target.substring(0, last + 1));
+            PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + target);
+            files = wasmFiles(base, matcher);
+        } else if (Files.isRegularFile(path)) {
+            base = path.toAbsolutePath().getParent();
+            files = listFile(path);
+        } else {
+            String msg = String.format("%s is not a directory, glob or list-file", target);
+            Logger.getGlobal().severe(msg);
+            return false;
+        }
+        if (files.isEmpty()) {
+            String msg = String.format("no %s files found for %s", EXTENSION, target);
+            Logger.getGlobal().warning(msg);
+            return true;
+        }
+
+        long start = System.nanoTime();
+        List<Result> results = new ArrayList<>(files.size());
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(workers, files.size()));
+        try {
+            List<Future<Result>> futures = new ArrayList<>(files.size());
+            Map<Path,Path> outputs = new HashMap<>();
+            for (Path file : files) {
+                Path out = outputPath(base, file);
+                Path first = outputs.putIfAbsent(out.toAbsolutePath().normalize(), file);
+                if (first == null) {
+                    futures.add(pool.submit(() -> convert(file, out)));
+                } else {
+                    futures.add(null);
+                }
+            }
+            for (int i = 0; i < files.size(); ++i) {
+                if (futures.get(i) == null) {
+                    Path out = outputPath(base, files.get(i));
+                    String msg = String.format("%s is also output of %s",
+                            out, outputs.get(out.toAbsolutePath().normalize()));
+                    results.add(new Result(files.get(i), -1, 0, msg));
+                    continue;
+                }
+                try {
+                    results.add(futures.get(i).get());
+                } catch (ExecutionException ex) {
+                    results.add(new Result(files.get(i), -1, 0, ex.getCause().toString()));
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("batch interrupted", ex);
+        } finally {
+            pool.shutdownNow();
+        }
+        long elapsed = System.nanoTime() - start;
+        return printSummary(results, elapsed);
+    }
+
+    private static int firstGlobChar(String target) {
+        for (int i = 0; i < target.length(); ++i) {
+            if (GLOB_CHARS.indexOf(target.charAt(i)) >= 0) {
+                return i;
+            }
+        }
+        throw new AssertionError();
+    }
+
+    private static List<Path> wasmFiles(Path dir, PathMatcher matcher) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            return paths
+                    .filter(Files::isRegularFile)
+                    .filter(p -> p.getFileName().toString().endsWith(EXTENSION))
+                    .filter(matcher::matches)
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    // one file per line relative to list-file; blank lines and lines starting with '#' are ignored
+    private static List<Path> listFile(Path list) throws IOException {
+        Path dir = list.toAbsolutePath().getParent();
+        List<Path> files = new ArrayList<>();
+        for (String line : Files.readAllLines(list)) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            if (line.endsWith(EXTENSION)) {
+                files.add(dir.resolve(line));
+            } else {
+                String msg = String.format("%s ignored as it has invalid extension - expected %s", line, EXTENSION);
+                Logger.getGlobal().warning(msg);
+            }
+        }
+        return files;
+    }
+
+    private Path outputPath(Path base, Path file) {
+        String name = file.getFileName().toString();
+        name = name.substring(0, name.length() - EXTENSION.length()) + ".jx";
+        if (outDir == null) {
+            return file.resolveSibling(name);
+        }
+        Path absbase = base.toAbsolutePath().normalize();
+        Path absfile = file.toAbsolutePath().normalize();
+        if (absfile.startsWith(absbase)) {
+            return outDir.resolve(absbase.relativize(absfile)).resolveSibling(name);
+        }
+        return outDir.resolve(name);
+    }
+
+    private Result convert(Path file, Path out) throws IOException {
+        long start = System.nanoTime();
+        long bytes = -1;
+        try {
+            bytes = Files.size(file);
+            Path dir = out.toAbsolutePath().getParent();
+            Files.createDirectories(dir);
+            try (PrintWriter pw = OutputFile.open(out)) {
+                Main.toJynx(options, file, pw);
+                if (pw.checkError()) {
+                    String msg = String.format("error writing %s", out);
+                    throw new IOException(msg);
+                }
+            }
+            return new Result(file, bytes, System.nanoTime() - start, null);
+        } catch (Throwable ex) { // e.g. StackOverflowError must not stop the other files
+            Files.deleteIfExists(out);
+            return new Result(file, bytes, System.nanoTime() - start, ex.toString());
+        }
+    }
+
+    private boolean printSummary(List<Result> results, long elapsed) {
+        System.out.format("%-6s %8s %10s %s%n", "status", "ms", "bytes", "file");
+        int failed = 0;
+        long bytes = 0;
+        long nanos = 0;
+        for (Result result : results) {
+            System.out.println(result);
+            if (!result.isOK()) {
+                ++failed;
+            }
+            bytes += Math.max(result.bytes, 0);
+            nanos += result.nanos;
+        }
+        int files = results.size();
+        double seconds = Math.max(elapsed, 1) / 1_000_000_000.0;
+        System.out.format("files = %d converted = %d failed = %d workers = %d%n",
+                files, files - failed, failed, Math.min(workers, files));
+        System.out.format("elapsed %d ms (sum of files %d ms) %.1f files/s %.1f MB/s%n",
+                elapsed/1_000_000, nanos/1_000_000, files / seconds, bytes / seconds / 1_000_000);
+        System.out.flush();
+        return failed == 0;
+    }
+
+}
@@ -0,0 +1,89 @@
+package com.github.david32768.jynxwasm32;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Paths;
+
+/*
+    thin client for Server; only uses java.base so starts quickly
+    request is working directory, number of args, args (as writeUTF)
+    response is frames of tag byte followed by
+        OUT length bytes ; part of standard output
+        LOG length bytes ; log messages
+        EXIT exit-code   ; last frame
+*/
+public class Client {
+
+    static final byte OUT = 'O';
+    static final byte LOG = 'L';
+    static final byte EXIT = 'X';
+
+    static final String STATUS = "STATUS";
+    static final String STOP = "STOP";
+
+    private Client() {}
+
+    private static void usage() {
+        System.err.println("\nUsage:\n");
+        System.err.println("socket-file (2JYNX | PARSE) [options] wasm-file");
+        System.err.println("socket-file STATUS");
+        System.err.println("socket-file STOP");
+        System.exit(1);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            usage();
+        }
+        UnixDomainSocketAddress address = UnixDomainSocketAddress.of(args[0]);
+        int exitcode;
+        try (SocketChannel channel = SocketChannel.open(address)) {
+            // closing either stream closes the channel
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            out.writeUTF(Paths.get("").toAbsolutePath().toString());
+            out.writeInt(args.length - 1);
+            for (int i = 1; i < args.length; ++i) {
+                out.writeUTF(args[i]);
+            }
+            out.flush();
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 1 << 16));
+            exitcode = receive(in);
+        }
+        System.exit(exitcode);
+    }
+
+    private static int receive(DataInputStream in) throws IOException {
+        byte[] buf = new byte[1 << 16];
+        while (true) {
+            byte tag = in.readByte();
+            if (tag == EXIT) {
+                System.out.flush();
+                return in.readInt();
+            }
+            PrintStream ps;
+            if (tag == OUT) {
+                ps = System.out;
+            } else if (tag == LOG) {
+                ps = System.err;
+            } else {
+                String msg = String.format("unknown frame tag %d", tag);
+                throw new IOException(msg);
+            }
+            int length = in.readInt();
+            while (length > 0) {
+                int n = Math.min(length, buf.length);
+                in.readFully(buf, 0, n);
+                ps.write(buf, 0, n);
+                length -= n;
+            }
+        }
+    }
+
+}
@@ -1,27 +1,43 @@
 package com.github.david32768.jynxwasm32;
 
 import java.io.IOException;
+import java.io.PrintWriter;
 import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
 import java.util.Map;
 import java.util.logging.ConsoleHandler;
 import java.util.logging.Handler;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
+import jynxwasm32.DataLayout;
+import jynxwasm32.FragmentStore;
 import jynxwasm32.JavaName;
 import jynxwasm32.JynxModule;
+import jynxwasm32.Outliner;
 import main.Action;
 import main.Option;
+import parse.ModuleCache;
+import parse.ParseOptions;
+import parse.SectionEntry;
+import parse.SectionType;
 import parse.WasmModule;
 import util.BasicFormatter;
+import util.BufferLoader;
+import util.OutputFile;
 import utility.Binary;
 
 public class Main {
 
+    private Main() {}
+
     private static void usage() {
         usage(Action.values());
     }
@@ -29,7 +45,7 @@ public class Main {
     private static void usage(Action... actions) {
         System.err.format("\nUsage: (version %s)\n", Option.version());
         for (Action action:actions) {
-            System.err.format("\n%s [options] %s-file\n\n",action,action.extension());
+            System.err.format("\n%s [options] %s\n\n",action,action.operand());
             System.err.println("  Options are:\n");
             Option.print(action);
         }
@@ -57,80 +73,219 @@ public class Main {
         if (args.length == 1) {
             usage(action);
         }
-        Map<Option,String> options = Option.getOptions(action, args);
+        int firstfile = action == Action._TESTPARSE? Option.firstFile(args): args.length - 1;
+        List<String> files = Arrays.asList(args).subList(firstfile, args.length);
         String lastarg = args[args.length - 1];
-        if (!lastarg.endsWith("." + action.extension())) {
-            System.err.format("file %s has invalid extension - expected .%s%n",lastarg,action.extension());
+        Map<Option,String> options;
+        Level loglevel;
+        try {
+            options = Option.getOptions(action, args, firstfile);
+            loglevel = checkOptions(action, options, files);
+        } catch (IllegalArgumentException ex) {
+            System.err.println();
+            System.err.println(ex.getMessage());
             usage(action);
             return;
         }
-        Level loglevel = Level.WARNING;
-        String level = options.get(Option.LEVEL);
-        if (level != null) {
-            try {
-                loglevel = Level.parse(level.toUpperCase());
-            } catch (IllegalArgumentException ex) {
-                System.err.println();
-                System.err.println(ex.toString());
-                usage();
-                System.exit(1);
-            }
-        }
         root.setLevel(loglevel);
         ha.setLevel(loglevel);
         switch(action) {
             case _2JYNX:
-                toJynx(options, lastarg);
+                String output = options.get(Option.OUTPUT);
+                if (output == null) {
+                    try (PrintWriter pw = new PrintWriter(System.out)) {
+                        toJynx(options, Paths.get(lastarg), pw);
+                    }
+                } else {
+                    try (PrintWriter pw = OutputFile.open(Paths.get(output))) {
+                        toJynx(options, Paths.get(lastarg), pw);
+                        if (pw.checkError()) {
+                            String msg = String.format("error writing %s", output);
+                            throw new IOException(msg);
+                        }
+                    }
+                }
                 break;
             case _PARSE:
-                parse(options, lastarg);
+                try (PrintWriter pw = new PrintWriter(System.out)) {
+                    parse(options, Paths.get(lastarg), pw);
+                }
                 break;
             case _TESTPARSE:
-                Binary.testFile(Paths.get(lastarg));
+                List<Path> paths = files.stream()
+                        .map(Paths::get)
+                        .collect(Collectors.toList());
+                Binary.testFiles(paths, workers(options));
+                break;
+            case _BATCH:
+                batch(options, lastarg);
+                break;
+            case _SERVER:
+                Server.serve(Paths.get(lastarg));
                 break;
             default:
                 throw new EnumConstantNotPresentException(action.getClass(), action.name());
         }
     }
     
-    private static void parse(Map<Option,String> options, String file)  throws IOException {
-        Path path = Paths.get(file);
-        String fname = path.getFileName().toString();
-        fname = fname.substring(0, fname.length() - 5);
-        ByteBuffer stream = ByteBuffer.wrap(Files.readAllBytes(path));
-        WasmModule module = WasmModule.getModule(fname,stream);
+    // throws IllegalArgumentException if an option or a file is invalid; returns log level
+    static Level checkOptions(Action action, Map<Option,String> options, List<String> files) {
+        for (String file : files) {
+            boolean dir = action == Action._TESTPARSE && Files.isDirectory(Paths.get(file));
+            if (action.extension() != null && !dir && !file.endsWith("." + action.extension())) {
+                String msg = String.format("file %s has invalid extension - expected .%s",file,action.extension());
+                throw new IllegalArgumentException(msg);
+            }
+        }
+        Level loglevel = Level.WARNING;
+        String level = options.get(Option.LEVEL);
+        if (level != null) {
+            loglevel = Level.parse(level.toUpperCase());
+        }
+        parseOptions(options);
+        JavaName javaname = javaName(options);
+        className(options, javaname);
+        packageName(options, javaname);
+        workers(options);
+        maxMethodSize(options);
+        zeroRun(options);
+        return loglevel;
     }
     
-    private static String DEFAULT_PACKAGE = "wasirun";
+    private static ParseOptions parseOptions(Map<Option,String> options) {
+        ParseOptions parseopts = ParseOptions.DEFAULT;
+        if (options.containsKey(Option.LAZY)) {
+            parseopts = parseopts.withLazy(true);
+        }
+        String threads = options.get(Option.THREADS);
+        if (threads != null) {
+            parseopts = parseopts.withThreads(Integer.parseInt(threads));
+        }
+        String sections = options.get(Option.SECTIONS);
+        if (sections != null) {
+            EnumSet<SectionType> selected = EnumSet.noneOf(SectionType.class);
+            for (String section : sections.split(",")) {
+                Optional<SectionType> type = SectionType.getInstance(section.trim());
+                if (!type.isPresent()) {
+                    String msg = String.format("unknown section %s", section);
+                    throw new IllegalArgumentException(msg);
+                }
+                selected.add(type.get());
+            }
+            parseopts = parseopts.withSections(selected);
+        }
+        return parseopts;
+    }
     
-    private static void toJynx(Map<Option,String> options, String file)  throws IOException {
-        Path path = Paths.get(file);
+    // options have been checked
+    static void parse(Map<Option,String> options, Path path, PrintWriter pw)  throws IOException {
         String fname = path.getFileName().toString();
         fname = fname.substring(0, fname.length() - 5);
-
-        JavaName javaname = new JavaName(!options.containsKey(Option.CLASS_NAME_AS_IS));
-        boolean comments = options.get(Option.COMMENT) != null;
+        ParseOptions parseopts = parseOptions(options).withValidateOnly(true);
+        ByteBuffer stream = BufferLoader.load(path);
+        int size = stream.remaining();
+        long start = System.nanoTime();
+        WasmModule module = WasmModule.getModule(fname,stream,parseopts);
+        long elapsed = System.nanoTime() - start;
+        Logger.getGlobal().info(String.format("%s: %d bytes validated in %d ms (%.1f MB/s)",
+                fname, size, elapsed/1_000_000, size * 1000.0 / Math.max(elapsed, 1)));
+        if (options.containsKey(Option.SECTIONS)) {
+            pw.println(SectionEntry.header());
+            for (SectionEntry entry : module.getSections()) {
+                pw.println(entry);
+            }
+        }
+        pw.flush();
+    }
+    
+    private static final String DEFAULT_PACKAGE = "wasirun";
+    
+    private static JavaName javaName(Map<Option,String> options) {
+        return new JavaName(!options.containsKey(Option.CLASS_NAME_AS_IS));
+    }
+    
+    // returns null if not set
+    private static String className(Map<Option,String> options, JavaName javaname) {
         String name = options.get(Option.NAME);
-        String pkg = options.get(Option.PACKAGE);
-
         if (name != null  && !javaname.isClassName(name)) {
-            System.err.format("%s is not a valid Java class name%n", name);
-            usage();
-            return;
+            String msg = String.format("%s is not a valid Java class name", name);
+            throw new IllegalArgumentException(msg);
         }
-
+        return name;
+    }
+    
+    private static String packageName(Map<Option,String> options, JavaName javaname) {
+        String pkg = options.get(Option.PACKAGE);
         if (pkg == null) {
             pkg = DEFAULT_PACKAGE;
         }
-        
         if (!pkg.isEmpty() && !javaname.isPackageName(pkg)) {
-            System.err.format("%s is not a valid Java package name%n", pkg);
-            usage();
-            return;
+            String msg = String.format("%s is not a valid Java package name", pkg);
+            throw new IllegalArgumentException(msg);
+        }
+        return pkg;
+    }
+    
+    private static int workers(Map<Option,String> options) {
+        String workerstr = options.get(Option.WORKERS);
+        if (workerstr == null) {
+            return Runtime.getRuntime().availableProcessors();
+        }
+        int workers = Integer.parseInt(workerstr);
+        if (workers < 1) {
+            String msg = String.format("number of workers (%d) must be at least 1", workers);
+            throw new IllegalArgumentException(msg);
+        }
+        return workers;
+    }
+    
+    private static int maxMethodSize(Map<Option,String> options) {
+        String sizestr = options.get(Option.MAX_METHOD_SIZE);
+        if (sizestr == null) {
+            return Outliner.DEFAULT_MAX_METHOD_SIZE;
         }
+        int size = Integer.parseInt(sizestr);
+        if (size < 0) {
+            String msg = String.format("maximum method size (%d) must not be negative", size);
+            throw new IllegalArgumentException(msg);
+        }
+        return size;
+    }
+    
+    private static int zeroRun(Map<Option,String> options) {
+        String runstr = options.get(Option.ZERO_RUN);
+        if (runstr == null) {
+            return DataLayout.DEFAULT_ZERO_RUN;
+        }
+        int run = Integer.parseInt(runstr);
+        if (run < 0) {
+            String msg = String.format("minimum zero run (%d) must not be negative", run);
+            throw new IllegalArgumentException(msg);
+        }
+        return run;
+    }
+    
+    // options have been checked
+    static void toJynx(Map<Option,String> options, Path path, PrintWriter pw)  throws IOException {
+        String fname = path.getFileName().toString();
+        fname = fname.substring(0, fname.length() - 5);
+        JavaName javaname = javaName(options);
+        String name = className(options, javaname);
+        String pkg = packageName(options, javaname);
+        boolean comments = options.get(Option.COMMENT) != null;
+        int maxmethodsize = maxMethodSize(options);
 
-        ByteBuffer stream = ByteBuffer.wrap(Files.readAllBytes(path));
-        WasmModule module = WasmModule.getModule(fname,stream);
+        ParseOptions parseopts = parseOptions(options);
+        ByteBuffer stream = BufferLoader.load(path);
+        WasmModule module;
+        String cachedir = options.get(Option.CACHE);
+        if (cachedir == null) {
+            module = WasmModule.getModule(fname,stream,parseopts);
+        } else {
+            ModuleCache cache = new ModuleCache(Paths.get(cachedir), Option.version());
+            module = cache.getModule(fname,stream,parseopts);
+            Logger.getGlobal().info(cache.stats());
+        }
         if (name == null) {
             name = javaname.ownerName(module.getName());
         }
@@ -138,8 +293,28 @@ public class Main {
             name = pkg + '/' + name;
         }
         String start = options.get(Option.START);
-        JynxModule.output(module, file, name, javaname, start, comments);
+        String file = path.toString();
+        DataLayout layout = new DataLayout(zeroRun(options));
+        String fragmentdir = options.get(Option.INCREMENTAL);
+        if (fragmentdir == null) {
+            JynxModule.output(module, pw, file, name, javaname, start, comments, null, maxmethodsize,
+                    layout);
+        } else {
+            FragmentStore store = new FragmentStore(Paths.get(fragmentdir), Option.version());
+            JynxModule.output(module, pw, file, name, javaname, start, comments, store, maxmethodsize,
+                    layout);
+            store.prune();
+            Logger.getGlobal().info(store.stats());
+        }
 
     }
     
+    private static void batch(Map<Option,String> options, String target) throws IOException {
+        String outdir = options.get(Option.OUTPUT_DIR);
+        Batch batch = new Batch(options, workers(options), outdir == null? null: Paths.get(outdir));
+        if (!batch.run(target)) {
+            System.exit(1);
+        }
+    }
+    
 }
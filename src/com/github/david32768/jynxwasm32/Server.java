@@ -0,0 +1,363 @@
+package com.github.david32768.jynxwasm32;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import main.Action;
+import main.Option;
+import util.BasicFormatter;
+import util.OutputFile;
+
+import static com.github.david32768.jynxwasm32.Client.EXIT;
+import static com.github.david32768.jynxwasm32.Client.LOG;
+import static com.github.david32768.jynxwasm32.Client.OUT;
+
+/*
+    keeps a warm jvm that runs 2JYNX and PARSE requests from Client on a unix domain socket
+    each connection is read on its own thread so a client that does not send its request does not hold up others
+    requests are run one at a time (holding running) so the log level and log messages belong to one request
+    STATUS gives the latency percentiles of the last MAX_LATENCIES requests
+*/
+class Server {
+
+    private static final int MAX_LATENCIES = 4096;
+    private static final int FRAME_SIZE = 1 << 16;
+
+    private final Path socket;
+    private final long started;
+    private final long[] latencies;
+    private final Object running;
+
+    private long requests;
+    private long failed;
+    private volatile boolean stopping;
+
+    private Server(Path socket) {
+        this.socket = socket;
+        this.started = System.nanoTime();
+        this.latencies = new long[MAX_LATENCIES];
+        this.running = new Object();
+    }
+
+    static void serve(Path socket) throws IOException {
+        UnixDomainSocketAddress address = UnixDomainSocketAddress.of(socket);
+        if (Files.exists(socket)) {
+            if (isRunning(address)) {
+                String msg = String.format("server already running on %s", socket);
+                throw new IOException(msg);
+            }
+            Files.delete(socket); // left by a server that did not stop
+        }
+        Server server = new Server(socket);
+        ExecutorService connections = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "connection");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try (ServerSocketChannel listener = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            listener.bind(address);
+            Logger.getGlobal().info(String.format("listening on %s", socket));
+            while (!server.stopping) {
+                SocketChannel channel;
+                try {
+                    channel = listener.accept();
+                } catch (ClosedChannelException ex) {
+                    break; // closed by STOP
+                } catch (IOException ex) {
+                    server.warning(ex);
+                    continue;
+                }
+                connections.execute(() -> server.connection(channel, listener));
+            }
+        } finally {
+            connections.shutdownNow(); // closes connections that have not sent a request
+            Files.deleteIfExists(socket);
+        }
+        Logger.getGlobal().info(server.status());
+    }
+
+    private static boolean isRunning(UnixDomainSocketAddress address) {
+        try {
+            SocketChannel.open(address).close();
+            return true;
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    // frames from request threads (e.g. log messages from --THREADS) are not interleaved
+    private static class Response {
+
+        private final DataOutputStream out;
+
+        private Response(DataOutputStream out) {
+            this.out = out;
+        }
+
+        private synchronized void frame(byte tag, byte[] bytes, int offset, int length) throws IOException {
+            out.writeByte(tag);
+            out.writeInt(length);
+            out.write(bytes, offset, length);
+        }
+
+        private void log(String msg) throws IOException {
+            byte[] bytes = msg.getBytes(Charset.defaultCharset());
+            frame(LOG, bytes, 0, bytes.length);
+        }
+
+        private synchronized void exit(int exitcode) throws IOException {
+            out.writeByte(EXIT);
+            out.writeInt(exitcode);
+            out.flush();
+        }
+
+    }
+
+    private static class FrameOutputStream extends OutputStream {
+
+        private final Response response;
+        private final byte[] buf;
+
+        private int count;
+
+        private FrameOutputStream(Response response) {
+            this.response = response;
+            this.buf = new byte[FRAME_SIZE];
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (count == buf.length) {
+                flush();
+            }
+            buf[count++] = (byte)b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (count == buf.length) {
+                    flush();
+                }
+                int n = Math.min(len, buf.length - count);
+                System.arraycopy(b, off, buf, count, n);
+                count += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (count > 0) {
+                response.frame(OUT, buf, 0, count);
+                count = 0;
+            }
+        }
+
+    }
+
+    private static class ResponseHandler extends Handler {
+
+        private final Response response;
+
+        private ResponseHandler(Response response, Level level) {
+            this.response = response;
+            setFormatter(new BasicFormatter());
+            setLevel(level);
+        }
+
+        @Override
+        public void publish(LogRecord record) {
+            if (isLoggable(record)) {
+                try {
+                    response.log(getFormatter().format(record));
+                } catch (IOException ex) {
+                    reportError(null, ex, 0);
+                }
+            }
+        }
+
+        @Override
+        public void flush() {}
+
+        @Override
+        public void close() {}
+
+    }
+
+    private void warning(IOException ex) {
+        synchronized (running) {
+            Logger.getGlobal().warning(ex.toString());
+        }
+    }
+
+    private void connection(SocketChannel channel, ServerSocketChannel listener) {
+        try (channel) {
+            handle(channel, listener);
+        } catch (IOException ex) {
+            if (!stopping) {
+                warning(ex);
+            }
+        }
+    }
+
+    private void handle(SocketChannel channel, ServerSocketChannel listener) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+        Path cwd;
+        String[] args;
+        try {
+            cwd = Paths.get(in.readUTF());
+            args = new String[in.readInt()];
+            for (int i = 0; i < args.length; ++i) {
+                args[i] = in.readUTF();
+            }
+        } catch (EOFException ex) {
+            return; // e.g. isRunning probe
+        }
+        Response response = new Response(new DataOutputStream(
+                new BufferedOutputStream(Channels.newOutputStream(channel), FRAME_SIZE)));
+        if (args.length == 1 && args[0].equalsIgnoreCase(Client.STATUS)) {
+            byte[] bytes = (status() + System.lineSeparator()).getBytes(Charset.defaultCharset());
+            response.frame(OUT, bytes, 0, bytes.length);
+            response.exit(0);
+            return;
+        }
+        synchronized (running) {
+            Logger.getGlobal().fine(String.format("request %s", Arrays.toString(args)));
+            if (stopping) {
+                response.log(String.format("server %s is stopping%n", socket));
+                response.exit(1);
+                return;
+            }
+            if (args.length == 1 && args[0].equalsIgnoreCase(Client.STOP)) {
+                stopping = true;
+                response.exit(0);
+                listener.close();
+                return;
+            }
+            long start = System.nanoTime();
+            int exitcode = convert(cwd, args, response);
+            record(System.nanoTime() - start, exitcode);
+            response.exit(exitcode);
+        }
+    }
+
+    private synchronized void record(long nanos, int exitcode) {
+        latencies[(int)(requests % MAX_LATENCIES)] = nanos;
+        ++requests;
+        if (exitcode != 0) {
+            ++failed;
+        }
+    }
+
+    // any Throwable of a request (e.g. StackOverflowError on deep nesting) is reported to the client
+    private static int convert(Path cwd, String[] args, Response response) throws IOException {
+        Optional<Action> optaction = args.length < 2? Optional.empty(): Action.getInstance(args[0]);
+        if (!optaction.isPresent()
+                || optaction.get() != Action._2JYNX && optaction.get() != Action._PARSE) {
+            response.log(String.format("request %s is not supported by server%n", Arrays.toString(args)));
+            return 1;
+        }
+        Action action = optaction.get();
+        String lastarg = cwd.resolve(args[args.length - 1]).toString();
+        Map<Option,String> options;
+        Level level;
+        try {
+            options = Option.getOptions(action, args);
+            options.computeIfPresent(Option.CACHE, (opt, dir) -> cwd.resolve(dir).toString());
+            options.computeIfPresent(Option.INCREMENTAL, (opt, dir) -> cwd.resolve(dir).toString());
+            options.computeIfPresent(Option.OUTPUT, (opt, file) -> cwd.resolve(file).toString());
+            level = Main.checkOptions(action, options, List.of(lastarg));
+        } catch (IllegalArgumentException ex) {
+            response.log(ex.getMessage() + System.lineSeparator());
+            return 1;
+        }
+        Logger root = Logger.getGlobal();
+        Level serverlevel = root.getLevel();
+        Handler handler = new ResponseHandler(response, level);
+        root.setLevel(level);
+        root.addHandler(handler);
+        FrameOutputStream frames = new FrameOutputStream(response);
+        PrintWriter pw = new PrintWriter(new OutputStreamWriter(frames, Charset.defaultCharset()));
+        try {
+            String output = options.get(Option.OUTPUT);
+            if (action == Action._2JYNX && output != null) {
+                try (PrintWriter filepw = OutputFile.open(Paths.get(output))) {
+                    Main.toJynx(options, Paths.get(lastarg), filepw);
+                    if (filepw.checkError()) {
+                        String msg = String.format("error writing %s", output);
+                        throw new IOException(msg);
+                    }
+                }
+            } else if (action == Action._2JYNX) {
+                Main.toJynx(options, Paths.get(lastarg), pw);
+            } else {
+                Main.parse(options, Paths.get(lastarg), pw);
+            }
+            pw.flush();
+            return 0;
+        } catch (Throwable ex) {
+            pw.flush();
+            StringWriter sw = new StringWriter();
+            ex.printStackTrace(new PrintWriter(sw));
+            response.log(sw.toString());
+            return 1;
+        } finally {
+            root.removeHandler(handler);
+            root.setLevel(serverlevel);
+        }
+    }
+
+    private static double percentile(long[] sorted, int pc) {
+        int index = Math.max((pc * sorted.length + 99) / 100 - 1, 0);
+        return sorted[index] / 1_000_000.0;
+    }
+
+    private synchronized String status() {
+        int count = (int)Math.min(requests, MAX_LATENCIES);
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("server %s version %s up %d s", socket, Option.version(),
+                (System.nanoTime() - started) / 1_000_000_000));
+        sb.append(System.lineSeparator());
+        sb.append(String.format("requests = %d failed = %d", requests, failed));
+        if (count > 0) {
+            sb.append(System.lineSeparator());
+            sb.append(String.format("latency ms (last %d requests): p50 = %.1f p90 = %.1f p99 = %.1f max = %.1f",
+                    count, percentile(sorted, 50), percentile(sorted, 90), percentile(sorted, 99),
+                    sorted[count - 1] / 1_000_000.0));
+        }
+        return sb.toString();
+    }
+
+}
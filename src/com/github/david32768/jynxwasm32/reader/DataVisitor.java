@@ -0,0 +1,14 @@
+package com.github.david32768.jynxwasm32.reader;
+
+import java.nio.ByteBuffer;
+
+public abstract class DataVisitor {
+
+    protected DataVisitor() {}
+
+    // chunk is only valid during the call
+    public void visitBytes(ByteBuffer chunk) {}
+
+    public void visitEnd() {}
+
+}
@@ -0,0 +1,27 @@
+package com.github.david32768.jynxwasm32.reader;
+
+import parse.KindType;
+
+public enum ExternKind {
+    FUNCTION,
+    TABLE,
+    MEMORY,
+    GLOBAL,
+    ;
+
+    static ExternKind of(KindType type) {
+        switch (type) {
+            case Function:
+                return FUNCTION;
+            case Table:
+                return TABLE;
+            case Memory:
+                return MEMORY;
+            case Global:
+                return GLOBAL;
+            default:
+                throw new EnumConstantNotPresentException(type.getClass(), type.name());
+        }
+    }
+
+}
@@ -0,0 +1,63 @@
+package com.github.david32768.jynxwasm32.reader;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.StringJoiner;
+
+import parse.FnType;
+import parse.ValueType;
+
+public final class FuncType {
+
+    private final List<ValType> params;
+    private final List<ValType> results;
+
+    private FuncType(List<ValType> params, List<ValType> results) {
+        this.params = Collections.unmodifiableList(params);
+        this.results = Collections.unmodifiableList(results);
+    }
+
+    // parm[0] of FnType is the result (V00 if none)
+    static FuncType of(FnType fntype) {
+        ValueType[] parm = fntype.getParm();
+        List<ValType> params = new ArrayList<>(parm.length - 1);
+        for (int i = 1; i < parm.length; ++i) {
+            params.add(ValType.of(parm[i]));
+        }
+        List<ValType> results = new ArrayList<>(1);
+        if (parm[0] != ValueType.V00) {
+            results.add(ValType.of(parm[0]));
+        }
+        return new FuncType(params, results);
+    }
+
+    public List<ValType> params() {
+        return params;
+    }
+
+    public List<ValType> results() {
+        return results;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof FuncType other && params.equals(other.params) && results.equals(other.results);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * params.hashCode() + results.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        StringJoiner sj = new StringJoiner(",", "(", ")");
+        for (ValType vt : params) {
+            sj.add(vt.toString());
+        }
+        String ret = results.isEmpty()? "()": results.get(0).toString();
+        return sj.toString() + "->" + ret;
+    }
+
+}
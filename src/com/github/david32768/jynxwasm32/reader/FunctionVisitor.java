@@ -0,0 +1,49 @@
+package com.github.david32768.jynxwasm32.reader;
+
+import java.util.List;
+
+/*
+    ops are decoded but not validated
+    opcode is the binary opcode e.g. 0x6a i32.add ; 0xfc ops are 0xfc0000 + extension e.g. 0xfc000a memory.copy
+    WasmReader.opName(opcode) is the wasm name
+*/
+public abstract class FunctionVisitor {
+
+    protected FunctionVisitor() {}
+
+    // parameters then declared locals
+    public void visitLocals(List<ValType> locals) {}
+
+    // op with no immediates (reserved zero bytes of memory ops are not reported)
+    public void visitOp(int opcode) {}
+
+    // i32.const, call, local and global ops
+    public void visitIntOp(int opcode, int operand) {}
+
+    // i64.const
+    public void visitLongOp(int opcode, long operand) {}
+
+    // f32.const
+    public void visitFloatOp(int opcode, float operand) {}
+
+    // f64.const
+    public void visitDoubleOp(int opcode, double operand) {}
+
+    // br and br_if ; depth is the relative label
+    public void visitLabelOp(int opcode, int depth) {}
+
+    // br_table ; last of depths is the default
+    public void visitLabelsOp(int opcode, int[] depths) {}
+
+    // block, loop and if ; type is null if the block has no result
+    public void visitTypeOp(int opcode, ValType type) {}
+
+    // call_indirect
+    public void visitIndirectOp(int opcode, int typeidx, int tableidx) {}
+
+    // loads and stores ; align is log2 of the alignment ; offset is unsigned
+    public void visitMemoryOp(int opcode, int align, int offset) {}
+
+    public void visitEnd() {}
+
+}
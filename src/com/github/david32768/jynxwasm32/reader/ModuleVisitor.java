@@ -0,0 +1,40 @@
+package com.github.david32768.jynxwasm32.reader;
+
+import java.nio.ByteBuffer;
+
+/*
+    callbacks from WasmReader in module order
+    returning null from visitFunction or visitData skips the body
+    without decoding it
+*/
+public abstract class ModuleVisitor {
+
+    protected ModuleVisitor() {}
+
+    // id is the binary section id e.g. 0 custom, 10 code, 11 data
+    // false skips the section without parsing it
+    // sections that depend on it (e.g. code depends on type and function) are then skipped without a callback
+    public boolean visitSection(int id, int size) {
+        return true;
+    }
+
+    public void visitType(int typeidx, FuncType type) {}
+
+    public void visitImport(ExternKind kind, int index, String module, String field) {}
+
+    // name is the export name or a default name
+    public FunctionVisitor visitFunction(int funcidx, String name, FuncType type) {
+        return null;
+    }
+
+    // offset is the value of the constant expression or (global.get ...)
+    public DataVisitor visitData(int index, int memidx, String offset, int size) {
+        return null;
+    }
+
+    // payload is positioned after the name and is only valid during the call
+    public void visitCustom(String name, ByteBuffer payload) {}
+
+    public void visitEnd() {}
+
+}
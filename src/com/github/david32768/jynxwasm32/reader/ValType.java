@@ -0,0 +1,32 @@
+package com.github.david32768.jynxwasm32.reader;
+
+import parse.ValueType;
+
+public enum ValType {
+    I32,
+    I64,
+    F32,
+    F64,
+    ;
+
+    static ValType of(ValueType vt) {
+        switch (vt) {
+            case I32:
+                return I32;
+            case I64:
+                return I64;
+            case F32:
+                return F32;
+            case F64:
+                return F64;
+            default:
+                throw new IllegalArgumentException("not a value type: " + vt);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name().toLowerCase();
+    }
+
+}
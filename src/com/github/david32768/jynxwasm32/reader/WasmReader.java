@@ -0,0 +1,216 @@
+package com.github.david32768.jynxwasm32.reader;
+
+import java.io.InputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import parse.BranchOp;
+import parse.BrTableOp;
+import parse.ConstantExpression;
+import parse.ConstantOp;
+import parse.ControlOp;
+import parse.Kind;
+import parse.KindName;
+import parse.Local;
+import parse.LocalFunction;
+import parse.Memory;
+import parse.MemoryOp;
+import parse.ObjectOp;
+import parse.Op;
+import parse.SectionType;
+import parse.ValueType;
+import wasm.OpCode;
+
+/*
+    reads a module from a channel and reports it to a ModuleVisitor
+    custom sections, function bodies and data segments are read one at a time
+    so memory used is bounded by the largest of these and the declarations
+    an invalid module throws IllegalArgumentException
+*/
+public final class WasmReader {
+
+    private final parse.WasmReader reader;
+
+    public WasmReader(String name, ReadableByteChannel channel) {
+        this.reader = new parse.WasmReader(name, channel);
+    }
+
+    public WasmReader(String name, InputStream in) {
+        this(name, Channels.newChannel(in));
+    }
+
+    public void accept(ModuleVisitor visitor) throws IOException {
+        reader.accept(new ModuleAdapter(visitor));
+    }
+
+    // wasm name of opcode e.g. "i32.add"
+    public static String opName(int opcode) {
+        return OpCode.getInstance(opcode).getWasmOp();
+    }
+
+    private static List<ValType> valTypes(Local[] locals) {
+        List<ValType> result = new ArrayList<>(locals.length);
+        for (Local local : locals) {
+            result.add(ValType.of(local.getType()));
+        }
+        return result;
+    }
+
+    private static class ModuleAdapter extends parse.ModuleVisitor {
+
+        private final ModuleVisitor visitor;
+
+        private ModuleAdapter(ModuleVisitor visitor) {
+            this.visitor = visitor;
+        }
+
+        @Override
+        public boolean visitSection(SectionType type, int size) {
+            return visitor.visitSection(type.getId(), size);
+        }
+
+        @Override
+        public void visitType(int typeidx, parse.FnType fntype) {
+            visitor.visitType(typeidx, FuncType.of(fntype));
+        }
+
+        @Override
+        public void visitImport(Kind kind) {
+            KindName kn = kind.getKindName();
+            visitor.visitImport(ExternKind.of(kn.getType()), kn.getNumber(), kn.getModuleName(), kn.getFieldName());
+        }
+
+        @Override
+        public parse.FunctionVisitor visitFunction(LocalFunction function) {
+            FunctionVisitor fv = visitor.visitFunction(function.getKindName().getNumber(),
+                    function.getFieldName(), FuncType.of(function.getFnType()));
+            return fv == null? null: new FunctionAdapter(fv);
+        }
+
+        @Override
+        public parse.DataVisitor visitData(int index, Memory memory, ConstantExpression offset, int size) {
+            DataVisitor dv = visitor.visitData(index, memory.getKindName().getNumber(),
+                    offset.getConstantString(), size);
+            return dv == null? null: new DataAdapter(dv);
+        }
+
+        @Override
+        public void visitCustom(String name, ByteBuffer payload) {
+            visitor.visitCustom(name, payload);
+        }
+
+        @Override
+        public void visitEnd() {
+            visitor.visitEnd();
+        }
+
+    }
+
+    private static class FunctionAdapter extends parse.FunctionVisitor {
+
+        private final FunctionVisitor visitor;
+
+        private FunctionAdapter(FunctionVisitor visitor) {
+            this.visitor = visitor;
+        }
+
+        @Override
+        public void visitLocals(Local[] locals) {
+            visitor.visitLocals(valTypes(locals));
+        }
+
+        @Override
+        public void visitOp(Op op) {
+            OpCode opcode = op.getOpCode();
+            int code = opcode.getCode();
+            switch (opcode.getOpType()) {
+                case VARIABLE:
+                case INVOKE:
+                    ObjectOp objop = (ObjectOp)op;
+                    if (opcode == OpCode.CALL_INDIRECT) {
+                        visitor.visitIndirectOp(code, objop.getIndex(), objop.getIndex2());
+                    } else {
+                        visitor.visitIntOp(code, objop.getIndex());
+                    }
+                    break;
+                case CONST:
+                    Number imm = ((ConstantOp)op).getConstant();
+                    switch (opcode) {
+                        case I32_CONST:
+                            visitor.visitIntOp(code, imm.intValue());
+                            break;
+                        case I64_CONST:
+                            visitor.visitLongOp(code, imm.longValue());
+                            break;
+                        case F32_CONST:
+                            visitor.visitFloatOp(code, imm.floatValue());
+                            break;
+                        case F64_CONST:
+                            visitor.visitDoubleOp(code, imm.doubleValue());
+                            break;
+                        default:
+                            throw new AssertionError();
+                    }
+                    break;
+                case MEMLOAD:
+                case MEMSTORE:
+                    MemoryOp memop = (MemoryOp)op;
+                    visitor.visitMemoryOp(code, memop.getAlignment(), memop.getOffset());
+                    break;
+                case CONTROL:
+                    switch (opcode) {
+                        case BLOCK:
+                        case LOOP:
+                        case IF:
+                            ValueType blocktype = ((ControlOp)op).getBlockType();
+                            visitor.visitTypeOp(code, blocktype == ValueType.V00? null: ValType.of(blocktype));
+                            break;
+                        default:
+                            visitor.visitOp(code);
+                            break;
+                    }
+                    break;
+                case BRANCH:
+                    visitor.visitLabelOp(code, ((BranchOp)op).getBr2level());
+                    break;
+                case BRANCH_TABLE:
+                    visitor.visitLabelsOp(code, ((BrTableOp)op).getTargets());
+                    break;
+                default:
+                    visitor.visitOp(code);
+                    break;
+            }
+        }
+
+        @Override
+        public void visitEnd() {
+            visitor.visitEnd();
+        }
+
+    }
+
+    private static class DataAdapter extends parse.DataVisitor {
+
+        private final DataVisitor visitor;
+
+        private DataAdapter(DataVisitor visitor) {
+            this.visitor = visitor;
+        }
+
+        @Override
+        public void visitBytes(ByteBuffer chunk) {
+            visitor.visitBytes(chunk);
+        }
+
+        @Override
+        public void visitEnd() {
+            visitor.visitEnd();
+        }
+
+    }
+
+}
@@ -168,7 +168,8 @@ public class JynxModule {
         pw.print(spacer);
         pw.format("%s_%s %s%n",type,OpCode.GLOBAL_SET,memory.getDefaultName());
         for (Data_segment ds:memory.getData()) {
-            byte[] data = ds.getData();
+            byte[] data = new byte[ds.size()];
+            ds.getData().get(data);
             final int memoffset = ds.getOffset();
             int dataoffset = 0;
             int remaining = data.length;
@@ -0,0 +1,157 @@
+package jynxwasm32;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.logging.Logger;
+
+import static parse.ValueType.I32;
+
+import parse.ConstantExpression;
+import parse.Data_segment;
+import parse.FnType;
+import parse.Memory;
+import wasm.ConstantInstruction;
+import wasm.Instruction;
+import wasm.OpCode;
+import wasm.PackedCode;
+
+/*
+    data segments of a memory are rewritten before they are printed
+        adjacent or overlapping segments are merged (later segments overwrite earlier ones as at instantiation)
+        zero runs of at least zeroRun bytes are not written if memory is not imported as it is then all zero
+    segments are left as they are if any offset is not an i32.const or a segment is beyond the initial memory
+        (so instantiation still fails)
+*/
+public class DataLayout {
+
+    public static final int DEFAULT_ZERO_RUN = 0;
+
+    private static final long PAGE_SIZE = 1 << 16;
+    private static final int MAX_MERGED = Integer.MAX_VALUE - 8;
+
+    private final int zeroRun;
+
+    // zerorun = 0 leaves segments as they are
+    public DataLayout(int zerorun) {
+        this.zeroRun = zerorun;
+    }
+
+    public List<Data_segment> layout(Memory memory) {
+        List<Data_segment> segments = memory.getData();
+        if (zeroRun == 0 || segments.isEmpty()) {
+            return segments;
+        }
+        int count = segments.size();
+        long memsize = Integer.toUnsignedLong(memory.getLimits().getInitial()) * PAGE_SIZE;
+        long[] starts = new long[count];
+        for (int i = 0; i < count; ++i) {
+            Data_segment ds = segments.get(i);
+            PackedCode.Cursor constinst = ds.getConstExpr().cursor();
+            if (constinst.getOpCode() != OpCode.I32_CONST) {
+                return segments;
+            }
+            starts[i] = Integer.toUnsignedLong(constinst.getConstant().intValue());
+            if (starts[i] + ds.size() > memsize) {
+                return segments;
+            }
+        }
+        Integer[] order = new Integer[count];
+        Arrays.setAll(order, i -> i);
+        Arrays.sort(order, Comparator.comparingLong((Integer i) -> starts[i]));
+        boolean fresh = !memory.isImported();
+        List<Data_segment> result = new ArrayList<>();
+        List<Integer> group = new ArrayList<>();
+        long groupstart = 0;
+        long groupend = 0;
+        for (int i : order) {
+            if (!group.isEmpty() && starts[i] > groupend) {
+                if (!addGroup(segments, starts, group, groupstart, groupend, fresh, result)) {
+                    return segments;
+                }
+                group.clear();
+            }
+            if (group.isEmpty()) {
+                groupstart = starts[i];
+                groupend = starts[i];
+            }
+            group.add(i);
+            groupend = Math.max(groupend, starts[i] + segments.get(i).size());
+        }
+        if (!addGroup(segments, starts, group, groupstart, groupend, fresh, result)) {
+            return segments;
+        }
+        long before = segments.stream().mapToLong(Data_segment::size).sum();
+        long after = result.stream().mapToLong(Data_segment::size).sum();
+        String msg = String.format("data of %s: %d segments (%d bytes) written as %d segments (%d bytes) ; %d bytes saved",
+                memory.getDefaultName(), count, before, result.size(), after, before - after);
+        Logger.getGlobal().info(msg);
+        return result;
+    }
+
+    // returns false if merged segment is too large
+    private boolean addGroup(List<Data_segment> segments, long[] starts, List<Integer> group,
+            long groupstart, long groupend, boolean fresh, List<Data_segment> result) {
+        if (group.size() == 1) {
+            Data_segment ds = segments.get(group.get(0));
+            if (fresh) {
+                addPieces(ds, ds.getData().slice(), groupstart, result);
+            } else {
+                result.add(ds);
+            }
+            return true;
+        }
+        if (groupend - groupstart > MAX_MERGED) {
+            return false;
+        }
+        byte[] image = new byte[(int)(groupend - groupstart)];
+        group.sort(null);
+        for (int i : group) {
+            ByteBuffer data = segments.get(i).getData();
+            data.get(image, (int)(starts[i] - groupstart), data.remaining());
+        }
+        ByteBuffer merged = ByteBuffer.wrap(image);
+        if (fresh) {
+            addPieces(null, merged, groupstart, result);
+        } else {
+            result.add(segment(groupstart, merged));
+        }
+        return true;
+    }
+
+    // ds is the original segment of data or null
+    private void addPieces(Data_segment ds, ByteBuffer data, long start, List<Data_segment> result) {
+        int size = data.remaining();
+        int piece = 0;
+        int i = 0;
+        while (i < size) {
+            if (data.get(i) != 0) {
+                ++i;
+                continue;
+            }
+            int zeros = i;
+            while (i < size && data.get(i) == 0) {
+                ++i;
+            }
+            if (i - zeros >= zeroRun) {
+                if (zeros > piece) {
+                    result.add(segment(start + piece, data.slice(piece, zeros - piece)));
+                }
+                piece = i;
+            }
+        }
+        if (piece == 0 && ds != null) {
+            result.add(ds);
+        } else if (piece < size) {
+            result.add(segment(start + piece, data.slice(piece, size - piece)));
+        }
+    }
+
+    private static Data_segment segment(long offset, ByteBuffer data) {
+        Instruction inst = new ConstantInstruction(OpCode.I32_CONST, FnType.produce(I32), (int)offset);
+        return new Data_segment(new ConstantExpression(inst), data);
+    }
+
+}
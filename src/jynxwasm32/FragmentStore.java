@@ -0,0 +1,256 @@
+package jynxwasm32;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import parse.BranchTarget;
+import parse.FnType;
+import parse.Global;
+import parse.Local;
+import parse.LocalFunction;
+import parse.Table;
+import parse.ValueType;
+import parse.WasmFunction;
+import wasm.Feature;
+import wasm.OpCode;
+import wasm.OpType;
+import wasm.PackedCode;
+
+/*
+    emitted text of each function is kept in dir under a hash of everything the text depends on:
+    signature, names, locals, packed code and the java names of the globals and functions it uses
+    unchanged functions are copied from dir instead of being optimised and printed again
+    first line of a fragment file is the FunctionStats of the function so a reused function is still counted
+    key includes a hash of the class files of the emitter so a changed emitter does not reuse old text
+    a reused fragment is touched so prune can delete fragments of old keys that have not been used for MAX_AGE
+*/
+public class FragmentStore {
+
+    private static final int FORMAT = 3;
+    private static final String SUFFIX = ".jxf";
+    private static final Duration MAX_AGE = Duration.ofDays(30);
+
+    // classes whose code or constants the text of a function depends on
+    private static final Class<?>[] EMITTER = {
+        FragmentStore.class,
+        JynxFunction.class,
+        JynxOpCode.class,
+        Optimiser.class,
+        NeedInit.class,
+        Block.class,
+        JavaName.class,
+        FunctionStats.class,
+        OpCode.class,
+        OpType.class,
+        Feature.class,
+        PackedCode.class,
+        ValueType.class,
+        FnType.class,
+    };
+
+    private static final byte[] EMITTER_HASH = emitterHash();
+
+    private final Path dir;
+    private final String version;
+
+    private final AtomicInteger reused;
+    private final AtomicInteger generated;
+    private int pruned;
+
+    public FragmentStore(Path dir, String version) throws IOException {
+        this.dir = dir;
+        this.version = version;
+        this.reused = new AtomicInteger();
+        this.generated = new AtomicInteger();
+        Files.createDirectories(dir);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new AssertionError(ex);
+        }
+    }
+
+    private static byte[] emitterHash() {
+        MessageDigest md = sha256();
+        try {
+            for (Class<?> klass : EMITTER) {
+                addClass(md, klass);
+                for (Class<?> nested : klass.getDeclaredClasses()) {
+                    addClass(md, nested);
+                }
+                // anonymous classes including switch maps
+                String simple = klass.getName().substring(klass.getName().lastIndexOf('.') + 1);
+                int anon = 1;
+                while (addResource(md, klass, simple + "$" + anon + ".class")) {
+                    ++anon;
+                }
+            }
+        } catch (IOException ex) {
+            throw new IllegalStateException("unable to read emitter classes", ex);
+        }
+        return md.digest();
+    }
+
+    private static void addClass(MessageDigest md, Class<?> klass) throws IOException {
+        String simple = klass.getName().substring(klass.getName().lastIndexOf('.') + 1);
+        if (!addResource(md, klass, simple + ".class")) {
+            throw new IOException("class file not found for " + klass.getName());
+        }
+    }
+
+    private static boolean addResource(MessageDigest md, Class<?> klass, String resource) throws IOException {
+        try (InputStream in = klass.getResourceAsStream(resource)) {
+            if (in == null) {
+                return false;
+            }
+            md.update(resource.getBytes(StandardCharsets.UTF_8));
+            md.update(in.readAllBytes());
+            return true;
+        }
+    }
+
+    public String key(LocalFunction fn, JavaName javaName, boolean comments) {
+        MessageDigest md = sha256();
+        try (DataOutputStream out = new DataOutputStream(new DigestOutputStream(OutputStream.nullOutputStream(), md))) {
+            out.writeInt(FORMAT);
+            out.writeUTF(version);
+            out.write(EMITTER_HASH);
+            out.writeBoolean(comments);
+            out.writeUTF(javaName.simpleName(fn));
+            out.writeUTF(fn.getFieldName());
+            out.writeBoolean(fn.isPrivate());
+            out.writeUTF(fn.getFnType().wasmString());
+            Local[] locals = fn.getLocals();
+            out.writeInt(locals.length);
+            for (Local local : locals) {
+                out.writeInt(local.getNumber());
+                out.writeUTF(local.getName());
+                out.writeUTF(local.getType().name());
+                out.writeBoolean(local.isParm());
+            }
+            long[] initvars = fn.getVarsToInit().toLongArray();
+            out.writeInt(initvars.length);
+            for (long bits : initvars) {
+                out.writeLong(bits);
+            }
+            writeCode(out, fn.getCode(), javaName);
+        } catch (IOException ex) {
+            throw new AssertionError(ex); // null output stream
+        }
+        return HexFormat.of().formatHex(md.digest());
+    }
+
+    private static void writeCode(DataOutputStream out, PackedCode code, JavaName javaName) throws IOException {
+        int[] ops = code.ops();
+        long[] imms = code.imms();
+        out.writeInt(ops.length);
+        for (int i = 0; i < ops.length; ++i) {
+            out.writeInt(ops[i]);
+            out.writeLong(imms[i]);
+        }
+        FnType[] fntypes = code.fntypes();
+        out.writeInt(fntypes.length);
+        for (FnType fntype : fntypes) {
+            out.writeUTF(fntype.wasmString());
+        }
+        BranchTarget[] targets = code.targets();
+        out.writeInt(targets.length);
+        for (BranchTarget target : targets) {
+            out.writeInt(target.getBr2level());
+            out.writeUTF(target.getUnwind().wasmString());
+        }
+        Object[] objects = code.objects();
+        out.writeInt(objects.length);
+        for (Object obj : objects) {
+            if (obj instanceof Local local) {
+                out.writeUTF(local.getName());
+            } else if (obj instanceof Global global) {
+                out.writeUTF(javaName.localName(global));
+            } else if (obj instanceof WasmFunction fn) {
+                out.writeUTF(javaName.localName(fn));
+            } else if (obj instanceof Table table) {
+                out.writeInt(table.getTableNum());
+            } else if (obj instanceof Float fval) {
+                out.writeInt(Float.floatToRawIntBits(fval));
+            } else if (obj instanceof Double dval) {
+                out.writeLong(Double.doubleToRawLongBits(dval));
+            } else {
+                out.writeUTF(String.valueOf(obj)); // dropped unreachable op
+            }
+        }
+    }
+
+    // returns null if not present ; stats of function are added to fnstats
+    public String get(String key, FunctionStats fnstats) throws IOException {
+        Path path = dir.resolve(key + SUFFIX);
+        String file;
+        try {
+            file = Files.readString(path, StandardCharsets.UTF_8);
+        } catch (NoSuchFileException ex) {
+            return null;
+        }
+        int eol = file.indexOf('\n');
+        if (eol < 0) {
+            String msg = String.format("fragment %s has no stats line", key);
+            throw new IOException(msg);
+        }
+        try {
+            fnstats.merge(FunctionStats.fromText(file.substring(0, eol)));
+        } catch (IllegalArgumentException ex) {
+            String msg = String.format("fragment %s has invalid stats line", key);
+            throw new IOException(msg, ex);
+        }
+        Files.setLastModifiedTime(path, FileTime.from(Instant.now()));
+        reused.incrementAndGet();
+        return file.substring(eol + 1);
+    }
+
+    public void put(String key, String text, FunctionStats textstats) throws IOException {
+        generated.incrementAndGet();
+        Path tmp = Files.createTempFile(dir, "fragment", ".tmp");
+        try {
+            Files.writeString(tmp, textstats.toText() + '\n' + text, StandardCharsets.UTF_8);
+            Files.move(tmp, dir.resolve(key + SUFFIX), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    // deletes fragments that have not been written or reused for MAX_AGE
+    public void prune() throws IOException {
+        FileTime oldest = FileTime.from(Instant.now().minus(MAX_AGE));
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + SUFFIX)) {
+            for (Path file : files) {
+                if (Files.getLastModifiedTime(file).compareTo(oldest) < 0 && Files.deleteIfExists(file)) {
+                    ++pruned;
+                }
+            }
+        }
+    }
+
+    public String stats() {
+        return String.format("fragment store %s: functions reused = %d regenerated = %d ; fragments pruned = %d",
+                dir, reused.get(), generated.get(), pruned);
+    }
+
+}
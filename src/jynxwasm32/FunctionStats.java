@@ -1,12 +1,11 @@
 package jynxwasm32;
 
 import java.util.EnumMap;
-import java.util.List;
 import java.util.Map;
 import java.util.logging.Logger;
 import wasm.Feature;
-import wasm.Instruction;
 import wasm.OpCode;
+import wasm.PackedCode;
 
 public class FunctionStats {
     
@@ -35,9 +34,52 @@ public class FunctionStats {
         Logger.getGlobal().info(msg);
     }
     
-    public void addStats(String methodname,List<Instruction> insts) {
+    public void merge(FunctionStats other) {
+        fnct += other.fnct;
+        for (Map.Entry<Feature,Integer> me : other.features.entrySet()) {
+            features.merge(me.getKey(), me.getValue(), Integer::sum);
+        }
+    }
+    
+    // number of functions then feature=count e.g. "1 MVP=12 COMPOUND_IF=1"
+    public String toText() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(fnct);
+        for (Map.Entry<Feature,Integer> me : features.entrySet()) {
+            sb.append(' ').append(me.getKey()).append('=').append(me.getValue());
+        }
+        return sb.toString();
+    }
+
+    // throws IllegalArgumentException if text is not from toText()
+    public static FunctionStats fromText(String text) {
+        FunctionStats stats = new FunctionStats();
+        String[] parts = text.trim().split(" ");
+        stats.fnct = Integer.parseInt(parts[0]);
+        for (int i = 1; i < parts.length; ++i) {
+            int eq = parts[i].indexOf('=');
+            if (eq < 0) {
+                throw new IllegalArgumentException("invalid feature count " + parts[i]);
+            }
+            Feature feature = Feature.valueOf(parts[i].substring(0, eq));
+            stats.features.put(feature, Integer.parseInt(parts[i].substring(eq + 1)));
+        }
+        return stats;
+    }
+    
+    public void addStats(String methodname,PackedCode insts) {
         ++fnct;
-        for (Instruction inst:insts) {
+        addInsts(insts);
+    }
+
+    // a helper method moved out of a function is not counted as a function
+    public void addHelperStats(String methodname,PackedCode insts) {
+        addInsts(insts);
+    }
+
+    private void addInsts(PackedCode insts) {
+        PackedCode.Cursor inst = insts.cursor();
+        while (inst.next()) {
             OpCode opcode = inst.getOpCode();
             features.compute(opcode.getFeature(), (k,v) -> v == null?1:v + 1);
         }
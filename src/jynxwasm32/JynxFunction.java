@@ -2,7 +2,6 @@ package jynxwasm32;
 
 import java.io.PrintWriter;
 import java.util.BitSet;
-import java.util.List;
 import java.util.logging.Logger;
 
 import static parse.ValueType.V00;
@@ -18,17 +17,9 @@ import parse.ValueType;
 import parse.ValueTypeStack;
 import parse.WasmFunction;
 import parse.WasmModule;
-import wasm.BrTableInstruction;
-import wasm.BranchInstruction;
-import wasm.ConstantInstruction;
-import wasm.Instruction;
-import wasm.InvokeInstruction;
-import wasm.MemoryFunctionInstruction;
-import wasm.MemoryInstruction;
 import wasm.OpCode;
 import wasm.OpType;
-import wasm.UnreachableInstruction;
-import wasm.VariableInstruction;
+import wasm.PackedCode;
 
 public class JynxFunction {
     
@@ -36,12 +27,58 @@ public class JynxFunction {
     private final JavaName javaName;
     private final boolean comments;
     private final FunctionStats stats;
+
+    // lines are appended to sb and written to pw at the end of each public method
+    private final StringBuilder sb;
+    private char[] buf;
     
+    private static final String NL = System.lineSeparator();
+    private static final int FLUSH_SIZE = 1 << 16;
+    private static final String[] INDENTS = new String[32];
+
+    static {
+        for (int i = 0; i < INDENTS.length; ++i) {
+            INDENTS[i] = "  ".repeat(i);
+        }
+    }
+
     public JynxFunction(PrintWriter pw, JavaName javaName, boolean comments, FunctionStats stats) {
         this.pw = pw;
         this.javaName = javaName;
         this.comments = comments;
         this.stats = stats;
+        this.sb = new StringBuilder();
+        this.buf = new char[0];
+    }
+
+    private static String indent(int level) {
+        return level < INDENTS.length? INDENTS[level]: "  ".repeat(level);
+    }
+
+    private StringBuilder line(String spacer) {
+        return sb.append(spacer).append("  ");
+    }
+    
+    private void endLine(String comment) {
+        sb.append(comment);
+        endLine();
+    }
+    
+    private void endLine() {
+        sb.append(NL);
+        if (sb.length() >= FLUSH_SIZE) {
+            flush();
+        }
+    }
+    
+    private void flush() {
+        int length = sb.length();
+        if (buf.length < length) {
+            buf = new char[Math.max(length, 2 * buf.length)];
+        }
+        sb.getChars(0, length, buf, 0);
+        pw.write(buf, 0, length);
+        sb.setLength(0);
     }
 
     public void printStart(WasmFunction start) {
@@ -56,24 +93,33 @@ public class JynxFunction {
         String jvmname = javaName.simpleName(fn);
         String from = fn.getFieldName().equals(jvmname)?"":" ; " + fn.getFieldName();
         String access = fn.isPrivate()?"private":"public";
-        pw.format(".method %s static %s%s%s%n",access,jvmname,fn.getFnType().wasmString(),from);
+        sb.append(".method ").append(access).append(" static ")
+                .append(jvmname).append(fn.getFnType().wasmString()).append(from);
+        endLine();
         int maxlocal = printInit(fn);
 
-        List<Instruction>  insts = Optimiser.optimize(fn.getInsts());
+        PackedCode insts = Optimiser.optimize(fn.getCode());
 
-        stats.addStats(fn.getFieldName(), insts);
+        if (Outliner.isHelper(fn)) {
+            stats.addHelperStats(fn.getFieldName(), insts);
+        } else {
+            stats.addStats(fn.getFieldName(), insts);
+        }
 
         int maxstack = printInsts(insts, fn.getFieldName(), fn.getFnType().getRtype());
 
-        pw.format("; locals %d stack %d; + macro instruction requirements%n", maxlocal, maxstack);
-        pw.println(".end_method");
-        pw.flush();
+        sb.append("; locals ").append(maxlocal).append(" stack ").append(maxstack)
+                .append("; + macro instruction requirements");
+        endLine();
+        sb.append(".end_method");
+        endLine();
+        flush();
     }
 
     private int printInit(LocalFunction fn) {
         Local[] locals = fn.getLocals();
         BitSet initvars = fn.getVarsToInit();
-        List<Instruction> insts = fn.getInsts();
+        PackedCode insts = fn.getCode();
         int maxlocal = 0;
         for (int i = 0; i < locals.length ; ++i) {
             Local local = locals[i];
@@ -82,7 +128,8 @@ public class JynxFunction {
             if (local.isParm()) {
                 String name = local.getName();
                 int num = local.getNumber();
-                pw.format(".parameter %d %s%n", num, name);
+                sb.append(".parameter ").append(num).append(' ').append(name);
+                endLine();
             }
         }
 
@@ -96,7 +143,8 @@ public class JynxFunction {
             ValueType vt = local.getType();
             if (initvars.get(i)) {
                 JynxOpCode init = JynxOpCode.localInit(vt);
-                pw.format("  %s %s%n", init, local.getName());
+                line("").append(init).append(' ').append(local.getName());
+                endLine();
             }
         }
         return maxlocal;
@@ -130,42 +178,60 @@ public class JynxFunction {
         return numstr;
     }
 
-    private int printInsts(List<Instruction>  insts, String field_name, ValueType rt) {
-        pw.format("  %s%n", OpCode.BLOCK);
+    // stack is only simulated for the stack change comments; size at end is checked from packed code
+    private int printInsts(PackedCode insts, String field_name, ValueType rt) {
+        line("").append(OpCode.BLOCK);
+        endLine();
         int level = 1;
-        ValueTypeStack vts = new ValueTypeStack();
-        for (Instruction inst : insts) {
+        ValueTypeStack vts = comments? new ValueTypeStack(): null;
+        PackedCode.Cursor inst = insts.cursor();
+        while (inst.next()) {
             OpCode op = inst.getOpCode();
             int mylevel = level + op.myLevelChange();
-            String spacer = "  ".repeat(mylevel);
+            String spacer = indent(mylevel);
             level += op.levelChange();
-            String before = vts.toString();
-            FnType fntypex = inst.getFnType();
-            try {
-                vts.adjustStack(fntypex);
-            } catch (Exception ex) {
-                pw.format("%s; %s // %s%n", spacer, inst, before);
-                pw.flush();
-                Logger.getGlobal().severe(String.format("%s: inst = %s",field_name, inst));
-                throw ex;
-            }
-            String after = vts.toString();
-            String stackchange = String.format("%s -> %s",before,after);
-            printInst(inst, spacer, stackchange);
+            String stackchange = vts == null? "": stackChange(vts, inst, spacer, field_name);
+            appendInst(inst, spacer, stackchange);
         }
 
         ifReachable("", OpCode.RETURN, "");
-        vts.adjustStack(FnType.consume(rt));
-
-        pw.flush();
-        if (!vts.addedEmpty()) {
+        FnType consume = FnType.consume(rt);
+        if (vts != null) {
+            vts.adjustStack(consume);
+            assert vts.getMaxsz() == insts.maxStack():field_name;
+            assert vts.addedEmpty() == (insts.endStack() + consume.stackChange() == 0):field_name;
+        }
+        if (insts.endStack() + consume.stackChange() != 0) {
+            flush();
             String msg = "stack not empty at end";
             throw new IllegalStateException(msg);
         }
-        return vts.getMaxsz();
+        return insts.maxStack();
+    }
+
+    private String stackChange(ValueTypeStack vts, PackedCode.Cursor inst, String spacer, String field_name) {
+        String before = vts.toString();
+        FnType fntypex = inst.getFnType();
+        try {
+            vts.adjustStack(fntypex);
+        } catch (Exception ex) {
+            sb.append(spacer).append("; ").append(inst).append(" // ").append(before);
+            endLine();
+            flush();
+            pw.flush();
+            Logger.getGlobal().severe(String.format("%s: inst = %s",field_name, inst));
+            throw ex;
+        }
+        return before + " -> " + vts.toString();
     }
     
-    public void printInst(Instruction inst, String spacer,String stackchange) {
+    // a single instruction e.g. of a constant expression
+    void printInst(PackedCode.Cursor inst, String spacer,String stackchange) {
+        appendInst(inst, spacer, stackchange);
+        flush();
+    }
+
+    private void appendInst(PackedCode.Cursor inst, String spacer,String stackchange) {
         OpCode opcode = inst.getOpCode();
         OpType optype = opcode.getOpType();
         String compound = optype.isCompound()?"(*)":"";
@@ -193,50 +259,55 @@ public class JynxFunction {
                 brtablex(spacer, inst, comment);
                 break;
             case MEMFN:
-                MemoryFunctionInstruction memfninst = (MemoryFunctionInstruction)inst;
-                int memidx1 = memfninst.memidx1();
+                int memidx1 = inst.memidx1();
                 if (opcode == MEMORY_COPY) {
-                    int memidx2 = memfninst.memidx2();
-                    pw.format("%s  %s %d %d%s%n", spacer,opcode,memidx1,memidx2,comment);
+                    int memidx2 = inst.memidx2();
+                    line(spacer).append(opcode).append(' ').append(memidx1).append(' ').append(memidx2);
                 } else {
-                    pw.format("%s  %s %d%s%n", spacer,opcode,memidx1,comment);
+                    line(spacer).append(opcode).append(' ').append(memidx1);
                 }
+                endLine(comment);
                 break;
             case CONST:
-                ConstantInstruction constinst = (ConstantInstruction)inst;
-                pw.format("%s  %s %s%s%n", spacer,opcode,num2string(constinst.getConstant()),comment);
+                line(spacer).append(opcode).append(' ').append(num2string(inst.getConstant()));
+                endLine(comment);
                 break;
             case PARAMETRIC:
             default:
-                pw.format("%s  %s%s%n",spacer,opcode,comment);
+                line(spacer).append(opcode);
+                endLine(comment);
                 break;
         }
     }
     
-    private void memory(String spacer,Instruction inst, String comment) {
-        MemoryInstruction meminst = (MemoryInstruction)inst;
-        int offset = meminst.getOffset();
-        int alignment = meminst.getAlignment(); // alignment is a hint not semantic
-        int memnum = meminst.getMemoryNumber();
+    private void memory(String spacer,PackedCode.Cursor inst, String comment) {
+        int offset = inst.getOffset();
+        int alignment = inst.getAlignment(); // alignment is a hint not semantic
+        int memnum = inst.getMemoryNumber();
         String plus = offset >= 0? "+": "";
-        pw.format("%s  %s %d %s%d%s%n",spacer,inst.getOpCode(),memnum,plus,offset,comment);
+        line(spacer).append(inst.getOpCode()).append(' ').append(memnum).append(' ').append(plus).append(offset);
+        endLine(comment);
     }
     
     private void ifReachable(String spacer, OpCode opcode, String comment) {
-        pw.println(spacer + "  .if reachable");
-        pw.format("%s  %s%s%n", spacer, opcode, comment);
-        pw.println(spacer + "  .end_if");
+        line(spacer).append(".if reachable");
+        endLine();
+        line(spacer).append(opcode);
+        endLine(comment);
+        line(spacer).append(".end_if");
+        endLine();
     }
     
-    private void unreachable(String spacer,Instruction inst, String comment) {
-        if (inst instanceof UnreachableInstruction) {
-            pw.format("%s  ; %s%n", spacer,inst);
+    private void unreachable(String spacer,PackedCode.Cursor inst, String comment) {
+        if (inst.isUnreachableOp()) {
+            line(spacer).append("; ").append(inst);
+            endLine();
         } else {
             ifReachable(spacer, inst.getOpCode(), comment);
         }
     }
     
-    private void control(String spacer,Instruction inst, String comment) {
+    private void control(String spacer,PackedCode.Cursor inst, String comment) {
         OpCode opcode = inst.getOpCode();
         switch(opcode) {
             case UNREACHABLE:
@@ -248,106 +319,121 @@ public class JynxFunction {
             case ELSE:
             case END:
             case RETURN:
-                pw.format("%s  %s%s%n", spacer,opcode,comment);
+                line(spacer).append(opcode);
+                endLine(comment);
                 break;
             default:
                 if (opcode.getOpType() != OpType.COMPARE_IF) {
                     throw new AssertionError();
                 }
-                pw.format("%s  %s%s%n", spacer,opcode,comment);
+                line(spacer).append(opcode);
+                endLine(comment);
                 break;
         }
     }
 
     private void brpop(String spacer, BranchTarget target) {
         if (target.needUnwind()) {
-            pw.format("%s  %s %s%n", spacer,JynxOpCode.UNWIND, target.getUnwind().wasmString());
+            line(spacer).append(JynxOpCode.UNWIND).append(' ').append(target.getUnwind().wasmString());
+            endLine();
         }
     }
 
-    private void branch(String spacer,Instruction inst, String comment) {
-        BranchInstruction brinst = (BranchInstruction)inst;
-        BranchTarget target = brinst.getTarget();
+    private void branch(String spacer,PackedCode.Cursor inst, String comment) {
+        BranchTarget target = inst.getTarget();
         int level = target.getBr2level();
         switch(inst.getOpCode()) {
             case BR_IF:
                 if (!target.needUnwind()) {
-                    pw.format("%s  %s %d%s%n",spacer,OpCode.BR_IF, level,comment);
+                    line(spacer).append(OpCode.BR_IF).append(' ').append(level);
+                    endLine(comment);
                     return;
                 }
-                pw.format("%s; %s%n",spacer,comment);
-                pw.format("%s  %s%n",spacer,OpCode.IF);
+                sb.append(spacer).append("; ").append(comment);
+                endLine();
+                line(spacer).append(OpCode.IF);
+                endLine();
                 String indent = spacer + "  ";
                 brpop(indent, target);
-                pw.format("%s  %s %d%n",indent,OpCode.BR,level+1);
-                pw.format("%s  %s%n",spacer,OpCode.END);
+                line(indent).append(OpCode.BR).append(' ').append(level+1);
+                endLine();
+                line(spacer).append(OpCode.END);
+                endLine();
                 break;
             case BR:
                 if (target.needUnwind()) {
-                    pw.format("%s; %s%n",spacer,comment);
+                    sb.append(spacer).append("; ").append(comment);
+                    endLine();
                     brpop(spacer, target);
-                    pw.format("%s  %s %d%n",spacer,OpCode.BR,level);
+                    line(spacer).append(OpCode.BR).append(' ').append(level);
+                    endLine();
                 } else {
-                    pw.format("%s  %s %d%s%n",spacer,OpCode.BR,level,comment);
+                    line(spacer).append(OpCode.BR).append(' ').append(level);
+                    endLine(comment);
                 }
                 break;
             default:
                 if (inst.getOpCode().getOpType() != OpType.COMPARE_BRIF){
                     throw new AssertionError();
                 }
-                pw.format("%s  %s %d%s%n",spacer,inst.getOpCode(), level,comment);
+                line(spacer).append(inst.getOpCode()).append(' ').append(level);
+                endLine(comment);
                 break;
         }
     }
 
-    private static int labnum = 150;
+    private int labnum = 150;
     
-    private void brtablex(String spacer,Instruction inst, String comment) {
-        BrTableInstruction brinst = (BrTableInstruction)inst;
-        pw.format("%s%s%n",spacer,comment);
-        BranchTarget[] targets = brinst.getTargets();
-        BranchTarget deftarget = targets[targets.length - 1];
+    private void brtablex(String spacer,PackedCode.Cursor inst, String comment) {
+        sb.append(spacer);
+        endLine(comment);
+        int count = inst.getTargetCount();
+        BranchTarget deftarget = inst.getTarget(count - 1);
         int label = labnum;
-        labnum += targets.length;
-        pw.format("%s  %s default",spacer,OpCode.BR_TABLE);
+        labnum += count;
+        line(spacer).append(OpCode.BR_TABLE).append(" default");
         if (deftarget.needUnwind()) {
-            int deflab = label + targets.length - 1;
-            pw.format(" L%d .array%n",deflab);
+            int deflab = label + count - 1;
+            sb.append(" L").append(deflab).append(" .array");
         } else {
-            pw.format(" %d .array%n",deftarget.getBr2level());
+            sb.append(' ').append(deftarget.getBr2level()).append(" .array");
         }
-        for (int i = 0; i < targets.length -1;++i) {
+        endLine();
+        for (int i = 0; i < count -1;++i) {
             int labi = label + i;
-            BranchTarget target = targets[i];
+            BranchTarget target = inst.getTarget(i);
             if (target.getBr2level() != deftarget.getBr2level()) {
                 FnType unwind = target.getUnwind();
                 if (target.needUnwind()) {
-                    pw.format("%s    %d -> L%d ; %s%n", spacer, i, labi, unwind);
+                    line(spacer).append("  ").append(i).append(" -> L").append(labi).append(" ; ").append(unwind);
                 } else {
-                    pw.format("%s    %d -> %d%n", spacer, i, target.getBr2level());
+                    line(spacer).append("  ").append(i).append(" -> ").append(target.getBr2level());
                 }
+                endLine();
             }
         }
-        pw.format("%s  .end_array%n",spacer);
-        for (int i = 0; i < targets.length;++i) {
-            BranchTarget target = targets[i];
+        line(spacer).append(".end_array");
+        endLine();
+        for (int i = 0; i < count;++i) {
+            BranchTarget target = inst.getTarget(i);
             if (target.getBr2level() != deftarget.getBr2level()) {
                 if (target.needUnwind()) {
-                    pw.format("%s  L%d:%n", spacer,(label + i));
+                    line(spacer).append('L').append(label + i).append(':');
+                    endLine();
                     brpop(spacer, target);
-                    pw.format("%s  %s %d%n", spacer,OpCode.BR,target.getBr2level());
+                    line(spacer).append(OpCode.BR).append(' ').append(target.getBr2level());
+                    endLine();
                 }
             }
         }
     }
 
-    private void variable(String spacer,Instruction inst, String comment) {
+    private void variable(String spacer,PackedCode.Cursor inst, String comment) {
         FnType fntype = inst.getFnType();
         ValueType vtr = fntype.getRtype();
         ValueType vt1 = fntype.getType(1);
         ValueType varvt = vtr == V00?vt1:vtr;
-        VariableInstruction objinst  = (VariableInstruction)inst;
-        Object obj = objinst.getObject();
+        Object obj = inst.getObject();
         String name;
         Local local;
         OpCode opcode = inst.getOpCode();
@@ -356,36 +442,36 @@ public class JynxFunction {
             case LOCAL_SET:
             case LOCAL_TEE:
                 local = (Local)obj;
-                pw.format("%s  %s_%s %s%s%n",
-                        spacer, varvt, opcode, local.getName(), comment);
+                line(spacer).append(varvt).append('_').append(opcode).append(' ').append(local.getName());
+                endLine(comment);
                 break;
             case GLOBAL_GET:
             case GLOBAL_SET:
                 name = javaName.localName(((Global)obj));
-                pw.format("%s  %s_%s %s%s%n",
-                        spacer, varvt, opcode, name, comment);
+                line(spacer).append(varvt).append('_').append(opcode).append(' ').append(name);
+                endLine(comment);
                 break;
             default:
                 throw new AssertionError();
         }
     }
 
-    private void invoke(String spacer,Instruction inst, String comment) {
+    private void invoke(String spacer,PackedCode.Cursor inst, String comment) {
         FnType fntype = inst.getFnType();
-        InvokeInstruction objinst  = (InvokeInstruction)inst;
-        Object obj = objinst.getObject();
+        Object obj = inst.getObject();
         String name;
         OpCode opcode = inst.getOpCode();
         switch(opcode) {
             case CALL:
                 WasmFunction called = (WasmFunction)obj;
                 name = javaName.localName(called);
-                pw.format("%s  %s %s%s%s%n",spacer,opcode, name, fntype.wasmString(),comment);
+                line(spacer).append(opcode).append(' ').append(name).append(fntype.wasmString());
+                endLine(comment);
                 break;
             case CALL_INDIRECT:
                 int tablenum = ((Table)obj).getTableNum();
-                pw.format("%s  %s %d %s%s%n",
-                        spacer,opcode,tablenum,fntype.wasmString(),comment);
+                line(spacer).append(opcode).append(' ').append(tablenum).append(' ').append(fntype.wasmString());
+                endLine(comment);
                 break;
             default:
                 throw new AssertionError();
@@ -2,10 +2,18 @@ package jynxwasm32;
 
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Base64;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
 
 import static parse.ValueType.V00;
@@ -21,8 +29,9 @@ import parse.TableElement;
 import parse.ValueType;
 import parse.WasmFunction;
 import parse.WasmModule;
-import wasm.Instruction;
+import util.Base64Writer;
 import wasm.OpCode;
+import wasm.PackedCode;
 
 public class JynxModule {
     
@@ -34,10 +43,19 @@ public class JynxModule {
     private final boolean comments;
     private final WasmFunction startFn;
     private final FunctionStats stats;
+    private final FragmentStore store;
+    private final int maxMethodSize;
+    // functions split into methods by Outliner
+    private final Map<LocalFunction, List<LocalFunction>> outlined;
+    private final DataLayout layout;
+
+    // functions printed ahead of the one being written
+    private static final int WINDOW_PER_THREAD = 32;
     
     private JynxModule(WasmModule module, PrintWriter pw,
             String filename, String classname,  JavaName javaname,
-            WasmFunction startfn, boolean comments) {
+            WasmFunction startfn, boolean comments, FragmentStore store, int maxmethodsize,
+            DataLayout layout) {
         this.module = module;
         this.pw = pw;
         this.javaName = javaname;
@@ -46,17 +64,36 @@ public class JynxModule {
         this.comments = comments;
         this.startFn = startfn;
         this.stats = new FunctionStats();
+        this.store = store;
+        this.maxMethodSize = maxmethodsize;
+        this.outlined = new IdentityHashMap<>();
+        this.layout = layout;
     }
     
     public static void output(WasmModule module, String file, 
             String classname, JavaName javaname, String startmethod, boolean comments) throws IOException {
+        output(module, file, classname, javaname, startmethod, comments, null);
+    }
+
+    // store may be null
+    public static void output(WasmModule module, String file, String classname, JavaName javaname,
+            String startmethod, boolean comments, FragmentStore store) throws IOException {
         try (PrintWriter pw = new PrintWriter(System.out)) {
-            WasmFunction wasmfn = getStart(module, javaname, startmethod);
-            JynxModule jm = new JynxModule(module, pw,file, classname, javaname, wasmfn, comments);
-            jm.print();
+            output(module, pw, file, classname, javaname, startmethod, comments, store,
+                    Outliner.DEFAULT_MAX_METHOD_SIZE, new DataLayout(DataLayout.DEFAULT_ZERO_RUN));
         }
     }
 
+    // pw is flushed but not closed ; functions larger than maxmethodsize are split (0 is no limit)
+    public static void output(WasmModule module, PrintWriter pw, String file, String classname,
+            JavaName javaname, String startmethod, boolean comments, FragmentStore store,
+            int maxmethodsize, DataLayout layout) throws IOException {
+        WasmFunction wasmfn = getStart(module, javaname, startmethod);
+        JynxModule jm = new JynxModule(module, pw,file, classname, javaname, wasmfn, comments, store,
+                maxmethodsize, layout);
+        jm.print();
+    }
+
     private static WasmFunction getStart(WasmModule module, JavaName javaname, String startMethod) {
         WasmFunction start = module.getStart();
         if (start == null) {
@@ -79,7 +116,7 @@ public class JynxModule {
         return start;
     }
     
-    private void print() {
+    private void print() throws IOException {
         pw.format(".version V1_8 SYMBOLIC_LOCAL GENERATE_LINE_NUMBERS%n");
         pw.println(".macrolib wasm32MVP");
         Path srcpath = Paths.get(fileName);
@@ -89,19 +126,30 @@ public class JynxModule {
         pw.println();
     
         printProducers();
-        
+
+        outline();
+
         defineFields();
 
         printClassInitMethod();
 
-        for (WasmFunction function:module.getFunctions()) {
-            if (function instanceof LocalFunction) {
-                LocalFunction localfn = (LocalFunction)function;
-                pw.println();
-                JynxFunction jynx = new JynxFunction(pw,javaName,comments, stats);
-                jynx.printJVMInsts(module, localfn);
+        int threads = module.getOptions().threads();
+        if (threads > 1) {
+            printParallel(threads);
+        } else {
+            for (WasmFunction function:module.getFunctions()) {
+                if (function instanceof LocalFunction) {
+                    for (LocalFunction localfn : methods((LocalFunction)function)) {
+                        pw.println();
+                        if (store == null) {
+                            JynxFunction jynx = new JynxFunction(pw,javaName,comments, stats);
+                            jynx.printJVMInsts(module, localfn);
+                        } else {
+                            pw.write(render(localfn, stats));
+                        }
+                    }
+                }
             }
-            pw.flush();
         }
         if (startFn != null) {
             JynxFunction jynx = new JynxFunction(pw,javaName,comments, stats);
@@ -111,6 +159,110 @@ public class JynxModule {
         stats.printStats();
     }
 
+    private void outline() {
+        if (maxMethodSize <= 0) {
+            return;
+        }
+        Outliner outliner = new Outliner(module, javaName, maxMethodSize);
+        for (WasmFunction function:module.getFunctions()) {
+            if (function instanceof LocalFunction) {
+                LocalFunction localfn = (LocalFunction)function;
+                List<LocalFunction> methods = outliner.outline(localfn);
+                if (methods.size() > 1) {
+                    outlined.put(localfn, methods);
+                }
+            }
+        }
+    }
+
+    // methods printed for function
+    private List<LocalFunction> methods(LocalFunction localfn) {
+        return outlined.getOrDefault(localfn, List.of(localfn));
+    }
+
+    // text of function from store if present else printed (and added to store)
+    private String render(LocalFunction localfn, FunctionStats fnstats) throws IOException {
+        String key = null;
+        if (store != null) {
+            key = store.key(localfn, javaName, comments);
+            String text = store.get(key, fnstats);
+            if (text != null) {
+                return text;
+            }
+        }
+        FunctionStats textstats = new FunctionStats();
+        StringWriter sw = new StringWriter();
+        try (PrintWriter fragpw = new PrintWriter(sw)) {
+            JynxFunction jynx = new JynxFunction(fragpw,javaName,comments, textstats);
+            jynx.printJVMInsts(module, localfn);
+        }
+        String text = sw.toString();
+        fnstats.merge(textstats);
+        if (store != null) {
+            store.put(key, text, textstats);
+        }
+        return text;
+    }
+
+    private static class Rendered {
+
+        private final String text;
+        private final FunctionStats stats;
+
+        private Rendered(String text, FunctionStats stats) {
+            this.text = text;
+            this.stats = stats;
+        }
+
+    }
+    
+    // functions are printed to their own buffer on a pool and written in module order
+    private void printParallel(int threads) throws IOException {
+        Deque<Future<Rendered>> pending = new ArrayDeque<>();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            for (WasmFunction function:module.getFunctions()) {
+                if (function instanceof LocalFunction) {
+                    for (LocalFunction localfn : methods((LocalFunction)function)) {
+                        pending.addLast(pool.submit(() -> {
+                            FunctionStats fnstats = new FunctionStats();
+                            return new Rendered(render(localfn, fnstats), fnstats);
+                        }));
+                        write(pending, threads * WINDOW_PER_THREAD);
+                    }
+                }
+            }
+            write(pending, 0);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // writes functions in order until no more than max are pending
+    private void write(Deque<Future<Rendered>> pending, int max) throws IOException {
+        while (pending.size() > max) {
+            Rendered rendered;
+            try {
+                rendered = pending.removeFirst().get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IOException("printing interrupted", ex);
+            } catch (ExecutionException ex) {
+                Throwable cause = ex.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException)cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error)cause;
+                }
+                throw (RuntimeException)cause;
+            }
+            pw.println();
+            pw.write(rendered.text);
+            stats.merge(rendered.stats);
+        }
+    }
+
     private void printProducers() {
         pw.println(".annotation visible Lcom/github/david32768/jynxwasi/WasiProducer;");
         pw.println("  producers [s = .array");
@@ -227,7 +379,7 @@ public class JynxModule {
                 continue;
             }
             if (global.usesInitGlobal() || !global.isFinal()) {
-                jynx.printInst(global.getConstInst(), "", "");
+                jynx.printInst(global.getConstExpr().cursor(), "", "");
                 String name = javaName.simpleName(global);
                 String prefix = getPrefix(global.getType());
                 pw.format("  %s%s %s%n",prefix,OpCode.GLOBAL_SET,name);
@@ -274,7 +426,7 @@ public class JynxModule {
     private void printTableElement(JynxFunction jynx,TableElement element, String spacer) {
         boolean started = false;
         int added = 0;
-        Instruction offsetinst = element.getConstExpr().getConstInst();
+        PackedCode.Cursor offsetinst = element.getConstExpr().cursor();
         int i = 0;
         for (WasmFunction fn:element.getFunctions()) {
             if (fn == null) {
@@ -313,7 +465,11 @@ public class JynxModule {
         }
     }
     
-    private static int MAX_SEGMENT = 720; // NOTEPAD will wrap long lines into 1024 character chunks
+    private static final int MAX_SEGMENT = 720; // NOTEPAD will wrap long lines into 1024 character chunks
+    // a chunk is less than 32 bytes of bytecode so a method of chunks is well under 64K
+    private static final int MAX_CHUNKS = 1000;
+    // each chunk is a String constant (two constant pool entries) unless it is the same as another
+    private static final int MAX_CONSTANT_CHUNKS = 30000;
     
     private void printMemoryMethod(Memory memory, int num) {
         JynxFunction jynx = new JynxFunction(pw,javaName,comments,stats);
@@ -337,35 +493,88 @@ public class JynxModule {
                 pw.format("%s %d %s%n",JynxOpCode.ENVIRONMENT_EXPORT_STORAGE, num, javaName.simpleName(memory));
             }
         }
-        for (Data_segment ds:memory.getData()) {
-            byte[] data = ds.getData();
-            Instruction constinst = ds.getOffsetInstruction();
+        List<Data_segment> segments = layout.layout(memory);
+        long chunks = 0;
+        for (Data_segment ds:segments) {
+            chunks += chunks(ds);
+        }
+        if (chunks > MAX_CONSTANT_CHUNKS) {
+            String msg = String.format("%s: %d data chunks may be more than the constant pool of a class can hold",
+                    memory.getDefaultName(), chunks);
+            Logger.getGlobal().warning(msg);
+        }
+        int parts = (int)((chunks + MAX_CHUNKS - 1)/MAX_CHUNKS);
+        if (parts <= 1) {
+            printBase64Segments(jynx, segments, num, 0, chunks);
+        } else {
+            // data is stored by parts so that no method is more than 64K
+            for (int part = 1; part <= parts; ++part) {
+                pw.print(spacer);
+                pw.format("%s __init%s$%d()V%n",OpCode.CALL,memory.getDefaultName(),part);
+            }
+        }
+        pw.print(spacer);
+        pw.format("%s%n",OpCode.RETURN);
+        pw.println(".end_method");
+        for (int part = 1; parts > 1 && part <= parts; ++part) {
+            pw.println();
+            pw.format(".method private static __init%s$%d()V%n",memory.getDefaultName(),part);
+            long from = (part - 1) * (long)MAX_CHUNKS;
+            printBase64Segments(jynx, segments, num, from, Math.min(chunks, from + MAX_CHUNKS));
+            pw.print(spacer);
+            pw.format("%s%n",OpCode.RETURN);
+            pw.println(".end_method");
+        }
+    }
+
+    private static int chunks(Data_segment ds) {
+        int size = ds.size();
+        return size == 0? 1: (size + MAX_SEGMENT - 1)/MAX_SEGMENT;
+    }
+
+    // prints chunks from (inclusive) to (exclusive) of segments
+    private void printBase64Segments(JynxFunction jynx, List<Data_segment> segments, int num, long from, long to) {
+        Base64Writer encoder = new Base64Writer(MAX_SEGMENT);
+        long chunk = 0;
+        for (Data_segment ds:segments) {
+            int dschunks = chunks(ds);
+            if (chunk + dschunks <= from) {
+                chunk += dschunks;
+                continue;
+            }
+            if (chunk >= to) {
+                break;
+            }
+            ByteBuffer data = ds.getData();
+            PackedCode.Cursor constinst = ds.getConstExpr().cursor();
             int dataoffset = 0;
-            int remaining = data.length;
-            byte[] part = new byte[MAX_SEGMENT];
+            int remaining = data.remaining();
             assert MAX_SEGMENT > 0;
             while (remaining > MAX_SEGMENT) {
-                System.arraycopy(data, dataoffset, part, 0, MAX_SEGMENT);
-                printDataSegment(jynx,num,constinst,part,dataoffset);
+                if (chunk >= from && chunk < to) {
+                    ByteBuffer part = data.slice(dataoffset, MAX_SEGMENT);
+                    printDataSegment(jynx,encoder,num,constinst,part,dataoffset);
+                }
+                ++chunk;
                 remaining -= MAX_SEGMENT;
                 dataoffset += MAX_SEGMENT;
             }
-            part = new byte[remaining];
-            System.arraycopy(data, dataoffset, part, 0, remaining);
-            printDataSegment(jynx,num,constinst,part,dataoffset);
+            if (chunk >= from && chunk < to) {
+                ByteBuffer part = data.slice(dataoffset, remaining);
+                printDataSegment(jynx,encoder,num,constinst,part,dataoffset);
+            }
+            ++chunk;
         }
-        pw.print(spacer);
-        pw.format("%s%n",OpCode.RETURN);
-        pw.println(".end_method");
     }
 
-    private void printDataSegment(JynxFunction jynx, int num, Instruction constinst, byte[] data, int dataoffset) {
-        Base64.Encoder encoder = Base64.getEncoder();
-        String datastr = encoder.encodeToString(data);
+    private void printDataSegment(JynxFunction jynx, Base64Writer encoder, int num, PackedCode.Cursor constinst,
+            ByteBuffer data, int dataoffset) {
         String spacer = "  ";
         jynx.printInst(constinst, "", "");
         pw.print(spacer);
-        pw.format("%s \"%s\"%n", JynxOpCode.STRING_CONST, datastr);
+        pw.format("%s \"", JynxOpCode.STRING_CONST);
+        encoder.write(pw, data);
+        pw.format("\"%n");
         pw.print(spacer);
         pw.format("%s %d +%d%n", JynxOpCode.BASE64_STORE, num, dataoffset);
     }
@@ -2,37 +2,35 @@ package jynxwasm32;
 
 import java.util.BitSet;
 import java.util.EnumSet;
-import java.util.List;
 
 import static wasm.OpCode.*;
 
 import parse.BranchTarget;
 import parse.Local;
 import util.LIFOStack;
-import wasm.BrTableInstruction;
-import wasm.BranchInstruction;
-import wasm.ControlInstruction;
-import wasm.Instruction;
 import wasm.OpCode;
-import wasm.VariableInstruction;
+import wasm.OpType;
+import wasm.PackedCode;
 
 public class NeedInit {
     
-    public static BitSet uninitialisedVar(BitSet vars, List<Instruction> insts) {
+    public static BitSet uninitialisedVar(BitSet vars, PackedCode insts) {
         int numvar = vars.size();
         BitSet uninit = new BitSet(numvar);
         LIFOStack<Block> stack = new LIFOStack<>();
         BitSet current = new BitSet(numvar);
         stack.push(new Block(null, current, vars));
         boolean reachable = true;
-        for (Instruction inst : insts) {
+        PackedCode.Cursor inst = insts.cursor();
+        while (inst.next()) {
             OpCode op = inst.getOpCode();
+            OpType optype = op.getOpType();
             if (!reachable) {
                 assert EnumSet.of(END, UNREACHABLE, ELSE).contains(op): op;
                 current = new BitSet();
             }
-            if (inst instanceof VariableInstruction objinst) {
-                Object obj = objinst.getObject();
+            if (optype == OpType.VARIABLE) {
+                Object obj = inst.getObject();
                 int local;
                 switch(op) {
                     case LOCAL_GET:
@@ -47,7 +45,7 @@ public class NeedInit {
                         current.set(local);
                         break;
                 }
-            } else if (inst instanceof ControlInstruction) {
+            } else if (inst.isControl()) {
                 Block block;
                 switch(op) {
                     case LOOP:
@@ -56,16 +54,25 @@ public class NeedInit {
                         stack.push(new Block(op, current, vars));
                         break;
                     case ELSE:
-                        block = stack.peek();
+                        block = stack.pop();
                         assert block.op() == IF;
                         if (reachable) {
                             block.updateVarsForBranch(current);
                         }
                         current = block.startVars();
+                        Block elseblock = new Block(ELSE, current, block.endVars());
+                        if (block.isReached()) {
+                            elseblock.updateVarsIfReached(block.endVars());
+                        }
+                        stack.push(elseblock);
                         reachable = true;
                         break;
                     case END:
                         block = stack.pop();
+                        if (block.op() == IF) {
+                            // no else so end is reached if condition is false
+                            block.updateVarsIfReached(block.startVars());
+                        }
                         if (reachable) {
                             block.updateVarsIfReached(current);
                         }
@@ -77,16 +84,15 @@ public class NeedInit {
                         reachable = false;
                         break;
                 }
-            } else if (inst instanceof BranchInstruction brinst) {
-                BranchTarget target = brinst.getTarget();
+            } else if (inst.isBranch()) {
+                BranchTarget target = inst.getTarget();
                 int br2 = target.getBr2level();
                 stack.peek(br2)
                     .updateVarsForBranch(current);
                 reachable = op != BR;
-            } else if (inst instanceof BrTableInstruction tabinst) {
-                BranchTarget[] targets = tabinst.getTargets();
-                for (BranchTarget target : targets) {
-                    int br2 = target.getBr2level();
+            } else if (optype == OpType.BRANCH_TABLE) {
+                for (int i = 0; i < inst.getTargetCount(); ++i) {
+                    int br2 = inst.getTarget(i).getBr2level();
                     stack.peek(br2)
                         .updateVarsForBranch(current);
                 }
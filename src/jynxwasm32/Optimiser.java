@@ -1,64 +1,46 @@
 package jynxwasm32;
 
-import java.util.ArrayList;
-import java.util.List;
-
-import static wasm.OpCode.BR_IF;
-import static wasm.OpCode.IF;
-import static wasm.OpCode.SELECT;
-
 import parse.BranchTarget;
-import wasm.BranchInstruction;
-import wasm.ControlInstruction;
-import wasm.Instruction;
 import wasm.OpCode;
 import wasm.OpType;
-import wasm.SimpleInstruction;
+import wasm.PackedCode;
 
 public class Optimiser {
     
-    private static Instruction compareOptimise(Instruction inst, Instruction last) {
-        Instruction optlast = null;
+    private static boolean compareOptimise(PackedCode.Cursor inst) {
         OpCode opcode = inst.getOpCode();
         switch(opcode) {
             case BR_IF:
-                BranchInstruction brinst = (BranchInstruction)inst;
-                BranchTarget target = brinst.getTarget();
-                if (!target.needUnwind()) {
-                    optlast = BranchInstruction.combine(last, inst);
-                }
-                break;
+                BranchTarget target = inst.getTarget();
+                return !target.needUnwind();
             case SELECT:
-                optlast = SimpleInstruction.combine(last,inst);
-                break;
             case IF:
-                optlast = ControlInstruction.combine(last, inst);
-                break;
+                return true;
+            default:
+                return false;
         }
-        return optlast;
     }
     
-    public static List<Instruction> optimize(List<Instruction> insts) {
-        List<Instruction>  result = new ArrayList<>();
-        Instruction last = null;
-        for (Instruction inst:insts) {
-            if (last != null) {
-                OpType lasttype = last.getOpCode().getOpType();
-                if (lasttype == OpType.COMPARE) {
-                    Instruction optlast = compareOptimise(inst, last);
-                    if (optlast != null) {
-                        last = optlast;
-                        inst = null;
-                    }
+    public static PackedCode optimize(PackedCode insts) {
+        PackedCode.Builder result = new PackedCode.Builder(insts.size());
+        PackedCode.Cursor inst = insts.cursor();
+        PackedCode.Cursor next = insts.cursor();
+        int size = insts.size();
+        int i = 0;
+        while (i < size) {
+            inst.position(i);
+            if (i + 1 < size && inst.getOpType() == OpType.COMPARE) {
+                next.position(i + 1);
+                if (compareOptimise(next)) {
+                    result.addCombined(inst, next);
+                    i += 2;
+                    continue;
                 }
-                result.add(last);
             }
-            last = inst;
-        }
-        if (last != null) {
-            result.add(last);
+            result.add(inst);
+            ++i;
         }
-        return result;
+        return result.build();
     }
 
 }
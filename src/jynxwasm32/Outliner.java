@@ -0,0 +1,718 @@
+package jynxwasm32;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Logger;
+
+import static parse.ValueType.I32;
+import static parse.ValueType.V00;
+
+import parse.BranchTarget;
+import parse.FnType;
+import parse.KindName;
+import parse.KindType;
+import parse.Local;
+import parse.LocalFunction;
+import parse.Status;
+import parse.ValueType;
+import parse.ValueTypeStack;
+import parse.WasmFunction;
+import parse.WasmModule;
+import wasm.BrTableInstruction;
+import wasm.BranchInstruction;
+import wasm.ConstantInstruction;
+import wasm.ControlInstruction;
+import wasm.Instruction;
+import wasm.InvokeInstruction;
+import wasm.OpCode;
+import wasm.PackedCode;
+import wasm.SimpleInstruction;
+import wasm.UnreachableInstruction;
+import wasm.VariableInstruction;
+
+/*
+    HotSpot does not compile a method with more than 8000 bytes of bytecode (HugeMethodLimit)
+        and a method cannot have more than 64K
+    while the estimated size of a function is over the limit the largest block (or loop) that fits
+        is moved to a private static helper method that is called in its place
+    a block can be moved if the operand stack is empty at its start, it has no result
+        and no branch out of it carries a value
+    the locals used in the block are the parameters of the helper
+    values are passed back only in the return value of the helper so no state is kept in fields:
+        if the block sets no local the helper returns 0 if the end of the block is reached
+            else a code for the outer block branched to (or return) which the caller branches to using br_table
+        if the block sets one local and is only left at its end the helper returns its value
+            which the caller stores in the local
+        otherwise (or if the block returns a value) the block is not moved
+*/
+public class Outliner {
+
+    // 0 is no limit so functions are not split unless asked for ; HotSpot limit is 8000
+    public static final int DEFAULT_MAX_METHOD_SIZE = 0;
+
+    // jvm limit is 255 slots
+    private static final int MAX_PARM_SLOTS = 200;
+    private static final int RETURN_EXIT = -1;
+    // number in KindName of a helper method as it is not a wasm function
+    private static final int HELPER_NUMBER = -1;
+
+    private final WasmModule module;
+    private final JavaName javaName;
+    private final int maxSize;
+    private final Set<String> methodNames;
+
+    public Outliner(WasmModule module, JavaName javaname, int maxsize) {
+        this.module = module;
+        this.javaName = javaname;
+        this.maxSize = maxsize;
+        this.methodNames = new HashSet<>();
+    }
+
+    // names are only needed if a function is too large
+    private void addNames() {
+        if (!methodNames.isEmpty()) {
+            return;
+        }
+        for (WasmFunction fn : module.getFunctions()) {
+            if (!fn.isImported()) {
+                methodNames.add(javaName.simpleName(fn));
+            }
+        }
+    }
+
+    // rough size in bytes of the jvm code of op after macro expansion
+    private static int size(PackedCode.Cursor inst) {
+        if (inst.isUnreachableOp()) {
+            return 0;
+        }
+        OpCode opcode = inst.getOpCode();
+        switch (inst.getOpType()) {
+            case CONTROL:
+            case COMPARE_IF:
+                switch (opcode) {
+                    case BLOCK:
+                    case LOOP:
+                    case END:
+                        return 0;
+                    case RETURN:
+                        return 2;
+                    default:
+                        return 4;
+                }
+            case BRANCH:
+            case COMPARE_BRIF:
+                BranchTarget target = inst.getTarget();
+                return target.needUnwind()? 4 + 2 * target.getUnwind().numParms(): 4;
+            case BRANCH_TABLE:
+                return 16 + 4 * inst.getTargetCount();
+            case VARIABLE:
+                return opcode == OpCode.LOCAL_GET || opcode == OpCode.LOCAL_SET? 2: 3;
+            case INVOKE:
+                return opcode == OpCode.CALL? 3: 12;
+            case MEMLOAD:
+            case MEMSTORE:
+                return 10;
+            case MEMFN:
+            case COMPARE:
+                return 8;
+            case CONST:
+                return 3;
+            default:
+                return 2;
+        }
+    }
+
+    public static int estimate(PackedCode code) {
+        int size = 0;
+        PackedCode.Cursor inst = code.cursor();
+        while (inst.next()) {
+            size += size(inst);
+        }
+        return size;
+    }
+
+    public static boolean isHelper(LocalFunction fn) {
+        return fn.getKindName().getNumber() == HELPER_NUMBER;
+    }
+
+    // returns fn (with blocks replaced by calls) followed by its helpers
+    public List<LocalFunction> outline(LocalFunction fn) {
+        PackedCode code = fn.getCode();
+        int original = estimate(code);
+        if (maxSize <= 0 || original <= maxSize) {
+            return List.of(fn);
+        }
+        addNames();
+        String fnname = javaName.simpleName(fn);
+        List<LocalFunction> helpers = new ArrayList<>();
+        int size = original;
+        while (size > maxSize) {
+            PackedCode next = null;
+            for (Region region : regions(fn, code)) {
+                Helper helper = new Helper(unique(methodNames, fnname + "$" + (helpers.size() + 1)), fn, region);
+                if (!helper.canPassBack(code)) {
+                    continue;
+                }
+                helper.build(code);
+                if (estimate(helper.code) > maxSize) {
+                    continue;
+                }
+                PackedCode caller = helper.caller(code);
+                int callersize = estimate(caller);
+                if (callersize >= size) {
+                    continue;
+                }
+                methodNames.add(helper.name);
+                helpers.add(helper.function);
+                next = caller;
+                size = callersize;
+                break;
+            }
+            if (next == null) {
+                break;
+            }
+            code = next;
+        }
+        if (size > maxSize) {
+            String msg = String.format("function %s estimated size %d is still more than %d after moving %d blocks",
+                    fn.getName(), size, maxSize, helpers.size());
+            Logger.getGlobal().warning(msg);
+        }
+        if (helpers.isEmpty()) {
+            return List.of(fn);
+        }
+        String msg = String.format("function %s estimated size %d reduced to %d by moving %d blocks to helper methods",
+                fn.getName(), original, size, helpers.size());
+        Logger.getGlobal().info(msg);
+        List<LocalFunction> result = new ArrayList<>(helpers.size() + 1);
+        result.add(fn.withCode(code));
+        result.addAll(helpers);
+        return result;
+    }
+
+    private static String unique(Set<String> names, String name) {
+        String result = name;
+        while (names.contains(result)) {
+            result += "$";
+        }
+        return result;
+    }
+
+    private static class Block {
+
+        private final OpCode opcode;
+        private final ValueType vt;
+        private final int floor;
+        private final int previous;
+        private final int start;
+        private final int position;
+        // used by regions
+        private final BitSet used;
+        private final BitSet set;
+        private int valueTarget;
+        private boolean inElse;
+        private boolean branched;
+        private boolean fallThrough;
+
+        // position is the number of enclosing blocks
+        private Block(OpCode opcode, ValueType vt, int floor, int previous, int start, int position) {
+            this.opcode = opcode;
+            this.vt = vt;
+            this.floor = floor;
+            this.previous = previous;
+            this.start = start;
+            this.position = position;
+            this.used = new BitSet();
+            this.set = new BitSet();
+            this.valueTarget = Integer.MAX_VALUE;
+        }
+
+    }
+
+    // as TypeStack but using the FnTypes of the code; returns block ended by END else null
+    private static Block apply(ValueTypeStack vts, List<Block> blocks, OpCode opcode, FnType fntype,
+            ValueType blocktype, int start) {
+        vts.adjustStack(fntype);
+        switch (opcode) {
+            case BLOCK:
+            case LOOP:
+            case IF:
+                int floor = vts.size();
+                blocks.add(new Block(opcode, blocktype, floor, vts.setFloor(), start, blocks.size()));
+                return null;
+            case END:
+                Block block = blocks.remove(blocks.size() - 1);
+                vts.resetFloor(block.previous);
+                return block;
+            default:
+                return null;
+        }
+    }
+
+    private static Block functionBlock(ValueTypeStack vts, ValueType rtype) {
+        return new Block(OpCode.BLOCK, rtype, 0, vts.setFloor(), -1, 0);
+    }
+
+    private static class Region {
+
+        private final int start;
+        private final int end;
+        private final int size;
+        private final BitSet used;
+        private final BitSet set;
+        private final boolean endReachable;
+
+        private Region(Block block, int end, int size, boolean endreachable) {
+            this.start = block.start;
+            this.end = end;
+            this.size = size;
+            this.used = block.used;
+            this.set = block.set;
+            this.endReachable = endreachable;
+        }
+
+    }
+
+    // blocks that can be moved, largest first
+    private List<Region> regions(LocalFunction fn, PackedCode code) {
+        Local[] locals = fn.getLocals();
+        List<Region> result = new ArrayList<>();
+        int[] before = new int[code.size() + 1];
+        ValueTypeStack vts = new ValueTypeStack();
+        List<Block> blocks = new ArrayList<>();
+        blocks.add(functionBlock(vts, fn.getFnType().getRtype()));
+        boolean unreachable = false;
+        PackedCode.Cursor inst = code.cursor();
+        while (inst.next()) {
+            int pos = inst.position();
+            before[pos + 1] = before[pos] + size(inst);
+            if (inst.isUnreachableOp()) {
+                continue;
+            }
+            assert !inst.getOpType().isCompound();
+            OpCode opcode = inst.getOpCode();
+            Block current = blocks.get(blocks.size() - 1);
+            switch (inst.getOpType()) {
+                case BRANCH:
+                    branch(blocks, inst.getTarget());
+                    break;
+                case BRANCH_TABLE:
+                    for (int i = 0; i < inst.getTargetCount(); ++i) {
+                        branch(blocks, inst.getTarget(i));
+                    }
+                    break;
+                case VARIABLE:
+                    if (inst.getObject() instanceof Local) {
+                        int num = ((Local)inst.getObject()).getNumber();
+                        current.used.set(num);
+                        if (opcode != OpCode.LOCAL_GET) {
+                            current.set.set(num);
+                        }
+                    }
+                    break;
+                default:
+                    break;
+            }
+            // as TypeStack.updateFallThroughToEnd
+            if (opcode == OpCode.ELSE) {
+                current.branched |= current.fallThrough || !unreachable;
+                current.fallThrough = false;
+                current.inElse = true;
+            } else if (opcode == OpCode.END) {
+                current.fallThrough |= !unreachable;
+                if (current.opcode == OpCode.IF && !current.inElse) {
+                    current.branched = true;
+                }
+            }
+            ValueType blocktype = inst.isControl()? inst.getBlockType(): V00;
+            Block closed = apply(vts, blocks, opcode, inst.getFnType(), blocktype, pos);
+            if (closed != null) {
+                boolean endreachable = closed.branched || closed.fallThrough;
+                unreachable = !endreachable;
+                if (blocks.isEmpty()) {
+                    continue;
+                }
+                Block parent = blocks.get(blocks.size() - 1);
+                parent.used.or(closed.used);
+                parent.set.or(closed.set);
+                parent.valueTarget = Math.min(parent.valueTarget, closed.valueTarget);
+                int size = before[pos + 1] - before[closed.start];
+                if (closed.opcode != OpCode.IF && closed.vt == V00 && closed.floor == 0
+                        && closed.valueTarget >= closed.position
+                        && size <= maxSize && slots(locals, closed.used) <= MAX_PARM_SLOTS) {
+                    result.add(new Region(closed, pos, size, endreachable));
+                }
+            } else {
+                unreachable = opcode == OpCode.ELSE? false: opcode.isTransfer();
+            }
+        }
+        result.sort(Comparator.comparingInt((Region r) -> r.size).reversed());
+        return result;
+    }
+
+    private static void branch(List<Block> blocks, BranchTarget target) {
+        Block current = blocks.get(blocks.size() - 1);
+        int position = current.position - target.getBr2level();
+        Block block = blocks.get(position);
+        if (block.opcode != OpCode.LOOP) {
+            block.branched = true;
+        }
+        if (target.getUnwind().getRtype() != V00) {
+            current.valueTarget = Math.min(current.valueTarget, position);
+        }
+    }
+
+    private static int slots(Local[] locals, BitSet used) {
+        int slots = 0;
+        for (int num = used.nextSetBit(0); num >= 0; num = used.nextSetBit(num + 1)) {
+            slots += locals[num].getType().getStackSize();
+        }
+        return slots;
+    }
+
+    private static FnType none() {
+        return new FnType(V00);
+    }
+
+    private static ControlInstruction block() {
+        return new ControlInstruction(OpCode.BLOCK, FnType.consume(V00), V00);
+    }
+
+    private static ControlInstruction end(FnType fntype, ValueType blocktype) {
+        return new ControlInstruction(OpCode.END, fntype, blocktype);
+    }
+
+    private static VariableInstruction variable(OpCode opcode, Local local) {
+        ValueType vt = local.getType();
+        FnType fntype = opcode == OpCode.LOCAL_GET? FnType.produce(vt): FnType.consume(vt);
+        return new VariableInstruction(opcode, fntype, local.getNumber(), local);
+    }
+
+    private class Helper {
+
+        private final String name;
+        private final LocalFunction fn;
+        private final Region region;
+        private final List<Local> args;
+        private final List<Local> parms;
+        private final Local[] parmOf;
+        private final List<Local> setLocals;
+        // I32 exit code if no local is set else value of the local set
+        private final ValueType rtype;
+        // exit of code is exits.get(code - 1)
+        private final List<Integer> exits;
+        private final PackedCode.Builder builder;
+        private final ValueTypeStack vts;
+        private final List<Block> blocks;
+        private final FnType fntype;
+
+        private Local index;
+        private PackedCode code;
+        private LocalFunction function;
+
+        private Helper(String name, LocalFunction fn, Region region) {
+            this.name = name;
+            this.fn = fn;
+            this.region = region;
+            Local[] locals = fn.getLocals();
+            this.args = new ArrayList<>();
+            this.parms = new ArrayList<>();
+            this.parmOf = new Local[locals.length];
+            this.setLocals = new ArrayList<>();
+            BitSet used = region.used;
+            for (int num = used.nextSetBit(0); num >= 0; num = used.nextSetBit(num + 1)) {
+                Local local = locals[num];
+                Local parm = Local.getInstance(local.getType(), parms.size(), true, local.getName());
+                args.add(local);
+                parms.add(parm);
+                parmOf[num] = parm;
+                if (region.set.get(num)) {
+                    setLocals.add(parm);
+                }
+            }
+            ValueType[] parmtypes = new ValueType[parms.size()];
+            for (int i = 0; i < parmtypes.length; ++i) {
+                parmtypes[i] = parms.get(i).getType();
+            }
+            this.rtype = setLocals.isEmpty()? I32: setLocals.get(0).getType();
+            this.fntype = new FnType(rtype, parmtypes);
+            this.exits = new ArrayList<>();
+            this.builder = new PackedCode.Builder(region.end - region.start + 16);
+            this.vts = new ValueTypeStack();
+            this.blocks = new ArrayList<>();
+        }
+
+        // false if more than one value would have to be passed back
+        private boolean canPassBack(PackedCode fncode) {
+            if (setLocals.size() > 1) {
+                return false;
+            }
+            boolean leaves = false;
+            int depth = 0;
+            PackedCode.Cursor inst = fncode.cursor();
+            for (int pos = region.start; pos <= region.end; ++pos) {
+                inst.position(pos);
+                if (inst.isUnreachableOp()) {
+                    continue;
+                }
+                OpCode opcode = inst.getOpCode();
+                switch (inst.getOpType()) {
+                    case BRANCH:
+                        leaves |= inst.getTarget().getBr2level() >= depth;
+                        break;
+                    case BRANCH_TABLE:
+                        leaves |= hasExit(inst, depth);
+                        break;
+                    case CONTROL:
+                        if (opcode == OpCode.RETURN) {
+                            if (fn.getFnType().getRtype() != V00) {
+                                return false;
+                            }
+                            leaves = true;
+                        }
+                        break;
+                    default:
+                        break;
+                }
+                if (opcode == OpCode.BLOCK || opcode == OpCode.LOOP || opcode == OpCode.IF) {
+                    ++depth;
+                } else if (opcode == OpCode.END) {
+                    --depth;
+                }
+            }
+            return setLocals.isEmpty() || !leaves;
+        }
+
+        private LocalFunction function() {
+            List<Local> locals = new ArrayList<>(parms);
+            if (index != null) {
+                locals.add(index);
+            }
+            KindName kn = new KindName(KindType.Function, module.getName(), name, Status.PRIVATE, HELPER_NUMBER);
+            return LocalFunction.getInstance(kn, fntype, locals.toArray(new Local[0]), code);
+        }
+
+        private Block current() {
+            return blocks.get(blocks.size() - 1);
+        }
+
+        // number of blocks in function block
+        private int depth() {
+            return blocks.size() - 1;
+        }
+
+        // as TypeStack.getUnwind()
+        private FnType unwind() {
+            Block block = current();
+            return vts.getUnwind(block.vt, block.floor, true);
+        }
+
+        private void add(Instruction inst) {
+            builder.add(inst);
+            if (inst instanceof UnreachableInstruction) {
+                return;
+            }
+            OpCode opcode = inst.getOpCode();
+            boolean start = opcode == OpCode.BLOCK || opcode == OpCode.LOOP || opcode == OpCode.IF;
+            ValueType blocktype = start? inst.getBlockType(): V00;
+            apply(vts, blocks, opcode, inst.getFnType(), blocktype, -1);
+        }
+
+        private int exitCode(int exit) {
+            int code = exits.indexOf(exit);
+            if (code < 0) {
+                exits.add(exit);
+                code = exits.size() - 1;
+            }
+            return code + 1;
+        }
+
+        // branch to end of function with code
+        private void exit(int code) {
+            assert setLocals.isEmpty();
+            add(new ConstantInstruction(OpCode.I32_CONST, FnType.produce(I32), code));
+            BranchTarget target = new BranchTarget(depth(), vts.getUnwind(I32, 0, true));
+            add(new BranchInstruction(OpCode.BR, unwind(), target));
+        }
+
+        private void build(PackedCode fncode) {
+            blocks.add(functionBlock(vts, rtype));
+            PackedCode.Cursor inst = fncode.cursor();
+            for (int pos = region.start; pos <= region.end; ++pos) {
+                inst.position(pos);
+                if (inst.isUnreachableOp()) {
+                    add(inst.instruction());
+                    continue;
+                }
+                OpCode opcode = inst.getOpCode();
+                int depth = depth();
+                switch (inst.getOpType()) {
+                    case BRANCH:
+                        int level = inst.getTarget().getBr2level();
+                        if (level < depth) {
+                            break;
+                        }
+                        int code = exitCode(level - depth);
+                        if (opcode == OpCode.BR) {
+                            exit(code);
+                        } else {
+                            add(new ControlInstruction(OpCode.IF, FnType.consume(ValueType.B32), V00));
+                            exit(code);
+                            add(end(unwind(), V00));
+                        }
+                        continue;
+                    case BRANCH_TABLE:
+                        if (hasExit(inst, depth)) {
+                            brtable(inst, depth);
+                            continue;
+                        }
+                        break;
+                    case CONTROL:
+                        if (opcode == OpCode.RETURN) {
+                            assert fn.getFnType().getRtype() == V00;
+                            exit(exitCode(RETURN_EXIT));
+                            continue;
+                        }
+                        break;
+                    case VARIABLE:
+                        Object obj = inst.getObject();
+                        if (obj instanceof Local) {
+                            Local parm = parmOf[((Local)obj).getNumber()];
+                            add(new VariableInstruction(opcode, inst.getFnType(), parm.getNumber(), parm));
+                            continue;
+                        }
+                        break;
+                    default:
+                        break;
+                }
+                add(inst.instruction());
+            }
+            if (region.endReachable) {
+                if (setLocals.isEmpty()) {
+                    add(new ConstantInstruction(OpCode.I32_CONST, FnType.produce(I32), 0));
+                } else {
+                    add(variable(OpCode.LOCAL_GET, setLocals.get(0)));
+                }
+                add(end(FnType.unary(rtype), rtype));
+            } else {
+                add(end(unwind(), rtype));
+            }
+            assert blocks.isEmpty();
+            code = builder.build();
+            function = function();
+        }
+
+        private boolean hasExit(PackedCode.Cursor inst, int depth) {
+            for (int i = 0; i < inst.getTargetCount(); ++i) {
+                if (inst.getTarget(i).getBr2level() >= depth) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // each outer block branched to is a block around br_table whose end is followed by its exit
+        private void brtable(PackedCode.Cursor inst, int depth) {
+            List<Integer> outer = new ArrayList<>();
+            for (int i = 0; i < inst.getTargetCount(); ++i) {
+                int level = inst.getTarget(i).getBr2level();
+                if (level >= depth && !outer.contains(level - depth)) {
+                    outer.add(level - depth);
+                }
+            }
+            if (index == null) {
+                index = Local.getInstance(I32, parms.size(), false, uniqueLocalName());
+            }
+            add(variable(OpCode.LOCAL_SET, index));
+            for (int i = 0; i < outer.size(); ++i) {
+                add(block());
+            }
+            add(variable(OpCode.LOCAL_GET, index));
+            int stubs = outer.size();
+            BranchTarget[] targets = new BranchTarget[inst.getTargetCount()];
+            for (int i = 0; i < targets.length; ++i) {
+                BranchTarget target = inst.getTarget(i);
+                int level = target.getBr2level();
+                if (level < depth) {
+                    targets[i] = new BranchTarget(level + stubs, target.getUnwind());
+                } else {
+                    targets[i] = new BranchTarget(outer.indexOf(level - depth), none());
+                }
+            }
+            add(new BrTableInstruction(OpCode.BR_TABLE, unwind(), targets));
+            for (int exit : outer) {
+                add(end(unwind(), V00));
+                exit(exitCode(exit));
+            }
+        }
+
+        private String uniqueLocalName() {
+            Set<String> names = new HashSet<>();
+            for (Local parm : parms) {
+                names.add(parm.getName());
+            }
+            return unique(names, "$index");
+        }
+
+        private PackedCode caller(PackedCode fncode) {
+            PackedCode.Builder caller = new PackedCode.Builder(fncode.size());
+            PackedCode.Cursor inst = fncode.cursor();
+            while (inst.next() && inst.position() < region.start) {
+                caller.add(inst);
+            }
+            boolean ret = exits.contains(RETURN_EXIT);
+            if (!exits.isEmpty()) {
+                caller.add(block());
+                if (ret) {
+                    caller.add(block());
+                }
+            }
+            for (Local arg : args) {
+                caller.add(variable(OpCode.LOCAL_GET, arg));
+            }
+            caller.add(new InvokeInstruction(OpCode.CALL, fntype, -1, function));
+            if (setLocals.isEmpty()) {
+                dispatch(caller, ret);
+            } else {
+                caller.add(variable(OpCode.LOCAL_SET, args.get(setLocals.get(0).getNumber())));
+            }
+            if (!region.endReachable) {
+                caller.add(new ControlInstruction(OpCode.UNREACHABLE, none(), V00));
+            }
+            inst.position(region.end);
+            while (inst.next()) {
+                caller.add(inst);
+            }
+            return caller.build();
+        }
+
+        // blocks for br_table are before the call as a block cannot use values on the stack at its start
+        private void dispatch(PackedCode.Builder caller, boolean ret) {
+            if (exits.isEmpty()) {
+                caller.add(new SimpleInstruction(OpCode.DROP, FnType.consume(I32)));
+                return;
+            }
+            int base = ret? 2: 1;
+            BranchTarget[] targets = new BranchTarget[exits.size() + 2];
+            targets[0] = new BranchTarget(base - 1, none());
+            for (int i = 0; i < exits.size(); ++i) {
+                int exit = exits.get(i);
+                int level = exit == RETURN_EXIT? 0: exit + base;
+                targets[i + 1] = new BranchTarget(level, none());
+            }
+            targets[targets.length - 1] = targets[0];
+            caller.add(new BrTableInstruction(OpCode.BR_TABLE, FnType.consume(I32), targets));
+            if (ret) {
+                caller.add(end(none(), V00));
+                caller.add(new ControlInstruction(OpCode.RETURN, none(), V00));
+            }
+            caller.add(end(none(), V00));
+        }
+
+    }
+
+}
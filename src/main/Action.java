@@ -6,19 +6,32 @@ import java.util.stream.Stream;
 public enum Action {
 
     _2JYNX("wasm"),
-    _TESTPARSE("wast"),
+    _TESTPARSE("wast","(wast-file | directory) ..."),
     _PARSE("wasm"),
+    _BATCH(null,"(directory | glob | list-file) of wasm-files"),
+    _SERVER(null,"socket-file"),
     ;
     
     private final String extension;
+    private final String operand;
 
     private Action(String extension) {
+        this(extension, extension + "-file");
+    }
+
+    private Action(String extension, String operand) {
         this.extension = extension;
+        this.operand = operand;
     }
 
+    // null if not a single file
     public String extension() {
         return extension;
     }
+
+    public String operand() {
+        return operand;
+    }
     
     
     public static Optional<Action> getInstance(String str) {
@@ -1,7 +1,6 @@
 package main;
 
 import java.nio.ByteBuffer;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.logging.Level;
@@ -9,6 +8,7 @@ import java.util.logging.Logger;
 
 import jynx.JynxModule;
 import parse.WasmModule;
+import util.BufferLoader;
 
 public class Main {
 
@@ -27,7 +27,7 @@ public class Main {
         String name = path.getFileName().toString();
         name = name.substring(0, name.length() - 5);
 
-        ByteBuffer stream = ByteBuffer.wrap(Files.readAllBytes(path));
+        ByteBuffer stream = BufferLoader.load(path);
         Logger.getGlobal().setLevel(Level.WARNING);
         WasmModule module = WasmModule.getModule(name,stream);
 
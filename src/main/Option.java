@@ -10,12 +10,22 @@ import static main.Action.*;
 
 public enum Option {
     
-    LEVEL("changes log-level", _2JYNX, _TESTPARSE, _PARSE),
-    CLASS_NAME_AS_IS(false,"stops changing first character of class name to upper case", _2JYNX),
-    COMMENT(false,"add wasm ops as comments to Jynx output",_2JYNX),
+    LEVEL("changes log-level", _2JYNX, _TESTPARSE, _PARSE, _BATCH, _SERVER),
+    CLASS_NAME_AS_IS(false,"stops changing first character of class name to upper case", _2JYNX, _BATCH),
+    COMMENT(false,"add wasm ops as comments to Jynx output",_2JYNX, _BATCH),
     NAME("class_name ; default name is module-name else filename without the .wasm extension", _2JYNX),
-    PACKAGE("package name ; default is 'wasirun'", _2JYNX),
-    START("set start method if wasm start not set. default is '_start' if it exists", _2JYNX),
+    PACKAGE("package name ; default is 'wasirun'", _2JYNX, _BATCH),
+    START("set start method if wasm start not set. default is '_start' if it exists", _2JYNX, _BATCH),
+    THREADS("number of threads used to decode and print function bodies ; default is 1", _2JYNX, _PARSE),
+    LAZY(false,"decode function bodies only when first used", _2JYNX, _BATCH),
+    CACHE("directory for parsed modules ; a module already there is not parsed again", _2JYNX),
+    INCREMENTAL("directory for emitted functions ; only functions that have changed are emitted again", _2JYNX),
+    MAX_METHOD_SIZE("estimated size in bytes above which blocks of a function are moved to helper methods ; 0 is no limit ; default is 0 ; 8000 is HotSpot limit", _2JYNX, _BATCH),
+    ZERO_RUN("minimum length of zero run not written to new memory ; adjacent data segments are merged ; 0 leaves data segments as they are ; default is 0", _2JYNX, _BATCH),
+    OUTPUT("file for Jynx output (gzipped if name ends with .gz) ; default is standard output", _2JYNX),
+    WORKERS("number of files converted (tests run) at the same time ; default is number of processors", _BATCH, _TESTPARSE),
+    OUTPUT_DIR("directory for .jx files ; default is next to each wasm-file", _BATCH),
+    SECTIONS("comma separated sections to parse (plus those they need) e.g. type,import,export ; others are skipped", _PARSE),
     ;
 
     private final boolean hasString;
@@ -40,9 +50,13 @@ public enum Option {
 
     
     public static Map<Option,String> getOptions(Action action, String[] args) {
+        return getOptions(action, args, args.length - 1);
+    }
+    
+    // options are args[1] to args[last - 1]
+    public static Map<Option,String> getOptions(Action action, String[] args, int last) {
         Map<Option,String> result = new HashMap<>();
         int first = 1;
-        int last = args.length - 1;
         for (int i = first; i < last; ++i) {
             String argi = args[i];
             Optional<Option> opt =  getInstance(argi);
@@ -58,17 +72,27 @@ public enum Option {
             String value = "";
             if (option.hasString) {
                 ++i;
-                value = args[i];
-                if (i == last) {
+                if (i >= last) {
                     String msg = String.format("no value for option %s",argi);
                     throw new IllegalArgumentException(msg);
                 }
+                value = args[i];
             }
             result.put(option, value);
         }
         return result;
     }
     
+    // options start with "--" ; returns index of first file
+    public static int firstFile(String[] args) {
+        int i = 1;
+        while (i < args.length - 1 && args[i].startsWith("--")) {
+            Optional<Option> opt =  getInstance(args[i]);
+            i += opt.isPresent() && opt.get().hasString? 2: 1;
+        }
+        return i;
+    }
+    
     public static void print(Action action) {
         Stream.of(values())
                 .filter(opt->opt.actions.contains(action))
@@ -1,6 +1,7 @@
 module com.github.david32768.jynxwasm32 {
 	requires java.logging;
 	exports com.github.david32768.jynxwasm32;
+	exports com.github.david32768.jynxwasm32.reader;
 }
 // javac -d build\classes module-info.java
 // jar --create --file JynxWasm32.jar --main-class com.github.david32768.jynxwasm32.Main --module-version 0.1 -C build\classes\ .
@@ -11,10 +12,12 @@ module com.github.david32768.jynxwasm32 {
 .module com.github.david32768.jynxwasm32 0.1
 .main com/github/david32768/jynxwasm32/Main
 .exports com/github/david32768/jynxwasm32
+.exports com/github/david32768/jynxwasm32/reader
 .requires mandated java.base 11
 .requires java.logging 11
 .packages .array
   com/github/david32768/jynxwasm32
+  com/github/david32768/jynxwasm32/reader
   jynxwasm32
   main
   parse
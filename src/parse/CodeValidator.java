@@ -0,0 +1,407 @@
+package parse;
+
+import java.util.Arrays;
+
+import static parse.ValueType.B32;
+import static parse.ValueType.I32;
+import static parse.ValueType.V00;
+
+import wasm.OpCode;
+import wasm.OpType;
+
+/*
+    type checks a function body straight from the code bytes with no object per op
+    the rules are those of InstructionChecker, TypeStack and the Instruction factories
+    false is returned for anything else (an invalid op, unreachable ops to be dropped, an alignment to log)
+    and the body is then checked by those classes which report the error or log the dropped ops
+*/
+final class CodeValidator {
+
+    private final WasmModule module;
+    private final ValueType vtfnr;
+    private final Local[] locals;
+    private final Section code;
+
+    private ValueType[] vals = new ValueType[16];
+    private int sp;
+    private int floor;
+
+    // block stack; ELSE replaces its IF
+    private OpCode[] blockops = new OpCode[8];
+    private int[] stackptrs = new int[8];
+    private ValueType[] blockvts = new ValueType[8];
+    private boolean[] branchToEnd = new boolean[8];
+    private boolean[] fallThroughToEnd = new boolean[8];
+    private int depth;
+    private boolean endReachable; // of block ended by last END
+
+    private CodeValidator(WasmModule module, FnType fntype, Local[] locals, Section code) {
+        this.module = module;
+        this.vtfnr = fntype.getRtype();
+        this.locals = locals;
+        this.code = code;
+    }
+
+    // returns true if valid; section is then at end of body
+    static boolean validate(WasmModule module, FnType fntype, Local[] locals, Section code) {
+        CodeValidator validator = new CodeValidator(module, fntype, locals, code);
+        try {
+            return validator.validate();
+        } catch (RuntimeException ex) {
+            return false; // re-checked by InstructionChecker which reports it
+        }
+    }
+
+    private boolean validate() {
+        pushBlock(OpCode.BLOCK, vtfnr);
+        boolean unreachable = false;
+        OpCode lastop = null;
+        while (code.hasRemaining()) {
+            if (depth == 0) {
+                return false;
+            }
+            OpCode opcode = code.getOpCode();
+            switch (opcode) {
+                case END:
+                case ELSE:
+                    if (!unreachable) {
+                        fallThroughToEnd[depth - 1] = true;
+                    }
+                    break;
+                default:
+                    if (unreachable) {
+                        return false; // dropped
+                    }
+                    break;
+            }
+            OpType optype = opcode.getOpType();
+            if (!check(opcode, optype)) {
+                return false;
+            }
+            unreachable = opcode.isTransfer() || opcode == OpCode.END && !endReachable;
+            lastop = opcode;
+        }
+        return lastop == OpCode.END;
+    }
+
+    private boolean check(OpCode opcode, OpType optype) {
+        ValueType vt;
+        switch (optype) {
+            case BINARY:
+                vt = opcode.getPrefix();
+                return vt != null && pop(vt) && pop(vt) && push(vt);
+            case UNARY:
+                vt = opcode.getPrefix();
+                return vt != null && pop(vt) && push(vt);
+            case TRANSFORM:
+                vt = opcode.getPrefix();
+                ValueType vtlast = opcode.getSuffix();
+                return vt != null && vtlast != null && pop(vtlast) && push(vt);
+            case COMPARE:
+                vt = opcode.getSignedPrefix();
+                if (vt == null) {
+                    return false;
+                }
+                if (opcode == OpCode.I32_EQZ || opcode == OpCode.I64_EQZ) {
+                    return pop(vt) && push(B32);
+                }
+                return pop(vt) && pop(vt) && push(B32);
+            case PARAMETRIC:
+                return parametric(opcode);
+            case VARIABLE:
+                return variable(opcode);
+            case INVOKE:
+                return invoke(opcode);
+            case CONST:
+                vt = opcode.getPrefix();
+                if (vt == null) {
+                    return false;
+                }
+                code.skipImm(vt);
+                return push(vt);
+            case MEMFN:
+                return memfn(opcode);
+            case MEMLOAD:
+            case MEMSTORE:
+                return memory(opcode, optype);
+            case CONTROL:
+                return control(opcode);
+            case BRANCH:
+                return branch(opcode);
+            case BRANCH_TABLE:
+                return brtable();
+            default:
+                return false;
+        }
+    }
+
+    private boolean parametric(OpCode opcode) {
+        switch (opcode) {
+            case DROP:
+                return sp > floor && pop(vals[sp - 1]);
+            case SELECT:
+                if (sp <= floor + 1) {
+                    return false;
+                }
+                ValueType vt = vals[sp - 2];
+                return pop(B32) && pop(vt) && pop(vt) && push(vt);
+            case NOP:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private boolean variable(OpCode opcode) {
+        int index;
+        switch (opcode) {
+            case GLOBAL_GET:
+                index = code.globalidx();
+                return push(module.atglobidx(index).getType());
+            case GLOBAL_SET:
+                index = code.globalidx();
+                return pop(module.atglobidx(index).getType());
+            case LOCAL_GET:
+                index = code.localidx();
+                return push(locals[index].getType());
+            case LOCAL_SET:
+                index = code.localidx();
+                return pop(locals[index].getType());
+            case LOCAL_TEE:
+                index = code.localidx();
+                ValueType vt = locals[index].getType();
+                return pop(vt) && push(vt);
+            default:
+                return false;
+        }
+    }
+
+    private boolean invoke(OpCode opcode) {
+        FnType fntype;
+        switch (opcode) {
+            case CALL:
+                fntype = module.atfuncidx(code.funcidx()).getFnType();
+                break;
+            case CALL_INDIRECT:
+                fntype = module.attypeidx(code.typeidx());
+                int tableidx = code.tableidx();
+                if (tableidx != 0) {
+                    return false;
+                }
+                module.attableidx(tableidx);
+                if (!pop(I32)) {
+                    return false;
+                }
+                break;
+            default:
+                return false;
+        }
+        for (int i = fntype.numParms(); i > 0; --i) {
+            if (!pop(fntype.getType(i))) {
+                return false;
+            }
+        }
+        return push(fntype.getRtype());
+    }
+
+    private boolean memfn(OpCode opcode) {
+        int memidx1 = code.getUByte();
+        int memidx2 = opcode == OpCode.MEMORY_COPY? code.getUByte(): 0;
+        if (memidx1 != 0 || memidx2 != 0) {
+            return false;
+        }
+        switch (opcode) {
+            case MEMORY_GROW:
+                return pop(I32) && push(I32);
+            case MEMORY_SIZE:
+                return push(I32);
+            case MEMORY_COPY:
+            case MEMORY_FILL:
+                return pop(I32) && pop(I32) && pop(I32);
+            default:
+                return false;
+        }
+    }
+
+    private boolean memory(OpCode opcode, OpType optype) {
+        int alignment = code.getU32();
+        code.getU32L(); // offset
+        ValueType vt = opcode.getPrefix();
+        ValueType memtype = opcode.getMemType();
+        if (vt == null || memtype == null || alignment > memtype.alignment() || alignment < 0) {
+            return false;
+        }
+        if (optype == OpType.MEMLOAD) {
+            return pop(I32) && push(vt);
+        }
+        return pop(vt) && pop(I32);
+    }
+
+    private boolean control(OpCode opcode) {
+        int top = depth - 1;
+        ValueType vt;
+        switch (opcode) {
+            case RETURN:
+                if (vtfnr != V00 && (sp == floor || !vals[sp - 1].isCompatible(vtfnr))) {
+                    return false;
+                }
+                return unwind();
+            case UNREACHABLE:
+                return unwind();
+            case BLOCK:
+            case LOOP:
+                pushBlock(opcode, code.getBlockType());
+                return true;
+            case IF:
+                vt = code.getBlockType();
+                if (!pop(B32)) {
+                    return false;
+                }
+                pushBlock(opcode, vt);
+                return true;
+            case ELSE:
+                if (blockops[top] != OpCode.IF || !checkStackState(top)) {
+                    return false;
+                }
+                if (blockvts[top] != V00) {
+                    --sp;
+                }
+                blockops[top] = OpCode.ELSE;
+                branchToEnd[top] = branchToEnd[top] || fallThroughToEnd[top];
+                fallThroughToEnd[top] = false;
+                return true;
+            case END:
+                if (blockops[top] == OpCode.IF) {
+                    branchToEnd[top] = true;
+                }
+                if (fallThroughToEnd[top]) {
+                    if (!checkStackState(top)) {
+                        return false;
+                    }
+                } else {
+                    sp = floor;
+                    push(blockvts[top]);
+                }
+                endReachable = branchToEnd[top] || fallThroughToEnd[top];
+                --depth;
+                floor = depth == 0? 0: stackptrs[depth - 1];
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private boolean branch(OpCode opcode) {
+        int br2level = code.labelidx();
+        if (br2level >= depth) {
+            return false;
+        }
+        int target = depth - 1 - br2level;
+        if (blockops[target] != OpCode.LOOP) {
+            branchToEnd[target] = true;
+        }
+        ValueType vtr = blockops[target] == OpCode.LOOP? V00: blockvts[target];
+        switch (opcode) {
+            case BR:
+                if (vtr != V00 && (sp == floor || !vtr.isCompatible(vals[sp - 1]))) {
+                    return false;
+                }
+                return unwind();
+            case BR_IF:
+                if (sp <= stackptrs[target]) {
+                    return false;
+                }
+                return pop(B32) && pop(vtr) && push(vtr);
+            default:
+                return false;
+        }
+    }
+
+    private boolean brtable() {
+        int count = code.vecsz();
+        ValueType first = null;
+        for (int i = 0; i < count + 1; i++) {
+            int br2level = code.labelidx();
+            if (br2level >= depth) {
+                return false;
+            }
+            int target = depth - 1 - br2level;
+            if (blockops[target] != OpCode.LOOP) {
+                branchToEnd[target] = true;
+            }
+            if (sp <= stackptrs[target]) {
+                return false;
+            }
+            ValueType vtr = blockops[target] == OpCode.LOOP? V00: blockvts[target];
+            if (first == null) {
+                first = vtr;
+            } else if (!vtr.isCompatible(first)) {
+                return false;
+            }
+        }
+        if (sp == floor || !vals[sp - 1].isCompatible(I32)) {
+            return false;
+        }
+        if (first != V00 && (sp <= floor + 1 || !first.isCompatible(vals[sp - 2]))) {
+            return false;
+        }
+        return unwind();
+    }
+
+    // stack of current block is unwound and replaced by its result
+    private boolean unwind() {
+        sp = floor;
+        return push(blockvts[depth - 1]);
+    }
+
+    private boolean checkStackState(int block) {
+        ValueType vt = blockvts[block];
+        if (vt == V00) {
+            return sp == floor;
+        }
+        return sp == floor + 1 && vals[sp - 1].isCompatible(vt);
+    }
+
+    // V00 pops nothing
+    private boolean pop(ValueType vt) {
+        if (vt == V00) {
+            return true;
+        }
+        if (sp <= floor || !vals[sp - 1].isCompatible(vt)) {
+            return false;
+        }
+        --sp;
+        return true;
+    }
+
+    // V00 pushes nothing
+    private boolean push(ValueType vt) {
+        if (vt == V00) {
+            return true;
+        }
+        if (sp == vals.length) {
+            vals = Arrays.copyOf(vals, 2 * sp);
+        }
+        vals[sp++] = vt;
+        return true;
+    }
+
+    private void pushBlock(OpCode opcode, ValueType vt) {
+        if (depth == blockops.length) {
+            int size = 2 * depth;
+            blockops = Arrays.copyOf(blockops, size);
+            stackptrs = Arrays.copyOf(stackptrs, size);
+            blockvts = Arrays.copyOf(blockvts, size);
+            branchToEnd = Arrays.copyOf(branchToEnd, size);
+            fallThroughToEnd = Arrays.copyOf(fallThroughToEnd, size);
+        }
+        floor = sp;
+        blockops[depth] = opcode;
+        stackptrs[depth] = sp;
+        blockvts[depth] = vt;
+        branchToEnd[depth] = false;
+        fallThroughToEnd[depth] = false;
+        ++depth;
+    }
+
+}
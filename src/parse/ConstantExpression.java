@@ -3,46 +3,59 @@ package parse;
 import java.util.ArrayList;
 
 import static parse.Reason.M204;
-import wasm.ConstantInstruction;
 
 import wasm.Instruction;
 import wasm.OpCode;
 import wasm.OpType;
+import wasm.PackedCode;
 import wasm.VariableInstruction;
 
 public class ConstantExpression {
 
-    private final Instruction constinst;
+    // the one instruction before END ; packed once so it can be printed from a cursor
+    private final PackedCode code;
 
     public ConstantExpression(Instruction constinst) {
-        this.constinst = constinst;
+        PackedCode.Builder builder = new PackedCode.Builder(1);
+        builder.add(constinst);
+        this.code = builder.build();
     }
     
+    // positioned at the instruction
+    public PackedCode.Cursor cursor() {
+        PackedCode.Cursor cursor = code.cursor();
+        cursor.next();
+        return cursor;
+    }
+
     public boolean usesGlobal() {
-        return constinst.getOpCode() == OpCode.GLOBAL_GET;
+        return cursor().getOpCode() == OpCode.GLOBAL_GET;
     }
     
     public Number evalConstant()  {
+        PackedCode.Cursor constinst = cursor();
         OpCode opcode = constinst.getOpCode();
         if (opcode == OpCode.GLOBAL_GET) {
             assert false;
             return null;
         }
         assert opcode.getOpType() == OpType.CONST;
-        return ((ConstantInstruction)constinst).getConstant();
+        return constinst.getConstant();
     }
         
+    // instruction is recreated on each call
     public Instruction getConstInst() {
-        return constinst;
+        return cursor().instruction();
     }
     
     public String getConstantString()  {
+        PackedCode.Cursor constinst = cursor();
         OpCode opcode = constinst.getOpCode();
         if (opcode == OpCode.GLOBAL_GET) {
             return String.format("(%s)",constinst);
         }
         assert opcode.getOpType() == OpType.CONST;
-        return ((ConstantInstruction)constinst).getConstant().toString();
+        return constinst.getConstant().toString();
     }
         
     public static ConstantExpression parseConstantExpression(WasmModule module, Section section)  {
@@ -0,0 +1,12 @@
+package parse;
+
+import java.nio.ByteBuffer;
+
+public abstract class DataVisitor {
+
+    // chunk is only valid during the call
+    public void visitBytes(ByteBuffer chunk) {}
+
+    public void visitEnd() {}
+
+}
@@ -5,31 +5,35 @@ import java.util.logging.Logger;
 import static parse.Reason.M201;
 
 import util.HexDump;
-import wasm.Instruction;
 
 public class Data_segment {
     
     private final ConstantExpression constexpr;
-    private final byte[] data;
+    private final ByteBuffer data;
 
-    public Data_segment(ConstantExpression constexpr, byte[] data) {
+    public Data_segment(ConstantExpression constexpr, ByteBuffer data) {
         this.constexpr = constexpr;
-        this.data = data;
+        this.data = data.asReadOnlyBuffer();
     }
 
-    public byte[] getData() {
-        return data;
+    // view of the module bytes
+    public ByteBuffer getData() {
+        return data.duplicate();
+    }
+
+    public int size() {
+        return data.remaining();
     }
     
-    public Instruction getOffsetInstruction() {
-        return constexpr.getConstInst();
+    public ConstantExpression getConstExpr() {
+        return constexpr;
     }
     
     public static void parse(WasmModule module, Section section)  {
         ParseMethods.parseSectionVector(section, i->checkCount(module,i), Data_segment::parseDataSegment);
     }
 
-    private static WasmModule checkCount(WasmModule module, Integer count) {
+    static WasmModule checkCount(WasmModule module, Integer count) {
         Integer sec12ct = module.getDataCount();
         if (sec12ct != null && !count.equals(sec12ct)) {
             // "data count and data section have inconsistent lengths"
@@ -54,11 +58,10 @@ public class Data_segment {
         int index = section.memidx();
         ConstantExpression constexpr =  ConstantExpression.parseConstantExpression(module,section);
         Memory memory = module.atmemidx(index);
-        byte[] data = section.byteVector();
-        Data_segment ds = new Data_segment(constexpr, data);
+        Data_segment ds = new Data_segment(constexpr, section.byteSlice());
         Logger.getGlobal().fine(String.format("data segment %d size = %d offset = %s",
-                i,data.length, constexpr.getConstantString()));
-        Logger.getGlobal().finest(()->HexDump.printHex(ByteBuffer.wrap(data), 0));
+                i,ds.size(), constexpr.getConstantString()));
+        Logger.getGlobal().finest(()->HexDump.printHex(ds.getData(), 0));
         memory.add(ds);
     }
 }
@@ -71,6 +71,15 @@ public class FnType {
         return parm[0];
     }
 
+    // change in stack size (in slots) when applied to stack
+    public int stackChange() {
+        int change = parm[0].getStackSize();
+        for (int i = 1; i < parm.length; ++i) {
+            change -= parm[i].getStackSize();
+        }
+        return change;
+    }
+
     public ValueType getType(int index) {
         if (index < parm.length) return parm[index];
         return V00;
@@ -0,0 +1,14 @@
+package parse;
+
+/*
+    ops are decoded but not validated
+*/
+public abstract class FunctionVisitor {
+
+    public void visitLocals(Local[] locals) {}
+
+    public void visitOp(Op op) {}
+
+    public void visitEnd() {}
+
+}
@@ -2,7 +2,6 @@ package parse;
 
 import java.util.logging.Logger;
 
-import wasm.Instruction;
 
 public class Global implements Kind {
     private final ValueType type;
@@ -62,8 +61,8 @@ public class Global implements Kind {
         return kindName.getFieldName();
     }
 
-    public Instruction getConstInst() {
-        return constexpr.getConstInst();
+    public ConstantExpression getConstExpr() {
+        return constexpr;
     }
 
     @Override
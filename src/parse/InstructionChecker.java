@@ -23,21 +23,20 @@ public class InstructionChecker {
 
     public Instruction from(Op op) {
         OpCode opcode = op.getOpCode();
-        Instruction comment = UnreachableInstruction.of(op);
         switch (opcode) {
             case END:
                 ts.updateFallThroughToEnd(!unreachable);
                 if (unreachablelevel > 0) {
                     --unreachablelevel;
                     logUnreachable(fnname, opcode);
-                    return comment;
+                    return UnreachableInstruction.of(op);
                 }
                 break;
             case ELSE:
                 ts.updateFallThroughToEnd(!unreachable);
                 if (unreachablelevel > 0) {
                     logUnreachable(fnname, opcode);
-                    return comment;
+                    return UnreachableInstruction.of(op);
                 }
                 break;
             case BLOCK:
@@ -46,7 +45,7 @@ public class InstructionChecker {
                 if (unreachable) {
                     ++unreachablelevel;
                     logUnreachable(fnname, opcode);
-                    return comment;
+                    return UnreachableInstruction.of(op);
                 }
                 break;
             case UNREACHABLE:
@@ -54,7 +53,7 @@ public class InstructionChecker {
             default:
                 if (unreachable) {
                     logUnreachable(fnname, opcode);
-                    return comment;
+                    return UnreachableInstruction.of(op);
                 }
                 break;
         }
@@ -24,6 +24,10 @@ public class KindName {
         return String.format("__%s__%d",type.name(),number);
     }
     
+    public KindType getType() {
+        return type;
+    }
+
     public String getDefaultName() {
         return defaultName(type, number);
     }
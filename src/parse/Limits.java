@@ -20,11 +20,11 @@ threads).
     
     private final int[] limits;
 
-    private Limits(int initial) {
+    Limits(int initial) {
         this.limits = new int[]{initial};
     }
     
-    private Limits(int initial, int maximum) {
+    Limits(int initial, int maximum) {
         this.limits = new int[]{initial, maximum};
     }
 
@@ -13,12 +13,19 @@ public class Local implements CanHaveDebugName {
     
     private String name;
     
-    private Local(ValueType type, int relnum, boolean parm) {
+    Local(ValueType type, int relnum, boolean parm) {
         this.type = type;
         this.relnum = relnum;
         this.parm = parm;
     }
 
+    // local of a function made from code moved out of another function
+    public static Local getInstance(ValueType type, int relnum, boolean parm, String name) {
+        Local local = new Local(type, relnum, parm);
+        local.name = name;
+        return local;
+    }
+
     public ValueType getType() {
         return type;
     }
@@ -1,28 +1,34 @@
 package parse;
 
-import java.util.ArrayList;
+import java.nio.BufferUnderflowException;
 import java.util.Arrays;
 import java.util.BitSet;
-import java.util.Collections;
-import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.IntStream;
 import static parse.Reason.M100;
+import static parse.Reason.M107;
 
 import static parse.Reason.M200;
 
 import wasm.Instruction;
 import wasm.OpCode;
+import wasm.PackedCode;
 
 public class LocalFunction implements WasmFunction {
 
-    private List<Instruction> insts;
+    private PackedCode packed;
     private final FnType fntype;
 
     private Local[] locals;
     private KindName kindName;
     private boolean found;
     private BitSet initvars;
+    // set for lazy parse until body is decoded
+    private Section code;
+    private WasmModule module;
 
     public LocalFunction(FnType fntype, KindName kindName) {        // PlaceHolder
         this.fntype = fntype;
@@ -30,8 +36,42 @@ public class LocalFunction implements WasmFunction {
         this.found = false;
     }
 
-    public List<Instruction> getInsts() {
-        return insts;
+    // function made from code moved out of another function
+    public static LocalFunction getInstance(KindName kindName, FnType fntype, Local[] locals, PackedCode packed) {
+        LocalFunction fn = new LocalFunction(fntype, kindName);
+        fn.setLocalFunction(kindName.getNumber(), locals, setVarsToInit(locals), packed, fntype);
+        return fn;
+    }
+
+    // same function with different code
+    public LocalFunction withCode(PackedCode packed) {
+        LocalFunction fn = new LocalFunction(fntype, kindName);
+        fn.setLocalFunction(kindName.getNumber(), getLocals(), getVarsToInit(), packed, fntype);
+        return fn;
+    }
+
+    public synchronized PackedCode getCode() {
+        if (code != null) {
+            decode();
+        }
+        if (packed == null) {
+            String msg = String.format("function %s was validated but instructions were not kept", getName());
+            throw new IllegalStateException(msg);
+        }
+        return packed;
+    }
+
+    private void decode() {
+        Logger.getGlobal().fine(String.format("decoding function %s", getName()));
+        TypeStack ts = new TypeStack(fntype, locals, code, module);
+        try {
+            packed = getInsts(ts, getName(), false);
+        } catch (BufferUnderflowException ex) {
+            // "unexpected end of section or function"
+            throw new ParseException(M107, "in function %s", getName());
+        }
+        code = null;
+        module = null;
     }
 
     @Override
@@ -64,11 +104,22 @@ public class LocalFunction implements WasmFunction {
         return (BitSet)initvars.clone();
     }
     
-    private void setLocalFunction(int fnnum, Local[] locals, BitSet initvars,
-            List<Instruction> insts, FnType fntype) {
+    void setLocalFunction(int fnnum, Local[] locals, BitSet initvars,
+            PackedCode packed, FnType fntype) {
+        setLocalFunction(fnnum, locals, initvars, fntype);
+        this.packed = packed;
+    }
+
+    private void setLazyFunction(int fnnum, Local[] locals, BitSet initvars,
+            Section code, WasmModule module, FnType fntype) {
+        setLocalFunction(fnnum, locals, initvars, fntype);
+        this.code = code;
+        this.module = module;
+    }
+
+    private void setLocalFunction(int fnnum, Local[] locals, BitSet initvars, FnType fntype) {
         this.locals = locals;
         this.initvars = initvars;
-        this.insts = Collections.unmodifiableList(insts);
         if (fnnum != kindName.getNumber()) {
             String msg = String.format("set fnnum %d is different from original %d",fnnum,kindName.getNumber());
             throw new IllegalStateException(msg);
@@ -100,28 +151,34 @@ public class LocalFunction implements WasmFunction {
         kindName = kindName.changeNames(kindName.getModuleName(), name);
     }
 
-    private static ArrayList<Instruction> getInsts(TypeStack ts, String fnname) {
+    // returns null if validateonly
+    private static PackedCode getInsts(TypeStack ts, String fnname, boolean validateonly) {
         Section code = ts.getCode();
-        ArrayList<Instruction> insts = new ArrayList<>();
+        PackedCode.Builder insts = validateonly? null: new PackedCode.Builder(code.remaining()/2);
         InstructionChecker checker = new InstructionChecker(ts, fnname);
+        OpCode lastop = null;
         while (code.hasRemaining()) {
             Op op = code.getop();
             try {
                 Instruction inst = checker.from(op);
-                insts.add(inst);
+                lastop = inst.getOpCode();
+                if (insts != null) {
+                    insts.add(inst);
+                }
             } catch (Exception ex) {
                 Logger.getGlobal().info(ex.toString());
-                Logger.getGlobal().info(printInsts(insts, fnname, ts.FnType()));
+                if (insts != null) {
+                    Logger.getGlobal().info(printInsts(insts.build(), fnname, ts.FnType()));
+                }
                 Logger.getGlobal().log(Level.INFO, String.format("failed inst = %s%n",op.getOpCode()), ex);
                 throw ex;
             }
         }
-        OpCode lastop = insts.get(insts.size() - 1).getOpCode();
         if (lastop != OpCode.END) {
             // "END opcode expected"
             throw new ParseException(M200,"lastop = %s",lastop);
         }
-        return insts;
+        return validateonly? null: insts.build();
     }
 
     @Override
@@ -129,12 +186,13 @@ public class LocalFunction implements WasmFunction {
         return fntype.wasmString();
     }
 
-    private static String printInsts(ArrayList<Instruction> insts, String fnname, FnType fnsig) {
+    private static String printInsts(PackedCode insts, String fnname, FnType fnsig) {
         StringBuilder sb = new StringBuilder();
         ValueTypeStack vts = new ValueTypeStack();
         sb.append(String.format("// function %s %s%n",fnname,fnsig));
         int level = 1;
-        for (Instruction inst : insts) {
+        PackedCode.Cursor inst = insts.cursor();
+        while (inst.next()) {
             OpCode op = inst.getOpCode();
             int mylevel = level + op.myLevelChange();
             String spacer = "  ".repeat(mylevel);
@@ -164,7 +222,77 @@ public class LocalFunction implements WasmFunction {
 
      */
     public static void parse(WasmModule module, Section section) {
-        ParseMethods.parseSectionVector(section, i->checkCount(module,i),LocalFunction::parseLocalFunction);
+        int threads = module.getOptions().threads();
+        if (threads > 1) {
+            parseParallel(module, section, threads);
+        } else {
+            ParseMethods.parseSectionVector(section, i->checkCount(module,i),LocalFunction::parseLocalFunction);
+        }
+    }
+    
+    // bodies are located sequentially using body_size and then decoded on a pool
+    // the error reported is the one for the lowest function body number as in sequential parse
+    private static void parseParallel(WasmModule module, Section section, int threads) {
+        int count = section.vecsz();
+        checkCount(module, count);
+        Section[] bodies = new Section[count];
+        RuntimeException scanex = null;
+        int scanned = 0;
+        for (; scanned < count; ++scanned) {
+            if (!section.hasRemaining()) {
+                // "unexpected end of section or function"
+                scanex = new ParseException(M107, "%d %ss present but %d expected", scanned, section.getType(),count);
+                break;
+            }
+            try {
+                bodies[scanned] = Section.getSubSection(section);
+            } catch (BufferUnderflowException ex) {
+                // "unexpected end of section or function"
+                scanex = new ParseException(M107, "in %s number %d of %d", section.getType(), scanned, count);
+                break;
+            } catch (RuntimeException ex) {
+                scanex = ex;
+                break;
+            }
+        }
+        Logger.getGlobal().fine(String.format("%d function bodies located; decoding using %d threads",
+                scanned, threads));
+        Throwable[] errors = new Throwable[scanned];
+        AtomicInteger firstfail = new AtomicInteger(scanned);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            pool.submit(() -> IntStream.range(0, errors.length)
+                    .parallel()
+                    .forEach(i -> {
+                        if (i > firstfail.get()) {
+                            return; // an earlier body has already failed
+                        }
+                        try {
+                            parseBody(module, bodies[i], i);
+                        } catch (BufferUnderflowException ex) {
+                            // "unexpected end of section or function"
+                            errors[i] = new ParseException(M107, "in %s number %d of %d", section.getType(), i, count);
+                            firstfail.accumulateAndGet(i, Math::min);
+                        } catch (RuntimeException | Error ex) {
+                            errors[i] = ex;
+                            firstfail.accumulateAndGet(i, Math::min);
+                        }
+                    }))
+                    .join();
+        } finally {
+            pool.shutdown();
+        }
+        int first = firstfail.get();
+        if (first < scanned) {
+            Throwable ex = errors[first];
+            if (ex instanceof Error) {
+                throw (Error)ex;
+            }
+            throw (RuntimeException)ex;
+        }
+        if (scanex != null) {
+            throw scanex;
+        }
     }
     
 
@@ -193,15 +321,37 @@ public class LocalFunction implements WasmFunction {
 
      */
     public static void parseLocalFunction(WasmModule module, Section section, int i) {
+        Section code = Section.getSubSection(section);
+        parseBody(module, code, i);
+    }
+    
+    private static void parseBody(WasmModule module, Section code, int i) {
         int fnnum = module.getLocalFnIndex(i);
         LocalFunction localfn = (LocalFunction)module.atfuncidx(fnnum);
         Logger.getGlobal().fine(String.format("Function %d %s", fnnum,localfn.getName()));
-        Section code = Section.getSubSection(section);
         FnType fnsig = localfn.getFnType();
         Local[] locals = Local.parse(code, localfn);
         BitSet initvars = setVarsToInit(locals);
+        if (module.getOptions().lazy()) {
+            localfn.setLazyFunction(fnnum, locals, initvars, code, module, fnsig);
+            Logger.getGlobal().fine(String.format("function body %d has %d locals and %d code bytes",
+                    i, locals.length, code.remaining()));
+            return;
+        }
+        if (module.getOptions().validateOnly()) {
+            int start = code.position();
+            if (!CodeValidator.validate(module, fnsig, locals, code)) {
+                // checked again to report the error or log the unreachable ops dropped
+                code.position(start);
+                getInsts(new TypeStack(fnsig, locals , code, module), localfn.getName(), true);
+            }
+            localfn.setLocalFunction(fnnum, locals, initvars, null, fnsig);
+            Logger.getGlobal().fine(String.format("function body %d has %d locals and is valid",
+                    i, locals.length));
+            return;
+        }
         TypeStack ts = new TypeStack(fnsig, locals , code, module);
-        ArrayList<Instruction> insts = getInsts(ts, localfn.getName());
+        PackedCode insts = getInsts(ts, localfn.getName(), false);
         localfn.setLocalFunction(fnnum, locals, initvars, insts, fnsig);
         Logger.getGlobal().fine(String.format("function body %d has %d locals and %d insts",
                 i, locals.length,insts.size()));
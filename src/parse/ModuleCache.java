@@ -0,0 +1,743 @@
+package parse;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import util.BufferLoader;
+import wasm.ConstantInstruction;
+import wasm.Instruction;
+import wasm.OpCode;
+import wasm.PackedCode;
+import wasm.VariableInstruction;
+
+/*
+    validated modules are kept in dir in a compact binary form
+    file name is SHA-256 of tool version, schema, module name and module bytes
+    schema is a hash of the constants of the enums stored by ordinal so a change to any of them is a miss
+    a hit skips decoding and validation; a file that cannot be read is treated as a miss
+
+    custom section table (getSections) is not kept
+*/
+public class ModuleCache {
+
+    private static final int MAGIC = 0x434d574a; // JWMC
+    private static final int FORMAT = 2;
+    private static final String SUFFIX = ".jwmc";
+
+    // tags for objects referred to by packed code
+    private static final int LOCAL = 0;
+    private static final int GLOBAL = 1;
+    private static final int FUNCTION = 2;
+    private static final int TABLE = 3;
+    private static final int FLOAT = 4;
+    private static final int DOUBLE = 5;
+    private static final int OP = 6;
+
+    private static final OpCode[] OPCODES = OpCode.values();
+    private static final ValueType[] VALUETYPES = ValueType.values();
+    private static final KindType[] KINDTYPES = KindType.values();
+    private static final Status[] STATUSES = Status.values();
+
+    private static final String SCHEMA = schema(OPCODES, VALUETYPES, KINDTYPES, STATUSES);
+
+    private final Path dir;
+    private final String version;
+
+    private int hits;
+    private int misses;
+    private long loadNanos;
+    private long parseNanos;
+    private long storeNanos;
+
+    public ModuleCache(Path dir, String version) {
+        this.dir = dir;
+        this.version = version;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new AssertionError(ex);
+        }
+    }
+
+    private static String schema(Enum<?>[]... enums) {
+        MessageDigest md = sha256();
+        for (Enum<?>[] constants : enums) {
+            md.update(constants.getClass().getComponentType().getName().getBytes(StandardCharsets.UTF_8));
+            md.update((byte)0);
+            for (Enum<?> constant : constants) {
+                md.update(constant.name().getBytes(StandardCharsets.UTF_8));
+                md.update((byte)0);
+            }
+            md.update((byte)0);
+        }
+        return HexFormat.of().formatHex(md.digest());
+    }
+
+    private String key(String name, ByteBuffer stream) {
+        MessageDigest md = sha256();
+        md.update(version.getBytes(StandardCharsets.UTF_8));
+        md.update((byte)0);
+        md.update(SCHEMA.getBytes(StandardCharsets.UTF_8));
+        md.update((byte)0);
+        md.update(name.getBytes(StandardCharsets.UTF_8));
+        md.update((byte)0);
+        md.update(stream.duplicate());
+        return HexFormat.of().formatHex(md.digest());
+    }
+
+    public synchronized WasmModule getModule(String name, ByteBuffer stream, ParseOptions options) throws IOException {
+        Path file = dir.resolve(key(name, stream) + SUFFIX);
+        if (Files.isRegularFile(file)) {
+            long start = System.nanoTime();
+            try {
+                WasmModule module = new ModuleReader(name, options, BufferLoader.load(file)).read();
+                long elapsed = System.nanoTime() - start;
+                ++hits;
+                loadNanos += elapsed;
+                Logger.getGlobal().info(String.format("cache hit for %s: %s loaded in %d ms",
+                        name, file.getFileName(), elapsed/1_000_000));
+                return module;
+            } catch (IOException | RuntimeException ex) {
+                Logger.getGlobal().warning(String.format("cache file %s ignored: %s", file, ex));
+            }
+        }
+        ++misses;
+        long start = System.nanoTime();
+        WasmModule module = WasmModule.getModule(name, stream, options);
+        long parsed = System.nanoTime();
+        parseNanos += parsed - start;
+        try {
+            long size = write(module, file);
+            long elapsed = System.nanoTime() - parsed;
+            storeNanos += elapsed;
+            Logger.getGlobal().info(String.format("cache miss for %s: parsed in %d ms; %d bytes stored in %d ms",
+                    name, (parsed - start)/1_000_000, size, elapsed/1_000_000));
+        } catch (IOException ex) {
+            Logger.getGlobal().warning(String.format("unable to write cache file %s: %s", file, ex));
+        }
+        return module;
+    }
+
+    public synchronized String stats() {
+        return String.format("module cache: hits = %d (load %d ms) misses = %d (parse %d ms store %d ms)",
+                hits, loadNanos/1_000_000, misses, parseNanos/1_000_000, storeNanos/1_000_000);
+    }
+
+    private long write(WasmModule module, Path file) throws IOException {
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, "module", ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                new ModuleWriter(module, out).write(version);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        return Files.size(file);
+    }
+
+    private static int importCount(List<? extends Kind> kinds) {
+        int count = 0;
+        while (count < kinds.size() && kinds.get(count).isImported()) {
+            ++count;
+        }
+        return count;
+    }
+
+    private static <T> Map<Object,Integer> indexes(List<T> list) {
+        Map<Object,Integer> result = new IdentityHashMap<>();
+        for (int i = 0; i < list.size(); ++i) {
+            result.put(list.get(i), i);
+        }
+        return result;
+    }
+
+    private static final class ModuleWriter {
+
+        private final WasmModule module;
+        private final DataOutputStream out;
+        private final Map<FnType,Integer> fntypes = new HashMap<>();
+        private final Map<Object,Integer> functions;
+        private final Map<Object,Integer> globals;
+        private final Map<Object,Integer> tables;
+
+        private ModuleWriter(WasmModule module, DataOutputStream out) {
+            this.module = module;
+            this.out = out;
+            this.functions = indexes(module.getFunctions());
+            this.globals = indexes(module.getGlobals());
+            this.tables = indexes(module.getTables());
+        }
+
+        private void u32(int value) throws IOException {
+            while ((value & ~0x7f) != 0) {
+                out.write((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            out.write(value);
+        }
+
+        private void s64(long value) throws IOException {
+            long zigzag = (value << 1) ^ (value >> 63);
+            while ((zigzag & ~0x7fL) != 0) {
+                out.write((int)(zigzag & 0x7f) | 0x80);
+                zigzag >>>= 7;
+            }
+            out.write((int)zigzag);
+        }
+
+        private void string(String str) throws IOException {
+            if (str == null) {
+                u32(0);
+                return;
+            }
+            byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+            u32(bytes.length + 1);
+            out.write(bytes);
+        }
+
+        private void fnType(FnType fntype) throws IOException {
+            Integer index = fntypes.get(fntype);
+            if (index != null) {
+                u32(index + 1);
+                return;
+            }
+            fntypes.put(fntype, fntypes.size());
+            u32(0);
+            ValueType[] parms = fntype.getParm();
+            u32(parms.length);
+            for (ValueType vt : parms) {
+                out.write(vt.ordinal());
+            }
+        }
+
+        private void kindName(KindName kn) throws IOException {
+            out.write(kn.getType().ordinal());
+            string(kn.getModuleName());
+            string(kn.getFieldName());
+            out.write(kn.getStatus().ordinal());
+            u32(kn.getNumber());
+        }
+
+        private void limits(Limits limits) throws IOException {
+            out.writeBoolean(limits.hasMaximum());
+            u32(limits.getInitial());
+            if (limits.hasMaximum()) {
+                u32(limits.getMaximum());
+            }
+        }
+
+        private void constInst(Instruction inst) throws IOException {
+            OpCode opcode = inst.getOpCode();
+            u32(opcode.ordinal());
+            switch (opcode) {
+                case GLOBAL_GET:
+                    u32(globals.get(((VariableInstruction)inst).getObject()));
+                    break;
+                case I32_CONST:
+                case I64_CONST:
+                    s64(((ConstantInstruction)inst).getConstant().longValue());
+                    break;
+                case F32_CONST:
+                    out.writeInt(Float.floatToRawIntBits(((ConstantInstruction)inst).getConstant().floatValue()));
+                    break;
+                case F64_CONST:
+                    out.writeLong(Double.doubleToRawLongBits(((ConstantInstruction)inst).getConstant().doubleValue()));
+                    break;
+                default:
+                    throw new IllegalStateException("not a constant expression: " + inst);
+            }
+        }
+
+        private void object(Object obj) throws IOException {
+            if (obj instanceof Local local) {
+                out.write(LOCAL);
+                u32(local.getNumber());
+            } else if (obj instanceof Global) {
+                out.write(GLOBAL);
+                u32(globals.get(obj));
+            } else if (obj instanceof WasmFunction) {
+                out.write(FUNCTION);
+                u32(functions.get(obj));
+            } else if (obj instanceof Table) {
+                out.write(TABLE);
+                u32(tables.get(obj));
+            } else if (obj instanceof Float fval) {
+                out.write(FLOAT);
+                out.writeInt(Float.floatToRawIntBits(fval));
+            } else if (obj instanceof Double dval) {
+                out.write(DOUBLE);
+                out.writeLong(Double.doubleToRawLongBits(dval));
+            } else if (obj instanceof Op op) {
+                out.write(OP);
+                u32(op.getOpCode().ordinal());
+                string(op.toString());
+            } else {
+                throw new IllegalStateException("unexpected object in code: " + obj);
+            }
+        }
+
+        private void code(LocalFunction fn) throws IOException {
+            Local[] locals = fn.getLocals();
+            u32(locals.length);
+            for (Local local : locals) {
+                out.write(local.getType().ordinal());
+                out.writeBoolean(local.isParm());
+                String name = local.getName();
+                string(name.equals("$" + local.getNumber())? null: name);
+            }
+            long[] initvars = fn.getVarsToInit().toLongArray();
+            u32(initvars.length);
+            for (long bits : initvars) {
+                s64(bits);
+            }
+            PackedCode code = fn.getCode();
+            int[] ops = code.ops();
+            long[] imms = code.imms();
+            u32(ops.length);
+            for (int op : ops) {
+                u32(op);
+            }
+            for (long imm : imms) {
+                s64(imm);
+            }
+            FnType[] codetypes = code.fntypes();
+            u32(codetypes.length);
+            for (FnType fntype : codetypes) {
+                fnType(fntype);
+            }
+            BranchTarget[] targets = code.targets();
+            u32(targets.length);
+            for (BranchTarget target : targets) {
+                u32(target.getBr2level());
+                fnType(target.getUnwind());
+            }
+            Object[] objects = code.objects();
+            u32(objects.length);
+            for (Object obj : objects) {
+                object(obj);
+            }
+        }
+
+        private void write(String version) throws IOException {
+            out.writeInt(MAGIC);
+            u32(FORMAT);
+            string(version);
+            string(SCHEMA);
+            string(module.getName());
+            List<String> producers = module.getProducers();
+            u32(producers.size());
+            for (String producer : producers) {
+                string(producer);
+            }
+            Integer datacount = module.getDataCount();
+            u32(datacount == null? 0: datacount + 1);
+            FnType[] types = module.getTypes();
+            u32(types.length);
+            for (FnType type : types) {
+                fnType(type);
+            }
+
+            List<WasmFunction> fns = module.getFunctions();
+            List<Table> tabs = module.getTables();
+            List<Memory> mems = module.getMemories();
+            List<Global> globs = module.getGlobals();
+            int impfns = importCount(fns);
+            int imptabs = importCount(tabs);
+            int impmems = importCount(mems);
+            int impglobs = importCount(globs);
+            u32(fns.size());
+            u32(impfns);
+            u32(tabs.size());
+            u32(imptabs);
+            u32(mems.size());
+            u32(impmems);
+            u32(globs.size());
+            u32(impglobs);
+
+            for (int i = 0; i < fns.size(); ++i) {
+                WasmFunction fn = fns.get(i);
+                if (i >= impfns && !fn.hasCode()) {
+                    throw new IllegalStateException("function has no code: " + fn);
+                }
+                fnType(fn.getFnType());
+                kindName(fn.getKindName());
+            }
+            for (Table table : tabs) {
+                limits(table.getLimits());
+                kindName(table.getKindName());
+            }
+            for (Memory memory : mems) {
+                limits(memory.getLimits());
+                kindName(memory.getKindName());
+            }
+            for (int i = 0; i < globs.size(); ++i) {
+                Global global = globs.get(i);
+                out.write(global.getType().ordinal());
+                out.writeBoolean(global.isMutable());
+                kindName(global.getKindName());
+                if (i >= impglobs) {
+                    constInst(global.getConstExpr().getConstInst());
+                }
+            }
+
+            WasmFunction start = module.getStart();
+            u32(start == null? 0: functions.get(start) + 1);
+
+            for (Table table : tabs) {
+                List<TableElement> elements = table.getElements();
+                u32(elements.size());
+                for (TableElement element : elements) {
+                    constInst(element.getConstExpr().getConstInst());
+                    WasmFunction[] elfns = element.getFunctions();
+                    u32(elfns.length);
+                    for (WasmFunction fn : elfns) {
+                        u32(functions.get(fn));
+                    }
+                }
+            }
+            byte[] chunk = new byte[1 << 13];
+            for (Memory memory : mems) {
+                List<Data_segment> segments = memory.getData();
+                u32(segments.size());
+                for (Data_segment ds : segments) {
+                    constInst(ds.getConstExpr().getConstInst());
+                    ByteBuffer data = ds.getData();
+                    u32(data.remaining());
+                    while (data.hasRemaining()) {
+                        int n = Math.min(chunk.length, data.remaining());
+                        data.get(chunk, 0, n);
+                        out.write(chunk, 0, n);
+                    }
+                }
+            }
+            for (int i = impfns; i < fns.size(); ++i) {
+                code((LocalFunction)fns.get(i));
+            }
+        }
+
+    }
+
+    private static final class ModuleReader {
+
+        private final String name;
+        private final ParseOptions options;
+        private final ByteBuffer bb;
+        private final List<FnType> fntypes = new ArrayList<>();
+        private WasmModule module;
+
+        private ModuleReader(String name, ParseOptions options, ByteBuffer bb) {
+            this.name = name;
+            this.options = options;
+            this.bb = bb;
+        }
+
+        private int u32() {
+            int result = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                int b = bb.get();
+                result |= (b & 0x7f) << shift;
+                if (b >= 0) {
+                    return result;
+                }
+            }
+            throw new IllegalStateException("invalid u32 at " + bb.position());
+        }
+
+        private long s64() {
+            long zigzag = 0;
+            for (int shift = 0; shift < 70; shift += 7) {
+                int b = bb.get();
+                zigzag |= (long)(b & 0x7f) << shift;
+                if (b >= 0) {
+                    return (zigzag >>> 1) ^ -(zigzag & 1);
+                }
+            }
+            throw new IllegalStateException("invalid s64 at " + bb.position());
+        }
+
+        private String string() {
+            int length = u32();
+            if (length == 0) {
+                return null;
+            }
+            byte[] bytes = new byte[length - 1];
+            bb.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private boolean bool() {
+            return bb.get() != 0;
+        }
+
+        private ValueType valueType() {
+            return VALUETYPES[bb.get()];
+        }
+
+        private FnType fnType() {
+            int index = u32();
+            if (index != 0) {
+                return fntypes.get(index - 1);
+            }
+            ValueType[] parms = new ValueType[u32()];
+            for (int i = 0; i < parms.length; ++i) {
+                parms[i] = valueType();
+            }
+            FnType fntype = new FnType(parms);
+            fntypes.add(fntype);
+            return fntype;
+        }
+
+        private KindName kindName() {
+            KindType type = KINDTYPES[bb.get()];
+            String modname = string();
+            String fieldname = string();
+            Status status = STATUSES[bb.get()];
+            int number = u32();
+            return new KindName(type, modname, fieldname, status, number);
+        }
+
+        private Limits limits() {
+            boolean hasmax = bool();
+            int initial = u32();
+            return hasmax? new Limits(initial, u32()): new Limits(initial);
+        }
+
+        private ConstantExpression constExpr() {
+            OpCode opcode = OPCODES[u32()];
+            Instruction inst;
+            switch (opcode) {
+                case GLOBAL_GET:
+                    int index = u32();
+                    Global global = module.atglobidx(index);
+                    inst = new VariableInstruction(opcode, FnType.produce(global.getType()), index, global);
+                    break;
+                case I32_CONST:
+                    inst = constant(opcode, (int)s64());
+                    break;
+                case I64_CONST:
+                    inst = constant(opcode, s64());
+                    break;
+                case F32_CONST:
+                    inst = constant(opcode, Float.intBitsToFloat(bb.getInt()));
+                    break;
+                case F64_CONST:
+                    inst = constant(opcode, Double.longBitsToDouble(bb.getLong()));
+                    break;
+                default:
+                    throw new IllegalStateException("not a constant expression opcode: " + opcode);
+            }
+            return new ConstantExpression(inst);
+        }
+
+        private static Instruction constant(OpCode opcode, Number value) {
+            return new ConstantInstruction(opcode, FnType.produce(opcode.getPrefix()), value);
+        }
+
+        private Object object(Local[] locals) {
+            int tag = bb.get();
+            switch (tag) {
+                case LOCAL:
+                    return locals[u32()];
+                case GLOBAL:
+                    return module.atglobidx(u32());
+                case FUNCTION:
+                    return module.atfuncidx(u32());
+                case TABLE:
+                    return module.attableidx(u32());
+                case FLOAT:
+                    return Float.intBitsToFloat(bb.getInt());
+                case DOUBLE:
+                    return Double.longBitsToDouble(bb.getLong());
+                case OP:
+                    OpCode opcode = OPCODES[u32()];
+                    return new CachedOp(opcode, string());
+                default:
+                    throw new IllegalStateException("unknown object tag " + tag);
+            }
+        }
+
+        private void code(LocalFunction fn) {
+            Local[] locals = new Local[u32()];
+            for (int i = 0; i < locals.length; ++i) {
+                ValueType vt = valueType();
+                boolean parm = bool();
+                locals[i] = new Local(vt, i, parm);
+                String localname = string();
+                if (localname != null) {
+                    locals[i].setDebugName(localname);
+                }
+            }
+            long[] initbits = new long[u32()];
+            for (int i = 0; i < initbits.length; ++i) {
+                initbits[i] = s64();
+            }
+            int size = u32();
+            int[] ops = new int[size];
+            long[] imms = new long[size];
+            for (int i = 0; i < size; ++i) {
+                ops[i] = u32();
+            }
+            for (int i = 0; i < size; ++i) {
+                imms[i] = s64();
+            }
+            FnType[] codetypes = new FnType[u32()];
+            for (int i = 0; i < codetypes.length; ++i) {
+                codetypes[i] = fnType();
+            }
+            BranchTarget[] targets = new BranchTarget[u32()];
+            for (int i = 0; i < targets.length; ++i) {
+                int br2level = u32();
+                targets[i] = new BranchTarget(br2level, fnType());
+            }
+            Object[] objects = new Object[u32()];
+            for (int i = 0; i < objects.length; ++i) {
+                objects[i] = object(locals);
+            }
+            PackedCode code = PackedCode.of(ops, imms, codetypes, targets, objects);
+            fn.setLocalFunction(fn.getKindName().getNumber(), locals, BitSet.valueOf(initbits), code, fn.getFnType());
+        }
+
+        private WasmModule read() throws IOException {
+            if (bb.getInt() != MAGIC || u32() != FORMAT) {
+                throw new IOException("not a module cache file");
+            }
+            string(); // version is part of key
+            if (!SCHEMA.equals(string())) {
+                throw new IOException("module cache file has a different schema");
+            }
+            module = new WasmModule(name, options);
+            String modname = string();
+            if (!modname.equals(name)) {
+                module.setModname(modname);
+            }
+            int producers = u32();
+            for (int i = 0; i < producers; ++i) {
+                module.addProducer(string());
+            }
+            int datacount = u32();
+            module.setDataCount(datacount == 0? null: datacount - 1);
+            FnType[] types = new FnType[u32()];
+            for (int i = 0; i < types.length; ++i) {
+                types[i] = fnType();
+            }
+            module.setTypes(types);
+
+            int fns = u32();
+            int impfns = u32();
+            int tabs = u32();
+            int imptabs = u32();
+            int mems = u32();
+            int impmems = u32();
+            int globs = u32();
+            int impglobs = u32();
+
+            for (int i = 0; i < fns; ++i) {
+                FnType fntype = fnType();
+                KindName kn = kindName();
+                module.addFunction(i < impfns? new ImportedFunction(fntype, kn): new LocalFunction(fntype, kn));
+            }
+            for (int i = 0; i < tabs; ++i) {
+                Limits limits = limits();
+                module.addTable(new Table(limits, kindName()));
+            }
+            for (int i = 0; i < mems; ++i) {
+                Limits limits = limits();
+                module.addMemory(new Memory(limits, kindName()));
+            }
+            for (int i = 0; i < globs; ++i) {
+                ValueType vt = valueType();
+                boolean mutable = bool();
+                KindName kn = kindName();
+                if (i < impglobs) {
+                    module.addGlobal(new Global(vt, mutable, kn));
+                } else {
+                    module.addGlobal(new Global(vt, mutable, constExpr(), kn));
+                }
+            }
+            if (importCount(module.getTables()) != imptabs || importCount(module.getMemories()) != impmems) {
+                throw new IllegalStateException("import counts do not match");
+            }
+            module.setImportCounts(impfns, imptabs, impmems, impglobs);
+
+            int start = u32();
+            if (start != 0) {
+                module.setStart(module.atfuncidx(start - 1));
+            }
+
+            for (Table table : module.getTables()) {
+                int count = u32();
+                for (int i = 0; i < count; ++i) {
+                    ConstantExpression constexpr = constExpr();
+                    WasmFunction[] elfns = new WasmFunction[u32()];
+                    for (int j = 0; j < elfns.length; ++j) {
+                        elfns[j] = module.atfuncidx(u32());
+                    }
+                    table.addElement(new TableElement(constexpr, elfns));
+                }
+            }
+            for (Memory memory : module.getMemories()) {
+                int count = u32();
+                for (int i = 0; i < count; ++i) {
+                    ConstantExpression constexpr = constExpr();
+                    int size = u32();
+                    ByteBuffer data = bb.slice(bb.position(), size);
+                    bb.position(bb.position() + size);
+                    memory.add(new Data_segment(constexpr, data));
+                }
+            }
+            for (int i = impfns; i < fns; ++i) {
+                code((LocalFunction)module.atfuncidx(i));
+            }
+            if (bb.hasRemaining()) {
+                throw new IllegalStateException(bb.remaining() + " bytes after end of module");
+            }
+            return module;
+        }
+
+    }
+
+    // an op dropped as unreachable; only its text is kept
+    private static final class CachedOp implements Op {
+
+        private final OpCode opcode;
+        private final String text;
+
+        private CachedOp(OpCode opcode, String text) {
+            this.opcode = opcode;
+            this.text = text;
+        }
+
+        @Override
+        public OpCode getOpCode() {
+            return opcode;
+        }
+
+        @Override
+        public String toString() {
+            return text;
+        }
+
+    }
+
+}
@@ -0,0 +1,36 @@
+package parse;
+
+import java.nio.ByteBuffer;
+
+/*
+    callbacks from WasmReader in module order
+    exported as com.github.david32768.jynxwasm32.reader.ModuleVisitor
+    returning null from visitFunction or visitData skips the body
+    without decoding it
+*/
+public abstract class ModuleVisitor {
+
+    // false skips the section without parsing it
+    // sections that depend on a skipped section are skipped without a callback
+    public boolean visitSection(SectionType type, int size) {
+        return true;
+    }
+
+    public void visitType(int typeidx, FnType fntype) {}
+
+    public void visitImport(Kind kind) {}
+
+    public FunctionVisitor visitFunction(LocalFunction function) {
+        return null;
+    }
+
+    public DataVisitor visitData(int index, Memory memory, ConstantExpression offset, int size) {
+        return null;
+    }
+
+    // payload is positioned after the name and is only valid during the call
+    public void visitCustom(String name, ByteBuffer payload) {}
+
+    public void visitEnd() {}
+
+}
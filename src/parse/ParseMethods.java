@@ -80,7 +80,7 @@ public class ParseMethods {
     | field_str  | `bytes`         | field name string of `field_len` bytes |
     | kind       | `external_kind` | the kind of definition being imported  |
     */
-    public static void parseImport(WasmModule module, Section section, int i)  {
+    public static Kind parseImport(WasmModule module, Section section, int i)  {
         String module_str = section.getName();
         String field_str = section.getName();
         int idx = section.getUByte();
@@ -139,6 +139,7 @@ public class ParseMethods {
                 throw new EnumConstantNotPresentException(kt.getClass(), kt.name());
         }
         Logger.getGlobal().fine(String.format("import %s", kind));
+        return kind;
     }
     
 /*
@@ -0,0 +1,71 @@
+package parse;
+
+import java.util.EnumSet;
+
+public final class ParseOptions {
+
+    public static final ParseOptions DEFAULT = new ParseOptions(1, false, false,
+            EnumSet.allOf(SectionType.class));
+
+    private final int threads;
+    private final boolean lazy;
+    private final boolean validateOnly;
+    private final EnumSet<SectionType> sections;
+
+    private ParseOptions(int threads, boolean lazy, boolean validateOnly, EnumSet<SectionType> sections) {
+        this.threads = threads;
+        this.lazy = lazy;
+        this.validateOnly = validateOnly;
+        this.sections = sections;
+    }
+
+    public int threads() {
+        return threads;
+    }
+
+    // function bodies are decoded and validated on first use
+    public boolean lazy() {
+        return lazy;
+    }
+
+    // function bodies are type checked but instructions are not kept
+    public boolean validateOnly() {
+        return validateOnly;
+    }
+
+    public ParseOptions withThreads(int threads) {
+        if (threads < 1) {
+            String msg = String.format("number of threads (%d) must be at least 1", threads);
+            throw new IllegalArgumentException(msg);
+        }
+        return new ParseOptions(threads, lazy, validateOnly, sections);
+    }
+
+    public ParseOptions withLazy(boolean lazy) {
+        return new ParseOptions(threads, lazy, validateOnly, sections);
+    }
+
+    public ParseOptions withValidateOnly(boolean validateOnly) {
+        return new ParseOptions(threads, lazy, validateOnly, sections);
+    }
+
+    // sections needed by the selected sections are also parsed
+    public ParseOptions withSections(EnumSet<SectionType> selected) {
+        EnumSet<SectionType> parsed = EnumSet.copyOf(selected);
+        for (SectionType type : selected) {
+            parsed.addAll(type.dependsOn());
+        }
+        return new ParseOptions(threads, lazy, validateOnly, parsed);
+    }
+
+    public boolean isParsed(SectionType type) {
+        return sections.contains(type);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("threads = %d lazy = %b validate only = %b sections = %s",
+                threads, lazy, validateOnly, sections);
+    }
+
+}
@@ -1,5 +1,6 @@
 package parse;
 
+import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.charset.Charset;
@@ -38,6 +39,16 @@ public final class Section {
         this.limit = newlimit;
     }
 
+    // getPayload
+    private Section(SectionType type, ByteBuffer payload, int payload_len) {
+        this.type = type;
+        this.sectionbb = payload.asReadOnlyBuffer();
+        this.sectionbb.order(ByteOrder.LITTLE_ENDIAN);
+        this.payload_len = payload_len;
+        this.position = this.sectionbb.position();
+        this.limit = this.sectionbb.limit();
+    }
+
     public SectionType getType() {
         return type;
     }
@@ -46,6 +57,11 @@ public final class Section {
         return new Section(type,buffer);
     }
 
+    // remaining bytes of buffer are the payload (no length prefix)
+    public static Section getPayload(SectionType type, ByteBuffer payload) {
+        return new Section(type, payload, payload.remaining());
+    }
+
     public static Section getSubSection(Section section) {
         return new Section(section.type,section.sectionbb);
     }
@@ -94,7 +110,7 @@ public final class Section {
 
     private static final int FC_EXTENSION = 0xfc;
     
-    private OpCode getOpCode() {
+    OpCode getOpCode() {
         int inst = getUByte();
         if (inst == FC_EXTENSION) {
             int extension = getU32(); 
@@ -138,6 +154,18 @@ public final class Section {
         return byteArray(size);
     }
 
+    // read-only view of the vector contents; the bytes are not copied
+    public ByteBuffer byteSlice() {
+        int size = vecsz();
+        if (size > sectionbb.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        int start = sectionbb.position();
+        ByteBuffer slice = sectionbb.slice(start, size);
+        sectionbb.position(start + size);
+        return slice;
+    }
+
     public int getUByte() {
         return Byte.toUnsignedInt(sectionbb.get());
     }
@@ -195,9 +223,45 @@ public final class Section {
         }
     }
     
+    // fast paths below decode the common cases inline without unused bit checks
+    // anything else is re-read from start by LEBint so errors are unchanged
+    private long slowLEB(int start, int N, boolean signed) {
+        sectionbb.position(start);
+        return LEBint(N, signed);
+    }
+    
     // LEB128 endcoding - 5.2.2
     public int getU32() {
-        int result = (int)LEBint(32, false);
+        int start = sectionbb.position();
+        byte bit8 = sectionbb.get();
+        if (bit8 >= 0) {
+            return bit8;
+        }
+        int result = bit8 & 0x7f;
+        bit8 = sectionbb.get();
+        if (bit8 >= 0) {
+            return result | bit8 << 7;
+        }
+        result |= (bit8 & 0x7f) << 7;
+        bit8 = sectionbb.get();
+        if (bit8 >= 0) {
+            return result | bit8 << 14;
+        }
+        result |= (bit8 & 0x7f) << 14;
+        bit8 = sectionbb.get();
+        if (bit8 >= 0) {
+            return result | bit8 << 21;
+        }
+        result |= (bit8 & 0x7f) << 21;
+        bit8 = sectionbb.get();
+        if ((bit8 & 0xf8) == 0) { // last byte, no unused bits and result not negative
+            return result | bit8 << 28;
+        }
+        return getU32Slow(start);
+    }
+
+    private int getU32Slow(int start) {
+        int result = (int)slowLEB(start, 32, false);
         if (result < 0) {
             // "integer too large"
             throw new ParseException(M206,"(Java limitation) as unsigned %d would be negative",
@@ -208,7 +272,32 @@ public final class Section {
 
     // LEB128 endcoding - 5.2.2
     public long getU32L() {
-        return LEBint(32, false);
+        int start = sectionbb.position();
+        byte bit8 = sectionbb.get();
+        if (bit8 >= 0) {
+            return bit8;
+        }
+        int result = bit8 & 0x7f;
+        bit8 = sectionbb.get();
+        if (bit8 >= 0) {
+            return result | bit8 << 7;
+        }
+        result |= (bit8 & 0x7f) << 7;
+        bit8 = sectionbb.get();
+        if (bit8 >= 0) {
+            return result | bit8 << 14;
+        }
+        result |= (bit8 & 0x7f) << 14;
+        bit8 = sectionbb.get();
+        if (bit8 >= 0) {
+            return result | bit8 << 21;
+        }
+        result |= (bit8 & 0x7f) << 21;
+        bit8 = sectionbb.get();
+        if ((bit8 & 0xf0) == 0) { // last byte and no unused bits
+            return Integer.toUnsignedLong(result | bit8 << 28);
+        }
+        return slowLEB(start, 32, false);
     }
 
     public int vecsz() {
@@ -257,15 +346,22 @@ public final class Section {
 
     // LEB128 endcoding - 5.2.2
     public int varint7() {
-        return (int)LEBint(7,true);
+        int start = sectionbb.position();
+        byte bit8 = sectionbb.get();
+        if (bit8 >= 0) {
+            return bit8 << 25 >> 25;
+        }
+        return (int)slowLEB(start, 7, true);
     }
 
     // LEB128 endcoding - 5.2.2
+    // no fast path as bench/ LebBench measured one no faster than LEBint
     private int getI32() {
         return (int)LEBint(32,true);
     }
 
     // LEB128 endcoding - 5.2.2
+    // no fast path as bench/ LebBench measured one slower than LEBint
     private long getI64() {
         return LEBint(64,true);
     }
@@ -291,6 +387,26 @@ public final class Section {
         return value;
     }
 
+    // as getImm but value is not kept
+    void skipImm(ValueType type) {
+        switch (type) {
+            case I32:
+                getI32();
+                break;
+            case I64:
+                getI64();
+                break;
+            case F32:
+                getF32();
+                break;
+            case F64:
+                getF64();
+                break;
+            default:
+                throw new AssertionError();
+        }
+    }
+
     public ValueType getValueType() {
         int encoding = getUByte();
         return WasmType.getInstance(encoding).getValueType();
@@ -0,0 +1,49 @@
+package parse;
+
+public class SectionEntry {
+
+    private final SectionType type;
+    private final String name;  // custom section name else null
+    private final int offset;
+    private final int size;
+    private final boolean parsed;
+
+    public SectionEntry(SectionType type, String name, int offset, int size, boolean parsed) {
+        this.type = type;
+        this.name = name;
+        this.offset = offset;
+        this.size = size;
+        this.parsed = parsed;
+    }
+
+    public SectionType type() {
+        return type;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public int offset() {
+        return offset;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean parsed() {
+        return parsed;
+    }
+
+    @Override
+    public String toString() {
+        String desc = name == null? type.toString(): type + " " + name;
+        return String.format("%4d %-24s %10d %10d %s", type.getId(), desc, offset, size, parsed?"parsed":"skipped");
+    }
+
+    public static String header() {
+        return String.format("%4s %-24s %10s %10s %s", "id", "section", "offset", "size", "");
+    }
+
+}
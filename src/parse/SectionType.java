@@ -1,6 +1,9 @@
 package parse;
 
+import java.util.EnumSet;
+import java.util.Optional;
 import java.util.function.BiConsumer;
+import java.util.stream.Stream;
 
 import static parse.Reason.M211;
 
@@ -39,6 +42,31 @@ public enum SectionType {
         parsefn.accept(module, section);
     }
 
+    // sections that must be parsed before this one can be
+    public EnumSet<SectionType> dependsOn() {
+        switch(this) {
+            case st_import:
+            case st_function:
+                return EnumSet.of(st_type);
+            case st_table:
+            case st_memory:
+            case st_global:
+                return EnumSet.of(st_type, st_import);
+            case st_export:
+            case st_start:
+            case st_element:
+                return EnumSet.of(st_type, st_import, st_function, st_table, st_memory, st_global);
+            case st_code:
+                return EnumSet.of(st_type, st_import, st_function, st_table, st_memory, st_global);
+            case st_data:
+                return EnumSet.of(st_type, st_import, st_memory, st_global, st_datacount);
+            case st_custom: // name section can name locals
+                return EnumSet.of(st_type, st_import, st_function, st_table, st_memory, st_global, st_code);
+            default:
+                return EnumSet.noneOf(SectionType.class);
+        }
+    }
+
     @Override
     public String toString() {
         return name().substring(3);
@@ -54,4 +82,10 @@ public enum SectionType {
         throw new ParseException(M211,"section id = %d",idx);
     }
 
+    public static Optional<SectionType> getInstance(String str) {
+        return Stream.of(values())
+                .filter(st -> st != st_end && st.toString().equalsIgnoreCase(str))
+                .findAny();
+    }
+
 }
@@ -30,6 +30,10 @@ public class Table implements Kind {
         kindName = kindName.exportNames(module_name, field_name);
     }
 
+    public Limits getLimits() {
+        return limits;
+    }
+
     public int getTableNum() {
         return kindName.getNumber();
     }
@@ -16,6 +16,7 @@ import static parse.Reason.M108;
 public class WasmModule {
 
     private final String name;
+    private final ParseOptions options;
     private SectionType lastSection = SectionType.st_custom;
     private FnType[] types = new FnType[0];
     private String modname; // set by section 0 name subsection 0
@@ -26,6 +27,7 @@ public class WasmModule {
     private final ArrayList<Global> globals = new ArrayList<>();
 
     private final ArrayList<String> producers = new ArrayList<>();
+    private final ArrayList<SectionEntry> sections = new ArrayList<>();
     
     private WasmFunction startfn;
     private int impfns = 0;
@@ -37,14 +39,23 @@ public class WasmModule {
     
     public final static Logger LOG = Logger.getGlobal();
     
-    private WasmModule(String name) {
+    WasmModule(String name, ParseOptions options) {
         this.name = name;
+        this.options = options;
     }
 
     public String getName() {
         return modname == null?name:modname;
     }
 
+    public ParseOptions getOptions() {
+        return options;
+    }
+
+    int typeCount() {
+        return types.length;
+    }
+
     public SectionType getLastSection() {
         return lastSection;
     }
@@ -72,6 +83,10 @@ public class WasmModule {
     public ArrayList<String> getProducers() {
         return producers;
     }    
+
+    public ArrayList<SectionEntry> getSections() {
+        return sections;
+    }
     
     public void setModname(String modname) {
         this.modname = modname;
@@ -81,12 +96,32 @@ public class WasmModule {
         this.types = ParseMethods.parseTypes(this, section);
     }
 
+    void setTypes(FnType[] types) {
+        this.types = types;
+    }
+
+    FnType[] getTypes() {
+        return types.clone();
+    }
+
     public void setImports(Section section) {
         ParseMethods.parseImports(this,section);
-        impfns = functions.size();
-        impglobs = globals.size();
-        impmems = memories.size();
-        imptabs = tables.size();
+        setImportCounts();
+    }
+
+    void setImportCounts() {
+        setImportCounts(functions.size(), tables.size(), memories.size(), globals.size());
+    }
+
+    void setImportCounts(int impfns, int imptabs, int impmems, int impglobs) {
+        this.impfns = impfns;
+        this.imptabs = imptabs;
+        this.impmems = impmems;
+        this.impglobs = impglobs;
+    }
+
+    void setStart(WasmFunction startfn) {
+        this.startfn = startfn;
     }
 
     public void setStart(Section section) {
@@ -200,6 +235,10 @@ public class WasmModule {
     
     // spec 5.5.15
     public static WasmModule getModule(String name, ByteBuffer stream) throws IOException {
+        return getModule(name, stream, ParseOptions.DEFAULT);
+    }
+
+    public static WasmModule getModule(String name, ByteBuffer stream, ParseOptions options) throws IOException {
         stream.order(ByteOrder.LITTLE_ENDIAN);
         if (stream.remaining() < 4) {
             //  // "unexpected end"
@@ -223,14 +262,25 @@ public class WasmModule {
             throw new ParseException(M108,"version = %d",version);
         }
         Logger.getGlobal().fine(String.format("Version number = %d", version));
-        WasmModule module = new WasmModule(name);
+        WasmModule module = new WasmModule(name, options);
         while(stream.hasRemaining()) {
+            int offset = stream.position();
             int id = stream.get() & 0xff;
             SectionType type = SectionType.getInstance(id);
             Section section = Section.getInstance(type,stream);
             Logger.getGlobal().fine(String.format("%s(%d) section payload = %d",
                     type,id,section.getPayload_len()));
             module.setLastSection(type);
+            boolean parsed = options.isParsed(type);
+            String customname = null;
+            if (type == SectionType.st_custom) {
+                customname = section.getName();
+                section.reset();
+            }
+            module.sections.add(new SectionEntry(type, customname, offset, section.getPayload_len(), parsed));
+            if (!parsed) {
+                continue;   // stream is already positioned after section
+            }
             type.parse(module, section);
             if (section.hasRemaining() && id != 0) {
                 // "section size mismatch"
@@ -238,7 +288,8 @@ public class WasmModule {
             }
         }
         int localfnct = module.localfuns();
-        if (localfnct > 0 && !module.atfuncidx(module.getLocalFnIndex(0)).hasCode()) {
+        if (localfnct > 0 && options.isParsed(SectionType.st_code)
+                && !module.atfuncidx(module.getLocalFnIndex(0)).hasCode()) {
             // "function and code section have inconsistent lengths"
             throw new ParseException(M100,"local func count = %d code count = 0",localfnct);
         }
@@ -0,0 +1,371 @@
+package parse;
+
+import java.io.InputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.logging.Logger;
+
+import static parse.Reason.M100;
+import static parse.Reason.M103;
+import static parse.Reason.M104;
+import static parse.Reason.M106;
+import static parse.Reason.M107;
+import static parse.Reason.M108;
+import static parse.Reason.M200;
+import static parse.Reason.M207;
+
+import wasm.OpCode;
+
+/*
+    reads a module section by section from a channel and reports it to a ModuleVisitor
+    declarations (types, imports, functions, tables, memories, globals, exports etc.)
+    are kept as they are small and needed to interpret later sections
+    a section the visitor skips is not parsed ; sections that depend on it are skipped without a callback
+    custom sections, function bodies and data segments are read one at a time
+    so memory used is bounded by the largest of these and the declarations
+*/
+public class WasmReader {
+
+    private static final int BUFFER_SIZE = 1 << 16;   // 64K
+
+    private final String name;
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer;  // read ahead; always ready for get
+    private ByteBuffer large;  // reused for items larger than buffer
+    private long base;  // stream offset of start of buffer
+    private boolean eof;
+
+    public WasmReader(String name, ReadableByteChannel channel) {
+        this.name = name;
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        this.buffer.order(ByteOrder.LITTLE_ENDIAN);
+        this.buffer.limit(0);
+        this.large = ByteBuffer.allocate(0);
+    }
+
+    public WasmReader(String name, InputStream in) {
+        this(name, Channels.newChannel(in));
+    }
+
+    private long position() {
+        return base + buffer.position();
+    }
+
+    // returns false if stream ends before n bytes are available; n <= BUFFER_SIZE
+    private boolean fill(int n) throws IOException {
+        if (buffer.remaining() >= n) {
+            return true;
+        }
+        base += buffer.position();
+        buffer.compact();
+        try {
+            while (buffer.position() < n && !eof) {
+                if (channel.read(buffer) < 0) {
+                    eof = true;
+                }
+            }
+        } finally {
+            buffer.flip();
+        }
+        return buffer.remaining() >= n;
+    }
+
+    private int readU32(SectionType type) throws IOException {
+        fill(5); // fewer at end of stream
+        Section leb = Section.getPayload(type, buffer);
+        try {
+            int value = leb.getU32();
+            buffer.position(leb.position());
+            return value;
+        } catch (BufferUnderflowException ex) {
+            // "unexpected end"
+            throw new ParseException(M106,"in %s section at offset %d", type, position());
+        }
+    }
+
+    // returned buffer is only valid until next read
+    private ByteBuffer read(SectionType type, int n) throws IOException {
+        ByteBuffer result;
+        if (n <= BUFFER_SIZE) {
+            if (!fill(n)) {
+                // "length out of bounds"
+                throw new ParseException(M207,"%s: length (%d) at offset %d is more than remaining in stream (%d)",
+                        type, n, position(), buffer.remaining());
+            }
+            result = buffer.slice();
+            result.limit(n);
+            buffer.position(buffer.position() + n);
+        } else {
+            if (large.capacity() < n) {
+                large = ByteBuffer.allocate(n);
+            }
+            large.clear();
+            large.limit(n);
+            long start = position();
+            int buffered = Math.min(n, buffer.remaining());
+            ByteBuffer from = buffer.slice();
+            from.limit(buffered);
+            large.put(from);
+            buffer.position(buffer.position() + buffered);
+            while (large.hasRemaining()) {
+                if (channel.read(large) < 0) {
+                    break;
+                }
+            }
+            if (large.hasRemaining()) {
+                eof = true;
+                // "length out of bounds"
+                throw new ParseException(M207,"%s: length (%d) at offset %d is more than remaining in stream (%d)",
+                        type, n, start, large.position());
+            }
+            base += n - buffered;
+            large.flip();
+            result = large;
+        }
+        return result.asReadOnlyBuffer().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private void skip(SectionType type, long n) throws IOException {
+        long start = position();
+        while (n > 0) {
+            if (!fill(1)) {
+                // "length out of bounds"
+                throw new ParseException(M207,"%s: %d bytes to skip at offset %d but stream has ended",
+                        type, n, start);
+            }
+            int skipped = (int)Math.min(n, buffer.remaining());
+            buffer.position(buffer.position() + skipped);
+            n -= skipped;
+        }
+    }
+
+    public void accept(ModuleVisitor visitor) throws IOException {
+        if (!fill(4)) {
+            // "unexpected end"
+            throw new ParseException(M106,"length %d is less than required for magic header",buffer.remaining());
+        }
+        int magic = buffer.getInt();
+        if (magic != 0x6d736100) {
+            // "magic header not detected"
+            throw new ParseException(M103,"'/0asm' not present - found %08x", Integer.reverseBytes(magic));
+        }
+        if (!fill(4)) {
+            // "unexpected end"
+            throw new ParseException(M106,"remaining length %d is less than required for version",
+                    buffer.remaining());
+        }
+        int version = buffer.getInt();
+        if (version != 1) {
+            // "unknown binary version"
+            throw new ParseException(M108,"version = %d",version);
+        }
+        Logger.getGlobal().fine(String.format("Version number = %d", version));
+        WasmModule module = new WasmModule(name, ParseOptions.DEFAULT);
+        boolean codefound = false;
+        EnumSet<SectionType> skipped = EnumSet.noneOf(SectionType.class);
+        while (fill(1)) {
+            int id = buffer.get() & 0xff;
+            SectionType type = SectionType.getInstance(id);
+            int size = readU32(type);
+            long end = position() + size;
+            Logger.getGlobal().fine(String.format("%s(%d) section payload = %d", type, id, size));
+            module.setLastSection(type);
+            // custom sections are passed as bytes so need no other section
+            boolean needsSkipped = type != SectionType.st_custom && !Collections.disjoint(type.dependsOn(), skipped);
+            boolean visit = !needsSkipped && visitor.visitSection(type, size);
+            if (!visit) {
+                skipped.add(type);
+            }
+            if (type == SectionType.st_code) {
+                codefound = true;
+            }
+            switch (type) {
+                case st_custom:
+                    if (visit) {
+                        Section section = Section.getPayload(type, read(type, size));
+                        String customname = section.getName();
+                        visitor.visitCustom(customname, section.getByteBuffer());
+                    } else {
+                        skip(type, size);
+                    }
+                    break;
+                case st_code:
+                    if (visit) {
+                        readCode(module, visitor, end);
+                    } else {
+                        skip(type, size);
+                    }
+                    break;
+                case st_data:
+                    if (visit) {
+                        readData(module, visitor, end);
+                    } else {
+                        skip(type, size);
+                    }
+                    break;
+                default:
+                    if (!visit) {
+                        skip(type, size);
+                        break;
+                    }
+                    Section section = Section.getPayload(type, read(type, size));
+                    parseDeclarations(module, visitor, section);
+                    if (section.hasRemaining()) {
+                        // "section size mismatch"
+                        throw new ParseException(M104,"%d bytes remaining in section %s(%d)",
+                                section.remaining(),type,id);
+                    }
+                    break;
+            }
+            if (position() != end) {
+                // "section size mismatch"
+                throw new ParseException(M104,"section %s(%d) ends at offset %d but should end at %d",
+                        type, id, position(), end);
+            }
+        }
+        int localfnct = module.localfuns();
+        if (localfnct > 0 && !codefound) {
+            // "function and code section have inconsistent lengths"
+            throw new ParseException(M100,"local func count = %d code count = 0",localfnct);
+        }
+        visitor.visitEnd();
+    }
+
+    private static void parseDeclarations(WasmModule module, ModuleVisitor visitor, Section section) {
+        SectionType type = section.getType();
+        switch (type) {
+            case st_type:
+                type.parse(module, section);
+                for (int i = 0; i < module.typeCount(); ++i) {
+                    visitor.visitType(i, module.attypeidx(i));
+                }
+                break;
+            case st_import:
+                ParseMethods.parseSectionVector(section, i->module, (mod, sect, i) -> {
+                        Kind kind = ParseMethods.parseImport(mod, sect, i);
+                        visitor.visitImport(kind);
+                    });
+                module.setImportCounts();
+                break;
+            default:
+                type.parse(module, section);
+                break;
+        }
+    }
+
+    private int readCount(SectionType type, long end) throws IOException {
+        int count = readU32(type);
+        if (count > end - position()) { // sanity check
+            // "unexpected end of section or function"
+            throw new ParseException(M107,"vector size = %d but remaining = %d",count,end - position());
+        }
+        return count;
+    }
+
+    private int readItemSize(SectionType type, long end, int i, int count) throws IOException {
+        if (position() >= end) {
+            // "unexpected end of section or function"
+            throw new ParseException(M107, "%d %ss present but %d expected", i, type, count);
+        }
+        int size = readU32(type);
+        if (position() + size > end) {
+            // "length out of bounds"
+            throw new ParseException(M207,"%s section: offset (%d) + length (%d) > section end (%d)",
+                    type, position(), size, end);
+        }
+        return size;
+    }
+
+    private void readCode(WasmModule module, ModuleVisitor visitor, long end) throws IOException {
+        SectionType type = SectionType.st_code;
+        int count = readCount(type, end);
+        LocalFunction.checkCount(module, count);
+        for (int i = 0; i < count; ++i) {
+            LocalFunction fn = (LocalFunction)module.atfuncidx(module.getLocalFnIndex(i));
+            int size = readItemSize(type, end, i, count);
+            FunctionVisitor fv = visitor.visitFunction(fn);
+            if (fv == null) {
+                skip(type, size);
+                continue;
+            }
+            Section code = Section.getPayload(type, read(type, size));
+            try {
+                fv.visitLocals(Local.parse(code, fn));
+                OpCode lastop = null;
+                while (code.hasRemaining()) {
+                    Op op = code.getop();
+                    lastop = op.getOpCode();
+                    fv.visitOp(op);
+                }
+                if (lastop != OpCode.END) {
+                    // "END opcode expected"
+                    throw new ParseException(M200,"lastop = %s",lastop);
+                }
+            } catch (BufferUnderflowException ex) {
+                // "unexpected end of section or function"
+                throw new ParseException(M107, "in %s number %d of %d", type, i, count);
+            }
+            fv.visitEnd();
+        }
+    }
+
+    private void readData(WasmModule module, ModuleVisitor visitor, long end) throws IOException {
+        SectionType type = SectionType.st_data;
+        int count = readCount(type, end);
+        Data_segment.checkCount(module, count);
+        for (int i = 0; i < count; ++i) {
+            if (position() >= end) {
+                // "unexpected end of section or function"
+                throw new ParseException(M107, "%d %ss present but %d expected", i, type, count);
+            }
+            fill((int)Math.min(BUFFER_SIZE, end - position()));
+            ByteBuffer window = buffer.duplicate();
+            window.limit((int)Math.min(window.limit(), window.position() + end - position()));
+            Section header = Section.getPayload(type, window);
+            Memory memory;
+            ConstantExpression offset;
+            int size;
+            try {
+                memory = module.atmemidx(header.memidx());
+                offset = ConstantExpression.parseConstantExpression(module, header);
+                size = header.getU32();
+            } catch (BufferUnderflowException ex) {
+                // "unexpected end of section or function"
+                throw new ParseException(M107, "in %s number %d of %d", type, i, count);
+            }
+            buffer.position(header.position());
+            if (size > end - position()) {
+                // "unexpected end of section or function"
+                throw new ParseException(M107,"vector size = %d but remaining = %d",size,end - position());
+            }
+            DataVisitor dv = visitor.visitData(i, memory, offset, size);
+            if (dv == null) {
+                skip(type, size);
+                continue;
+            }
+            int left = size;
+            while (left > 0) {
+                if (!fill(1)) {
+                    // "length out of bounds"
+                    throw new ParseException(M207,"%s: %d bytes of data segment %d missing at end of stream",
+                            type, left, i);
+                }
+                int n = Math.min(left, buffer.remaining());
+                ByteBuffer chunk = buffer.slice();
+                chunk.limit(n);
+                dv.visitBytes(chunk.asReadOnlyBuffer());
+                buffer.position(buffer.position() + n);
+                left -= n;
+            }
+            dv.visitEnd();
+        }
+    }
+
+}
@@ -10,6 +10,8 @@ public enum WasmType {
     Empty(0x40),
     ;
         
+    private static final WasmType[] VALUES = values();
+
     private final int encoding;
     private final ValueType valueType;
 
@@ -36,7 +38,7 @@ public enum WasmType {
     }
         
     public static WasmType getInstance(int encoding) {
-        for (WasmType lt:values()) {
+        for (WasmType lt:VALUES) {
             if (encoding == lt.encoding) return lt;
         }
         throw new IllegalArgumentException("unknown encoding for WASM Type - 0x" + Integer.toHexString(encoding));
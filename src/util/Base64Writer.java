@@ -0,0 +1,57 @@
+package util;
+
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+
+// same output as Base64.getEncoder() but reads from a ByteBuffer without copying it
+public class Base64Writer {
+
+    private static final char[] ALPHABET =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+
+    private final char[] chars;
+
+    public Base64Writer(int maxbytes) {
+        this.chars = new char[4 * ((maxbytes + 2) / 3)];
+    }
+
+    // writes remaining bytes of buffer; buffer position is unchanged
+    public void write(PrintWriter pw, ByteBuffer bb) {
+        int start = bb.position();
+        int length = bb.remaining();
+        if (length > 3 * (chars.length / 4)) {
+            String msg = String.format("length %d is more than maximum %d", length, 3 * (chars.length / 4));
+            throw new IllegalArgumentException(msg);
+        }
+        int full = length - length % 3;
+        int n = 0;
+        for (int i = 0; i < full; i += 3) {
+            int bits = Byte.toUnsignedInt(bb.get(start + i)) << 16
+                    | Byte.toUnsignedInt(bb.get(start + i + 1)) << 8
+                    | Byte.toUnsignedInt(bb.get(start + i + 2));
+            chars[n++] = ALPHABET[bits >>> 18];
+            chars[n++] = ALPHABET[(bits >>> 12) & 0x3f];
+            chars[n++] = ALPHABET[(bits >>> 6) & 0x3f];
+            chars[n++] = ALPHABET[bits & 0x3f];
+        }
+        switch (length - full) {
+            case 1:
+                int bits = Byte.toUnsignedInt(bb.get(start + full)) << 16;
+                chars[n++] = ALPHABET[bits >>> 18];
+                chars[n++] = ALPHABET[(bits >>> 12) & 0x3f];
+                chars[n++] = '=';
+                chars[n++] = '=';
+                break;
+            case 2:
+                bits = Byte.toUnsignedInt(bb.get(start + full)) << 16
+                        | Byte.toUnsignedInt(bb.get(start + full + 1)) << 8;
+                chars[n++] = ALPHABET[bits >>> 18];
+                chars[n++] = ALPHABET[(bits >>> 12) & 0x3f];
+                chars[n++] = ALPHABET[(bits >>> 6) & 0x3f];
+                chars[n++] = '=';
+                break;
+        }
+        pw.write(chars, 0, n);
+    }
+
+}
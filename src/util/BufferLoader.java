@@ -0,0 +1,41 @@
+package util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.Logger;
+
+public class BufferLoader {
+
+    // below this size reading into the heap is cheaper than setting up a mapping
+    private static final long MAP_THRESHOLD = 1L << 20;   // 1M
+
+    public static ByteBuffer load(Path path) throws IOException {
+        long start = System.nanoTime();
+        ByteBuffer buffer;
+        String how;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                String msg = String.format("%s is too large (%d bytes)", path, size);
+                throw new IOException(msg);
+            }
+            if (size < MAP_THRESHOLD) {
+                buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+                how = "read";
+            } else {
+                // mapping stays valid after the channel is closed
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                how = "mapped";
+            }
+        }
+        long elapsed = (System.nanoTime() - start)/1_000_000;
+        Logger.getGlobal().info(String.format("%s: %d bytes %s in %d ms",
+                path.getFileName(), buffer.remaining(), how, elapsed));
+        return buffer;
+    }
+
+}
@@ -0,0 +1,33 @@
+package util;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPOutputStream;
+
+public class OutputFile {
+
+    // large enough that a module is written in few system calls
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    // text is gzipped if file name ends with ".gz"; PrintWriter does not throw so use checkError()
+    public static PrintWriter open(Path path) throws IOException {
+        if (path.getFileName().toString().endsWith(".gz")) {
+            OutputStream os = new GZIPOutputStream(Files.newOutputStream(path), BUFFER_SIZE);
+            return new PrintWriter(new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8), BUFFER_SIZE));
+        }
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        return new PrintWriter(new BufferedWriter(
+                Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), BUFFER_SIZE), BUFFER_SIZE));
+    }
+
+}
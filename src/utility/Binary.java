@@ -7,10 +7,22 @@ import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Filter;
 import java.util.logging.Level;
+import java.util.logging.LogRecord;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static parse.Reason.M0;
 import static parse.Reason.M107;
@@ -18,15 +30,48 @@ import static parse.Reason.M999;
 import static utility.State.*;
 
 import parse.ParseException;
+import parse.ParseOptions;
 import parse.Reason;
 
 import parse.WasmModule;
 
+/*
+    module binary tests are validated on a pool of workers
+    log records of a test (including those from the parser) are kept and logged in test order
+*/
 public class Binary {
     
-    private static int otherCount = 0;
-    private static int OKCount = 0;
-    private static int errorCount = 0;
+    private final Path path;
+    private final LongAdder otherCount = new LongAdder();
+    private final LongAdder OKCount = new LongAdder();
+    private final LongAdder errorCount = new LongAdder();
+    private final LongAdder moduleCount = new LongAdder();
+    private final LongAdder moduleBytes = new LongAdder();
+    private final LongAdder moduleNanos = new LongAdder();
+
+    private int notrelevent;
+    private int testct;
+    private long elapsed;
+
+    private Binary(Path path) {
+        this.path = path;
+    }
+
+    private static final ParseOptions VALIDATE = ParseOptions.DEFAULT.withValidateOnly(true);
+    
+    // tests queued ahead of the one being reported
+    private static final int WINDOW_PER_WORKER = 64;
+    
+    private static final ThreadLocal<List<LogRecord>> CAPTURE = new ThreadLocal<>();
+    
+    private static boolean capture(LogRecord record) {
+        List<LogRecord> records = CAPTURE.get();
+        if (records == null) {
+            return true;
+        }
+        records.add(record);
+        return false;
+    }
     
     private static void log(Level loglevel, String name, String comments, Reason expected, Reason actual, String msg) {
         StringWriter sw = new StringWriter();
@@ -42,40 +87,72 @@ public class Binary {
         Logger.getGlobal().log(loglevel, sw.toString());
     }
     
-    private static void check(String name, String comments, Reason expected, Reason actual, String msg) {
+    private void check(String name, String comments, Reason expected, Reason actual, String msg) {
         Level loglevel = Level.INFO;
         if (actual == expected) {
-            ++OKCount;
+            OKCount.increment();
         } else if (expected == M0 || actual == M0) {
-            ++errorCount;
+            errorCount.increment();
             loglevel = Level.SEVERE;
         } else {
-            ++otherCount;
+            otherCount.increment();
             loglevel = Level.WARNING;
         }
         log(loglevel, name, comments, expected, actual, msg);
     }
 
-    private static void test(String comments, String name, Reason expected, String modstr, ByteBuffer bb) {
+    // runs on a worker; returns log records of test
+    private List<LogRecord> test(String comments, String name, Reason expected, String modstr, ByteBuffer bb) {
+        List<LogRecord> records = new ArrayList<>();
+        CAPTURE.set(records);
+        try {
+            test0(comments, name, expected, modstr, bb);
+        } finally {
+            CAPTURE.remove();
+        }
+        return records;
+    }
+    
+    private void test0(String comments, String name, Reason expected, String modstr, ByteBuffer bb) {
+        moduleCount.increment();
+        moduleBytes.add(bb.remaining());
+        long start = System.nanoTime();
         try {
-            Logger.getGlobal().fine(String.format("%s***** %s ***** %s%n    %s",comments,name,expected.reason(),modstr));
-            WasmModule module = WasmModule.getModule(name,bb); // syntax check only
+            if (Logger.getGlobal().isLoggable(Level.FINE)) {
+                Logger.getGlobal().fine(String.format("%s***** %s ***** %s%n    %s",
+                        comments,name,expected.reason(),modstr));
+            }
+            WasmModule module = WasmModule.getModule(name,bb,VALIDATE); // syntax check only
+            moduleNanos.add(System.nanoTime() - start);
             check(name, comments, expected, M0, M0.reason());
         } catch (ParseException ex) {
+            moduleNanos.add(System.nanoTime() - start);
             check(name, comments, expected, ex.reason(), ex.getMessage());
         } catch (BufferUnderflowException ex) {
+            moduleNanos.add(System.nanoTime() - start);
             check(name, comments, expected, M107, ex.toString());
         } catch (Exception ex) {
+            moduleNanos.add(System.nanoTime() - start);
             check(name, comments, expected, M999, ex.toString());
         }
     }
 
+    private static int hexDigit(char ch) {
+        int digit = Character.digit(ch, 16);
+        if (digit < 0) {
+            String msg = String.format("invalid hex digit '%c'", ch);
+            throw new NumberFormatException(msg);
+        }
+        return digit;
+    }
+
     private static ByteBuffer combineQuoted(String modstr) {
         byte[] ba = new byte[modstr.length()];
         int next = 0;
         int x = 0;
         State state = BLANK;
-        for (char ch:modstr.toCharArray()) {
+        for (int i = 0; i < modstr.length(); ++i) {
+            char ch = modstr.charAt(i);
             switch(state) {
                 case BLANK:
                     if (ch == '\"') {
@@ -94,12 +171,12 @@ public class Binary {
                     }
                     break;
                 case SLASH:
-                    x = Integer.valueOf("" + ch, 16);
+                    x = hexDigit(ch);
                     state = SLASH2;
                     break;
                 case SLASH2:
                     x <<= 4;
-                    x += Integer.valueOf("" + ch, 16);
+                    x += hexDigit(ch);
                     ba[next++] = (byte)x;
                     state = QUOTE;
                     break;
@@ -118,55 +195,159 @@ public class Binary {
     }
     
     
-    public static void testFile(Path path) throws IOException {
-        int notrelevent = 0;
-        List<String> lines = Files.readAllLines(path);
-        int testct = 0;
-        for (Expr expr:Expr.parse(lines)) {
-            if (!expr.contains(TestSection.MODULE_BINARY)) {
-                ++notrelevent;
-                continue;
+    // reports tests in order until no more than max are pending
+    private static void drain(Deque<Future<List<LogRecord>>> pending, int max) throws IOException {
+        while (pending.size() > max) {
+            List<LogRecord> records;
+            try {
+                records = pending.removeFirst().get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IOException("test interrupted", ex);
+            } catch (ExecutionException ex) {
+                Throwable cause = ex.getCause();
+                if (cause instanceof Error) {
+                    throw (Error)cause;
+                }
+                throw (RuntimeException)cause;
             }
-            String before = expr.before();
-            Optional<TestSection> optsect = TestSection.getStartInstance(before);
-            if (!optsect.isPresent()) {
-                System.err.println("unknown test section - " + before);
-                continue;
+            for (LogRecord record : records) {
+                Logger.getGlobal().log(record);
             }
-            TestSection section = optsect.get();
-            Reason reason = M0;
-            String comments = expr.comments();
-            switch(section) {
-                case ASSERT_MALFORMED:
-                    String reasonstr = dequote(expr.after());
-                    Optional<Reason> optreason = Reason.getInstance(reasonstr);
-                    if (!optreason.isPresent()) {
-                        ++errorCount;
-                        System.err.println("unknown reason - " + reasonstr);
-                        continue;
-                    }
-                    reason = optreason.get();
-                    before = expr.getChild(0).before();
-                    optsect = TestSection.getStartInstance(before);
-                    if (!optsect.isPresent() || optsect.get() != TestSection.MODULE_BINARY) {
-                        continue;
-                    }
-                    // FALL THROUGH
-                case MODULE_BINARY:
-                    String modstr = before.substring(TestSection.MODULE_BINARY.name().length() + 1);
-                    ByteBuffer bb = combineQuoted(modstr);
-                    ++testct;
-                    String name = "test" + testct;
-                    test(comments, name, reason, modstr, bb);
-                    break;
-                default:
-                    throw new AssertionError();
+        }
+    }
+    
+    private void submit(Expr expr, Deque<Future<List<LogRecord>>> pending,
+            ExecutorService pool, int window) throws IOException {
+        if (!expr.contains(TestSection.MODULE_BINARY)) {
+            ++notrelevent;
+            return;
+        }
+        String before = expr.before();
+        Optional<TestSection> optsect = TestSection.getStartInstance(before);
+        if (!optsect.isPresent()) {
+            drain(pending, 0);
+            System.err.println("unknown test section - " + before);
+            return;
+        }
+        TestSection section = optsect.get();
+        Reason reason = M0;
+        String comments = expr.comments();
+        switch(section) {
+            case ASSERT_MALFORMED:
+                String reasonstr = dequote(expr.after());
+                Optional<Reason> optreason = Reason.getInstance(reasonstr);
+                if (!optreason.isPresent()) {
+                    errorCount.increment();
+                    drain(pending, 0);
+                    System.err.println("unknown reason - " + reasonstr);
+                    return;
+                }
+                reason = optreason.get();
+                before = expr.getChild(0).before();
+                optsect = TestSection.getStartInstance(before);
+                if (!optsect.isPresent() || optsect.get() != TestSection.MODULE_BINARY) {
+                    return;
+                }
+                // FALL THROUGH
+            case MODULE_BINARY:
+                String modstr = before.substring(TestSection.MODULE_BINARY.name().length() + 1);
+                ByteBuffer bb = combineQuoted(modstr);
+                ++testct;
+                String name = "test" + testct;
+                Reason expected = reason;
+                pending.add(pool.submit(() -> test(comments, name, expected, modstr, bb)));
+                drain(pending, window);
+                break;
+            default:
+                throw new AssertionError();
+        }
+    }
+
+    private void testFile(ExecutorService pool, int window) throws IOException {
+        long start = System.nanoTime();
+        Deque<Future<List<LogRecord>>> pending = new ArrayDeque<>();
+        try (ExprReader reader = ExprReader.open(path)) {
+            Expr expr;
+            while ((expr = reader.next()) != null) {
+                submit(expr, pending, pool, window);
             }
         }
+        drain(pending, 0);
+        elapsed = System.nanoTime() - start;
         String endmsg = String.format("filename %s%n OK count = %d, errors = %d, different = %d, not relevant = %d%n",
-                path, OKCount, errorCount, otherCount,notrelevent);
+                path, OKCount.sum(), errorCount.sum(), otherCount.sum(),notrelevent);
         Logger.getGlobal().warning(endmsg);
         System.out.format(endmsg);
+        logRate(moduleCount.sum(), moduleBytes.sum(), moduleNanos.sum(), elapsed);
+    }
+    
+    private static void logRate(long modules, long bytes, long nanos, long elapsed) {
+        double seconds = Math.max(elapsed, 1) / 1e9;
+        Logger.getGlobal().info(String.format(
+                "%d modules (%d bytes) validated in %d ms (elapsed %d ms): %.0f modules/s %.2f MB/s",
+                modules, bytes, nanos/1_000_000, elapsed/1_000_000, modules / seconds, bytes / 1e6 / seconds));
+    }
+    
+    private static List<Path> wastFiles(Path path) throws IOException {
+        if (!Files.isDirectory(path)) {
+            return List.of(path);
+        }
+        try (Stream<Path> paths = Files.walk(path)) {
+            return paths
+                    .filter(Files::isRegularFile)
+                    .filter(p -> p.getFileName().toString().endsWith(".wast"))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+    
+    // a path may be a directory of wast files
+    public static void testFiles(List<Path> paths, int workers) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (Path path : paths) {
+            files.addAll(wastFiles(path));
+        }
+        Logger root = Logger.getGlobal();
+        Filter filter = root.getFilter();
+        root.setFilter(Binary::capture);
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        List<Binary> results = new ArrayList<>();
+        try {
+            for (Path file : files) {
+                Binary binary = new Binary(file);
+                binary.testFile(pool, workers * WINDOW_PER_WORKER);
+                results.add(binary);
+            }
+        } finally {
+            pool.shutdownNow();
+            root.setFilter(filter);
+        }
+        if (results.size() > 1) {
+            long ok = 0;
+            long errors = 0;
+            long different = 0;
+            long notrelevant = 0;
+            long modules = 0;
+            long bytes = 0;
+            long nanos = 0;
+            long elapsed = 0;
+            for (Binary binary : results) {
+                ok += binary.OKCount.sum();
+                errors += binary.errorCount.sum();
+                different += binary.otherCount.sum();
+                notrelevant += binary.notrelevent;
+                modules += binary.moduleCount.sum();
+                bytes += binary.moduleBytes.sum();
+                nanos += binary.moduleNanos.sum();
+                elapsed += binary.elapsed;
+            }
+            String endmsg = String.format("%d files%n OK count = %d, errors = %d, different = %d, not relevant = %d%n",
+                    results.size(), ok, errors, different, notrelevant);
+            Logger.getGlobal().warning(endmsg);
+            System.out.format(endmsg);
+            logRate(modules, bytes, nanos, elapsed);
+        }
     }
     
 }
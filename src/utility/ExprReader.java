@@ -0,0 +1,213 @@
+package utility;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+
+/*
+    reads the top level expressions of a wast file one at a time
+    each is returned as soon as its closing ')' is read so memory used is bounded by
+        the largest expression and not by the size of the file
+    comments are removed a line at a time; lines starting with ";;" outside an expression
+        become the comments of the next expression
+*/
+final class ExprReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final BufferedReader reader;
+    private final ArrayDeque<Expr> ready;
+    private final StringBuilder linesb;
+    private final StringBuilder sb;
+
+    // state of comment removal
+    private int level;
+
+    // state of expression building
+    private Expr current;
+    private char lastc;
+    private boolean quote;
+    private boolean comment;
+
+    ExprReader(ReadableByteChannel channel) {
+        this.reader = new BufferedReader(Channels.newReader(channel, StandardCharsets.UTF_8), BUFFER_SIZE);
+        this.ready = new ArrayDeque<>();
+        this.linesb = new StringBuilder();
+        this.sb = new StringBuilder();
+        this.level = 0;
+        this.current = null;
+        this.lastc = ' ';
+        this.quote = false;
+        this.comment = false;
+    }
+
+    static ExprReader open(Path path) throws IOException {
+        return new ExprReader(FileChannel.open(path, StandardOpenOption.READ));
+    }
+
+    // returns null at end of file; an expression not closed at end of file is ignored
+    Expr next() throws IOException {
+        while (ready.isEmpty()) {
+            String line = reader.readLine();
+            if (line == null) {
+                return null;
+            }
+            removeComments(line);
+        }
+        return ready.removeFirst();
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private void removeComments(String line) {
+        line = line.trim();
+        if (level == 0) {
+            if (line.startsWith(";;")) {
+                accept('\r');
+                for (int i = 0; i < line.length(); ++i) {
+                    accept(line.charAt(i));
+                }
+                accept('\n');
+                return;
+            }
+        }
+        boolean linecomment = false;
+        boolean linequote = false;
+        linesb.setLength(0);
+        for (int i = 0; i < line.length(); ++i) {
+            char c = line.charAt(i);
+            assert c != '\r' &&c != '\n';
+            char next = i + 1 == line.length()?'\n':line.charAt(i + 1);
+            switch (c) {
+                case '\"':
+                    if (level == 0) {
+                        linequote = !linequote;
+                    }
+                    break;
+                case '\\':
+                    if (linequote && next != '\n') {
+                        linesb.append(c);
+                        ++i;
+                        c = next;
+                    }
+                    break;
+                case ' ':
+                    if (!linequote && next == ' ') {
+                        ++i;
+                    }
+                    break;
+                case '(':
+                    if (!linequote && next == ';') {
+                        ++i;
+                        ++level;
+                        continue;
+                    }
+                    break;
+                case ';':
+                    if (!linequote && next == ')') {
+                        ++i;
+                        --level;
+                        assert level >=0:line;
+                        continue;
+                    }
+                    linecomment = !linequote && level == 0 && next == ';';
+                    break;
+            }
+            if (linecomment) {
+                break;
+            }
+            if (level == 0) {
+                linesb.append(c);
+            }
+        }
+        assert !linequote:line;
+        // as String.trim()
+        int start = 0;
+        int end = linesb.length();
+        while (start < end && linesb.charAt(start) <= ' ') {
+            ++start;
+        }
+        while (end > start && linesb.charAt(end - 1) <= ' ') {
+            --end;
+        }
+        if (start < end) {
+            for (int i = start; i < end; ++i) {
+                accept(linesb.charAt(i));
+            }
+            accept(' ');
+        }
+    }
+
+    private void accept(char c) {
+        if (comment) {
+            sb.append(c);
+            if (c == '\n') {
+                comment = false;
+            }
+            return;
+        } else {
+            if (c == '\r') {
+                comment = true;
+                return;
+            }
+        }
+        if (!quote && c == '(') {
+            if (current == null) {
+                current = Expr.getInstance(null,sb.toString());
+            } else {
+                Expr child = Expr.getInstance(current,"");
+                if (!current.after().isEmpty()) {
+                    Expr text = Expr.getInstance(current,"");
+                    text.setAfter(current.after());
+                    current.setAfter("");
+                    current.addChild(text);
+                }
+                current.addChild(child);
+                current = child;
+            }
+            lastc = c;
+            sb.setLength(0);
+            return;
+        }
+        if (!quote && c == ')') {
+            Expr parent = current.getParent();
+            if (parent == null) {
+                ready.addLast(current);
+            }
+            current = parent;
+            lastc = c;
+            sb.setLength(0);
+            return;
+        }
+        if (current == null) {
+            if (Character.isWhitespace(c)) {
+                return;
+            } else {
+                String msg = String.format("character = '%c'%n",c);
+                throw new AssertionError(msg);
+            }
+        }
+        switch(lastc) {
+            case '(':
+                current.addBeforeChar(c);
+                break;
+            case ')':
+                current.addAfterChar(c);
+                break;
+        }
+        if (c == '\"') {
+            quote = !quote;
+        }
+    }
+
+}
@@ -20,6 +20,10 @@ public class InvokeInstruction extends SimpleInstruction {
         this.obj = obj;
     }
 
+    public int getIndex() {
+        return imm.intValue();
+    }
+
     public Object getObject() {
         return obj;
     }
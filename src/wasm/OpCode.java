@@ -1,5 +1,6 @@
 package wasm;
 
+import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.Map;
@@ -364,6 +365,16 @@ public enum OpCode {
     private final OpType optype;
     private final Feature feature;
 
+    // derived from name()
+    private final boolean unsigned;
+    private final ValueType prefix;
+    private final ValueType signedPrefix;
+    private final ValueType suffix;
+    private final ValueType memType;
+    private final String compareName;
+    private final String wasmOp;
+    private final String opName;
+
     private OpCode(int code, OpType optype) {
         this(code, optype, MVP);
     }
@@ -372,15 +383,44 @@ public enum OpCode {
         this.code = code;
         this.optype = optype;
         this.feature = feature;
+        String name = name();
+        this.unsigned = unsignedOf(name);
+        this.prefix = prefixOf(name);
+        this.signedPrefix = signedPrefixOf(name, prefix);
+        this.suffix = suffixOf(name);
+        this.memType = memTypeOf(name, prefix);
+        this.compareName = compareNameOf(name, prefix);
+        this.wasmOp = wasmOpOf(name);
+        this.opName = opNameOf(name, prefix);
     }
 
-    private final static Map<Integer,OpCode> table;
+    private static final int FC_PREFIX = 0xfc;
+    
+    // single byte opcodes, 0xfc prefixed opcodes and compound opcodes
+    private final static OpCode[] SINGLE = new OpCode[256];
+    private final static OpCode[] FC_PREFIXED;
+    private final static Map<Integer,OpCode> COMPOUND = new HashMap<>();
     
     static {
-        table = new HashMap<>();
+        int fcmax = -1;
+        for (OpCode opc:values()) {
+            if (opc.code >>> 16 == FC_PREFIX) {
+                fcmax = Math.max(fcmax, opc.code & 0xffff);
+            }
+        }
+        FC_PREFIXED = new OpCode[fcmax + 1];
         for (OpCode opc:values()) {
             int index = opc.code;
-            OpCode dup = table.put(index,opc);
+            OpCode dup;
+            if (index < SINGLE.length) {
+                dup = SINGLE[index];
+                SINGLE[index] = opc;
+            } else if (index >>> 16 == FC_PREFIX) {
+                dup = FC_PREFIXED[index & 0xffff];
+                FC_PREFIXED[index & 0xffff] = opc;
+            } else {
+                dup = COMPOUND.put(index,opc);
+            }
             if (dup != null) {
                 String msg = String.format("duplicate code = %d for %s and %s%n",
                         index, opc, dup);
@@ -404,7 +444,15 @@ public enum OpCode {
     }
 
     public static OpCode getInstance(int inst) {
-        OpCode opcode = table.get(inst);
+        OpCode opcode;
+        if (inst >= 0 && inst < SINGLE.length) {
+            opcode = SINGLE[inst];
+        } else if (inst >>> 16 == FC_PREFIX) {
+            int extension = inst & 0xffff;
+            opcode = extension < FC_PREFIXED.length? FC_PREFIXED[extension]: null;
+        } else {
+            opcode = COMPOUND.get(inst);
+        }
         if (opcode == null) {
             throw new IllegalArgumentException("unknown opcode - " + Integer.toHexString(inst));
         }
@@ -434,29 +482,62 @@ public enum OpCode {
     }
     
     public boolean isUnsigned() {
-        return name().endsWith("_U") || name().contains("_U_");
+        return unsigned;
     }
     
     public ValueType getPrefix() {
-        int index = name().indexOf('_');
+        return prefix;
+    }
+    
+    public ValueType getSignedPrefix() {
+        return signedPrefix;
+    }
+    
+    public ValueType getSuffix() {
+        return suffix;
+    }
+
+    public ValueType getMemType() {
+        return memType;
+    }
+    
+    public String getCompareName() {
+        assert optype == COMPARE;
+        return compareName;
+    }
+
+    public String getWasmOp() {
+        return wasmOp;
+    }
+
+    public String getOpName() {
+        return opName;
+    }
+
+    private static boolean unsignedOf(String name) {
+        return name.endsWith("_U") || name.contains("_U_");
+    }
+    
+    private static ValueType prefixOf(String name) {
+        int index = name.indexOf('_');
         if (index >= 0) {
-            String prefix = name().substring(0, index);
+            String prefix = name.substring(0, index);
             return ValueType.getInstance(prefix);
         }
         return null;
     }
     
-    public ValueType getSignedPrefix() {
-        ValueType vt = getPrefix();
+    private static ValueType signedPrefixOf(String name, ValueType prefix) {
+        ValueType vt = prefix;
         if (vt != null) {
-            boolean unsigned = name().endsWith("_U");
+            boolean unsigned = name.endsWith("_U");
             if (unsigned) vt = vt.getUnsigned();
         }
         return vt;
     }
     
-    public ValueType getSuffix() {
-        String suffix = name();
+    private static ValueType suffixOf(String name) {
+        String suffix = name;
         if (suffix.endsWith("_S") || suffix.endsWith("_U")) {
             suffix = suffix.substring(0, suffix.length() - 2);
         }
@@ -468,12 +549,12 @@ public enum OpCode {
         return null;
     }
 
-    public ValueType getMemType() {
-        boolean signed = name().endsWith("_S");
-        boolean unsigned = name().endsWith("_U");
-        String memtype = name();
+    private static ValueType memTypeOf(String name, ValueType prefix) {
+        boolean signed = name.endsWith("_S");
+        boolean unsigned = name.endsWith("_U");
+        String memtype = name;
         if (signed || unsigned) memtype = memtype.substring(0, memtype.length() - 2);
-        ValueType result = getPrefix();
+        ValueType result = prefix;
         if (memtype.endsWith("8")) {
             result = I08;
         } else if (memtype.endsWith("16")) {
@@ -485,10 +566,9 @@ public enum OpCode {
         return result;
     }
     
-    public String getCompareName() {
-        assert optype == COMPARE;
-        String cmpname = name();
-        if (getPrefix() != null) {
+    private static String compareNameOf(String name, ValueType prefix) {
+        String cmpname = name;
+        if (prefix != null) {
             cmpname = cmpname.substring(4);
         }
         if (cmpname.endsWith("_U") || cmpname.endsWith("_S")) {
@@ -497,12 +577,12 @@ public enum OpCode {
         return cmpname.toLowerCase();
     }
 
-    public String getWasmOp() {
-        String wasmop = name();
-        switch(this) {
-            case BR_IF:
-            case BR_TABLE:
-            case CALL_INDIRECT:
+    private static String wasmOpOf(String name) {
+        String wasmop = name;
+        switch(name) {
+            case "BR_IF":
+            case "BR_TABLE":
+            case "CALL_INDIRECT":
                 break;
             default:
                 int index = wasmop.indexOf('_');
@@ -514,14 +594,9 @@ public enum OpCode {
         return wasmop.toLowerCase();
     }
 
-    public static OpCode fromWasmOp(String wasmop) {
-        String opcode = wasmop.replace(".", "_").toUpperCase();
-        return OpCode.valueOf(opcode);
-    }
-    
-    public String getOpName() {
-        String opname = name();
-        if (getPrefix() != null) {
+    private static String opNameOf(String name, ValueType prefix) {
+        String opname = name;
+        if (prefix != null) {
             opname = opname.substring(4);
         }
         int index = opname.lastIndexOf('_');
@@ -533,5 +608,11 @@ public enum OpCode {
         }
         return opname;
     }
+
+    public static OpCode fromWasmOp(String wasmop) {
+        String opcode = wasmop.replace(".", "_").toUpperCase();
+        return OpCode.valueOf(opcode);
+    }
+    
     
 }
@@ -0,0 +1,521 @@
+package wasm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import static parse.ValueType.V00;
+
+import parse.BranchTarget;
+import parse.FnType;
+import parse.Op;
+import parse.ValueType;
+
+/*
+    function body as parallel arrays instead of one object per instruction
+    ops[i] = opcode ordinal | fntype pool index << OPCODE_BITS
+    imms[i] depends on OpType
+        CONTROL, COMPARE_IF     blocktype ordinal or -1 - objects index of dropped Op
+        BRANCH, COMPARE_BRIF    targets index
+        BRANCH_TABLE            targets index | count << 32
+        CONST                   value (I32, I64) or objects index (F32, F64)
+        MEMLOAD, MEMSTORE       offset | alignment << 32
+        MEMFN                   memidx1 | memidx2 << 32
+        VARIABLE, INVOKE        index | objects index << 32
+    FnTypes are shared within the function
+*/
+public final class PackedCode {
+
+    private static final OpCode[] OPCODES = OpCode.values();
+    private static final ValueType[] VALUETYPES = ValueType.values();
+    private static final int OPCODE_BITS = 10;
+    private static final int OPCODE_MASK = (1 << OPCODE_BITS) - 1;
+
+    static {
+        assert OPCODES.length <= OPCODE_MASK + 1;
+    }
+
+    private final int[] ops;
+    private final long[] imms;
+    private final FnType[] fntypes;
+    private final BranchTarget[] targets;
+    private final Object[] objects;
+    private final int maxStack;
+    private final int endStack;
+
+    private PackedCode(int[] ops, long[] imms, FnType[] fntypes, BranchTarget[] targets, Object[] objects) {
+        this.ops = ops;
+        this.imms = imms;
+        this.fntypes = fntypes;
+        this.targets = targets;
+        this.objects = objects;
+        // each op is applied to the stack as its FnType (as ValueTypeStack.adjustStack) so
+        //  validated code needs no type stack to find its maximum and final sizes
+        int[] changes = new int[fntypes.length];
+        for (int i = 0; i < fntypes.length; ++i) {
+            changes[i] = fntypes[i].stackChange();
+        }
+        int current = 0;
+        int max = 0;
+        for (int op : ops) {
+            current += changes[op >>> OPCODE_BITS];
+            max = Math.max(max, current);
+        }
+        this.maxStack = max;
+        this.endStack = current;
+    }
+
+    public int size() {
+        return ops.length;
+    }
+
+    // in slots (I64 and F64 use two)
+    public int maxStack() {
+        return maxStack;
+    }
+
+    // in slots ; size of stack after the last op
+    public int endStack() {
+        return endStack;
+    }
+
+    // for writing to a cache; see of(...) for the layout
+    public int[] ops() {
+        return ops.clone();
+    }
+
+    public long[] imms() {
+        return imms.clone();
+    }
+
+    public FnType[] fntypes() {
+        return fntypes.clone();
+    }
+
+    public BranchTarget[] targets() {
+        return targets.clone();
+    }
+
+    public Object[] objects() {
+        return objects.clone();
+    }
+
+    // arrays are not copied
+    public static PackedCode of(int[] ops, long[] imms, FnType[] fntypes, BranchTarget[] targets, Object[] objects) {
+        if (ops.length != imms.length) {
+            String msg = String.format("number of ops (%d) differs from number of immediates (%d)",
+                    ops.length, imms.length);
+            throw new IllegalArgumentException(msg);
+        }
+        for (int op : ops) {
+            if ((op & OPCODE_MASK) >= OPCODES.length || op >>> OPCODE_BITS >= fntypes.length) {
+                String msg = String.format("invalid packed op %#x", op);
+                throw new IllegalArgumentException(msg);
+            }
+        }
+        return new PackedCode(ops, imms, fntypes, targets, objects);
+    }
+
+    public Cursor cursor() {
+        return new Cursor(this);
+    }
+
+    // estimate of heap used by arrays and pools (not shared objects they refer to)
+    public long footprint() {
+        long arrays = 16 + 4L * ops.length + 16 + 8L * imms.length;
+        long pools = 16 + 4L * (fntypes.length + targets.length + objects.length);
+        return arrays + pools;
+    }
+
+    public static final class Cursor {
+
+        private final PackedCode code;
+        private int pos;
+
+        private Cursor(PackedCode code) {
+            this.code = code;
+            this.pos = -1;
+        }
+
+        public boolean next() {
+            if (pos + 1 < code.ops.length) {
+                ++pos;
+                return true;
+            }
+            return false;
+        }
+
+        public int position() {
+            return pos;
+        }
+
+        public void position(int newpos) {
+            if (newpos < 0 || newpos >= code.ops.length) {
+                throw new IndexOutOfBoundsException(newpos);
+            }
+            pos = newpos;
+        }
+
+        public OpCode getOpCode() {
+            return OPCODES[code.ops[pos] & OPCODE_MASK];
+        }
+
+        public OpType getOpType() {
+            return getOpCode().getOpType();
+        }
+
+        public FnType getFnType() {
+            return code.fntypes[code.ops[pos] >>> OPCODE_BITS];
+        }
+
+        private long imm() {
+            return code.imms[pos];
+        }
+
+        private int low() {
+            return (int)imm();
+        }
+
+        private int high() {
+            return (int)(imm() >>> 32);
+        }
+
+        // dropped unreachable instruction
+        public boolean isUnreachableOp() {
+            OpType optype = getOpType();
+            return (optype == OpType.CONTROL || optype == OpType.COMPARE_IF) && imm() < 0;
+        }
+
+        public Op getUnreachableOp() {
+            assert isUnreachableOp();
+            return (Op)code.objects[(int)(-1 - imm())];
+        }
+
+        public boolean isControl() {
+            OpType optype = getOpType();
+            return (optype == OpType.CONTROL || optype == OpType.COMPARE_IF) && imm() >= 0;
+        }
+
+        public boolean isBranch() {
+            OpType optype = getOpType();
+            return optype == OpType.BRANCH || optype == OpType.COMPARE_BRIF;
+        }
+
+        public BranchTarget getTarget() {
+            assert isBranch();
+            return code.targets[low()];
+        }
+
+        public int getTargetCount() {
+            assert getOpType() == OpType.BRANCH_TABLE;
+            return high();
+        }
+
+        public BranchTarget getTarget(int index) {
+            assert getOpType() == OpType.BRANCH_TABLE;
+            if (index < 0 || index >= high()) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return code.targets[low() + index];
+        }
+
+        public ValueType getBlockType() {
+            if (isControl()) {
+                return VALUETYPES[low()];
+            }
+            if (isBranch()) {
+                return getTarget().getUnwind().getRtype();
+            }
+            if (getOpType() == OpType.BRANCH_TABLE) {
+                int count = getTargetCount();
+                if (count == 0) {
+                    return V00;
+                }
+                ValueType result = getTarget(0).getUnwind().getRtype();
+                for (int i = 1; i < count; ++i) {
+                    ValueType vti = getTarget(i).getUnwind().getRtype();
+                    if (!vti.isCompatible(result)) {
+                        String msg = String.format("target at pos %d is %s which differs from first %s",i,vti,result);
+                        throw new IllegalStateException(msg);
+                    }
+                }
+                return result;
+            }
+            throw new UnsupportedOperationException();
+        }
+
+        public Number getConstant() {
+            assert getOpType() == OpType.CONST;
+            switch (getOpCode()) {
+                case I32_CONST:
+                    return low();
+                case I64_CONST:
+                    return imm();
+                default:
+                    return (Number)code.objects[low()];
+            }
+        }
+
+        public int getMemoryNumber() {
+            return 0;
+        }
+
+        public int getOffset() {
+            return low();
+        }
+
+        public int getAlignment() {
+            return high();
+        }
+
+        public int memidx1() {
+            return low();
+        }
+
+        public int memidx2() {
+            assert getOpCode() == OpCode.MEMORY_COPY;
+            return high();
+        }
+
+        public int getIndex() {
+            return low();
+        }
+
+        public Object getObject() {
+            assert getOpType() == OpType.VARIABLE || getOpType() == OpType.INVOKE;
+            return code.objects[high()];
+        }
+
+        public Instruction instruction() {
+            OpCode opcode = getOpCode();
+            FnType fntype = getFnType();
+            switch (opcode.getOpType()) {
+                case CONTROL:
+                case COMPARE_IF:
+                    if (isUnreachableOp()) {
+                        return new UnreachableInstruction(getUnreachableOp());
+                    }
+                    return new ControlInstruction(opcode, fntype, getBlockType());
+                case BRANCH:
+                case COMPARE_BRIF:
+                    return new BranchInstruction(opcode, fntype, getTarget());
+                case BRANCH_TABLE:
+                    int from = low();
+                    BranchTarget[] brtargets = Arrays.copyOfRange(code.targets, from, from + high());
+                    return new BrTableInstruction(opcode, fntype, brtargets);
+                case CONST:
+                    return new ConstantInstruction(opcode, fntype, getConstant());
+                case MEMLOAD:
+                case MEMSTORE:
+                    return new MemoryInstruction(opcode, fntype, opcode.getMemType(), getOffset(), getAlignment());
+                case MEMFN:
+                    return new MemoryFunctionInstruction(opcode, fntype, low(), high());
+                case VARIABLE:
+                    return new VariableInstruction(opcode, fntype, getIndex(), getObject());
+                case INVOKE:
+                    return new InvokeInstruction(opcode, fntype, getIndex(), getObject());
+                default:
+                    return new SimpleInstruction(opcode, fntype);
+            }
+        }
+
+        // same as toString() of instruction()
+        @Override
+        public String toString() {
+            OpCode opcode = getOpCode();
+            String simple = opcode.getWasmOp();
+            switch (opcode.getOpType()) {
+                case CONTROL:
+                case COMPARE_IF:
+                    if (isUnreachableOp()) {
+                        return String.format("%s is %s",getUnreachableOp(),simple);
+                    }
+                    ValueType blocktype = getBlockType();
+                    return blocktype == V00? simple: simple + " (" + blocktype + ")";
+                case BRANCH:
+                case COMPARE_BRIF:
+                    return simple + " " + getTarget().getBr2level();
+                case BRANCH_TABLE:
+                    return simple + " " + getTargetCount();
+                case CONST:
+                    return simple + " " + getConstant();
+                case MEMLOAD:
+                case MEMSTORE:
+                    int offset = getOffset();
+                    int alignment = getAlignment();
+                    String o = offset == 0?"":" offset=" + offset;
+                    String a = alignment == opcode.getMemType().alignment()?"":" align=" + alignment;
+                    return simple + o + a;
+                case MEMFN:
+                    String idx2str = opcode == OpCode.MEMORY_COPY? "  " + high(): "";
+                    return simple + " " + low() + idx2str;
+                case VARIABLE:
+                case INVOKE:
+                    return simple + " " + getIndex();
+                default:
+                    return simple;
+            }
+        }
+    }
+
+    public static final class Builder {
+
+        private int[] ops;
+        private long[] imms;
+        private int size;
+        private final ArrayList<FnType> fntypes = new ArrayList<>();
+        private final Map<FnType,Integer> fnindex = new HashMap<>();
+        private final ArrayList<BranchTarget> targets = new ArrayList<>();
+        private final ArrayList<Object> objects = new ArrayList<>();
+        private final Map<Object,Integer> objindex = new IdentityHashMap<>();
+
+        public Builder(int capacity) {
+            capacity = Math.max(capacity, 16);
+            this.ops = new int[capacity];
+            this.imms = new long[capacity];
+            this.size = 0;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        private void add(OpCode opcode, FnType fntype, long imm) {
+            if (size == ops.length) {
+                int newlength = 2 * size;
+                ops = Arrays.copyOf(ops, newlength);
+                imms = Arrays.copyOf(imms, newlength);
+            }
+            int fnidx = fnindex.computeIfAbsent(fntype, k -> {
+                fntypes.add(k);
+                return fntypes.size() - 1;
+            });
+            if (fnidx >= 1 << (32 - OPCODE_BITS - 1)) {
+                throw new IllegalStateException("too many different function types in function");
+            }
+            ops[size] = opcode.ordinal() | fnidx << OPCODE_BITS;
+            imms[size] = imm;
+            ++size;
+        }
+
+        private int object(Object obj) {
+            return objindex.computeIfAbsent(obj, k -> {
+                objects.add(k);
+                return objects.size() - 1;
+            });
+        }
+
+        private static long pack(int low, int high) {
+            return Integer.toUnsignedLong(low) | (long)high << 32;
+        }
+
+        private void addTargets(OpCode opcode, FnType fntype, BranchTarget[] brtargets, int from, int count) {
+            int start = targets.size();
+            for (int i = 0; i < count; ++i) {
+                targets.add(brtargets[from + i]);
+            }
+            add(opcode, fntype, pack(start, count));
+        }
+
+        private void addConstant(OpCode opcode, FnType fntype, Number value) {
+            switch (opcode) {
+                case I32_CONST:
+                    add(opcode, fntype, value.intValue());
+                    break;
+                case I64_CONST:
+                    add(opcode, fntype, value.longValue());
+                    break;
+                default:
+                    // kept as object so NaN payloads are unchanged
+                    objects.add(value);
+                    add(opcode, fntype, objects.size() - 1);
+                    break;
+            }
+        }
+
+        public void add(Instruction inst) {
+            OpCode opcode = inst.getOpCode();
+            FnType fntype = inst.getFnType();
+            if (inst instanceof UnreachableInstruction unreachable) {
+                objects.add(unreachable.getOp());
+                add(opcode, fntype, -objects.size());
+            } else if (inst instanceof ControlInstruction) {
+                add(opcode, fntype, inst.getBlockType().ordinal());
+            } else if (inst instanceof BranchInstruction brinst) {
+                targets.add(brinst.getTarget());
+                add(opcode, fntype, targets.size() - 1);
+            } else if (inst instanceof BrTableInstruction tabinst) {
+                BranchTarget[] brtargets = tabinst.getTargets();
+                addTargets(opcode, fntype, brtargets, 0, brtargets.length);
+            } else if (inst instanceof ConstantInstruction constinst) {
+                addConstant(opcode, fntype, constinst.getConstant());
+            } else if (inst instanceof MemoryInstruction meminst) {
+                add(opcode, fntype, pack(meminst.getOffset(), meminst.getAlignment()));
+            } else if (inst instanceof MemoryFunctionInstruction memfninst) {
+                int memidx2 = opcode == OpCode.MEMORY_COPY? memfninst.memidx2(): 0;
+                add(opcode, fntype, pack(memfninst.memidx1(), memidx2));
+            } else if (inst instanceof VariableInstruction varinst) {
+                add(opcode, fntype, pack(varinst.getIndex(), object(varinst.getObject())));
+            } else if (inst instanceof InvokeInstruction invinst) {
+                add(opcode, fntype, pack(invinst.getIndex(), object(invinst.getObject())));
+            } else {
+                add(opcode, fntype, 0L);
+            }
+        }
+
+        // copy instruction at cursor
+        public void add(Cursor cursor) {
+            add(cursor, cursor.getOpCode(), cursor.getFnType());
+        }
+
+        // compare instruction combined with following IF, BR_IF or SELECT
+        public void addCombined(Cursor compare, Cursor next) {
+            assert compare.getOpType() == OpType.COMPARE;
+            int code = (compare.getOpCode().getCode() << 8) | next.getOpCode().getCode();
+            OpCode opcode = OpCode.getInstance(code);
+            FnType fntype = compare.getFnType().combine(next.getFnType());
+            add(next, opcode, fntype);
+        }
+
+        private void add(Cursor cursor, OpCode opcode, FnType fntype) {
+            PackedCode from = cursor.code;
+            switch (cursor.getOpType()) {
+                case CONTROL:
+                case COMPARE_IF:
+                    if (cursor.isUnreachableOp()) {
+                        objects.add(cursor.getUnreachableOp());
+                        add(opcode, fntype, -objects.size());
+                    } else {
+                        add(opcode, fntype, cursor.imm());
+                    }
+                    break;
+                case BRANCH:
+                case COMPARE_BRIF:
+                    targets.add(cursor.getTarget());
+                    add(opcode, fntype, targets.size() - 1);
+                    break;
+                case BRANCH_TABLE:
+                    addTargets(opcode, fntype, from.targets, cursor.low(), cursor.high());
+                    break;
+                case CONST:
+                    addConstant(opcode, fntype, cursor.getConstant());
+                    break;
+                case VARIABLE:
+                case INVOKE:
+                    add(opcode, fntype, pack(cursor.low(), object(cursor.getObject())));
+                    break;
+                default:
+                    add(opcode, fntype, cursor.imm());
+                    break;
+            }
+        }
+
+        public PackedCode build() {
+            return new PackedCode(Arrays.copyOf(ops, size), Arrays.copyOf(imms, size),
+                    fntypes.toArray(new FnType[0]), targets.toArray(new BranchTarget[0]), objects.toArray());
+        }
+    }
+
+}
@@ -21,6 +21,10 @@ public class VariableInstruction extends SimpleInstruction {
         this.obj = obj;
     }
 
+    public int getIndex() {
+        return imm.intValue();
+    }
+
     public Object getObject() {
         return obj;
     }
@@ -0,0 +1,47 @@
+package com.github.david32768.jynxwasm32;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/*
+    BATCH gives the same .jx files as 2JYNX ; a file that fails does not stop the others and leaves no output
+    a file whose .jx would overwrite that of an earlier file fails
+*/
+class BatchTests {
+
+    private static final List<String> FILES = List.of("small", "funcs", "funcs.bad", "ifret", "dl");
+
+    private final TestRun run;
+
+    BatchTests(TestRun run) {
+        this.run = run;
+    }
+
+    void run() throws IOException, InterruptedException {
+        Path in = run.tempDir("batch");
+        for (String name : FILES) {
+            Path dir = Files.createDirectories(in.resolve(name.equals("small")? ".": "sub"));
+            Files.copy(run.fixture(name + ".wasm"), dir.resolve(name + ".wasm"));
+        }
+        Path out = run.tempDir("batch.out");
+        TestRun.Result result = run.tool("BATCH", "--WORKERS", "3", "--OUTPUT_DIR", out.toString(), in.toString());
+        run.check("BATCH summary", result.out.contains("files = 5 converted = 4 failed = 1"), result.out);
+        run.same("BATCH small", run.golden("small.jx"), Files.readString(out.resolve("small.jx")));
+        run.same("BATCH ifret", run.golden("ifret.jx"), Files.readString(out.resolve("sub/ifret.jx")));
+        run.same("BATCH dl", run.golden("dl.jx"), Files.readString(out.resolve("sub/dl.jx")));
+        run.same("BATCH funcs", run.tool("2JYNX", "funcs.wasm").out, Files.readString(out.resolve("sub/funcs.jx")));
+        run.check("BATCH failed file has no output", !Files.exists(out.resolve("sub/funcs.bad.jx")), result.out);
+
+        Path list = Files.createDirectories(in.resolve("list")).resolve("files.txt");
+        Files.copy(run.fixture("small.wasm"), list.resolveSibling("small.wasm"));
+        Files.writeString(list, "# outside the list directory\nsmall.wasm\n../small.wasm\n");
+        Path listout = run.tempDir("batch.list");
+        result = run.tool("BATCH", "--OUTPUT_DIR", listout.toString(), list.toString());
+        run.check("BATCH clashing outputs", result.out.contains("converted = 1 failed = 1")
+                && result.out.contains("is also output of"), result.out);
+        run.same("BATCH first of clash", run.golden("small.jx"), Files.readString(listout.resolve("small.jx")));
+    }
+
+}
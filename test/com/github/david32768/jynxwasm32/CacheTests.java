@@ -0,0 +1,52 @@
+package com.github.david32768.jynxwasm32;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+/*
+    a module loaded from the cache gives the same output as one that is parsed
+    a cache file that cannot be read is ignored and the module is parsed again
+*/
+class CacheTests {
+
+    private final TestRun run;
+
+    CacheTests(TestRun run) {
+        this.run = run;
+    }
+
+    private void check(String wasm, String goldname, Path cache) throws IOException, InterruptedException {
+        String expected = run.golden(goldname);
+        for (int i = 1; i <= 2; ++i) {
+            TestRun.Result result = run.tool("2JYNX", "--LEVEL", "INFO", "--CACHE", cache.toString(), wasm);
+            run.same("2JYNX --CACHE " + wasm + " run " + i, expected, result.out);
+            String stats = i == 1? "hits = 0": "hits = 1";
+            run.check("2JYNX --CACHE " + wasm + " stats " + i, result.err.contains(stats), result.err);
+        }
+    }
+
+    void run() throws IOException, InterruptedException {
+        Path cache = run.tempDir("cache");
+        check("small.wasm", "small.jx", cache);
+        check("dl.wasm", "dl.jx", cache);
+
+        List<Path> files;
+        try (Stream<Path> paths = Files.list(cache)) {
+            files = paths.toList();
+        }
+        run.check("2JYNX --CACHE file per module", files.size() == 2, files.toString());
+        for (Path file : files) {
+            byte[] bytes = Files.readAllBytes(file);
+            Files.write(file, Arrays.copyOf(bytes, bytes.length / 2));
+        }
+        TestRun.Result result = run.tool("2JYNX", "--LEVEL", "INFO", "--CACHE", cache.toString(), "small.wasm");
+        run.same("2JYNX --CACHE truncated file", run.golden("small.jx"), result.out);
+        run.check("2JYNX --CACHE truncated file ignored",
+                result.err.contains("ignored") && result.err.contains("hits = 0"), result.err);
+    }
+
+}
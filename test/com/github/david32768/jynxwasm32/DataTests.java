@@ -0,0 +1,172 @@
+package com.github.david32768.jynxwasm32;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Random;
+
+import util.Base64Writer;
+
+/*
+    data segments are printed in chunks of base64 that must give back the bytes of the segment
+    memory init is split into methods of at most 1000 chunks called in order
+    --ZERO_RUN merges adjacent and overlapping segments and leaves out long zero runs
+*/
+class DataTests {
+
+    private static final int MAX_SEGMENT = 720; // as JynxModule
+    private static final int MAX_CHUNKS = 1000; // as JynxModule
+    private static final int PAGE_SIZE = 1 << 16;
+
+    private final TestRun run;
+
+    DataTests(TestRun run) {
+        this.run = run;
+    }
+
+    private void base64() {
+        Random random = new Random(1);
+        Base64Writer writer = new Base64Writer(MAX_SEGMENT);
+        StringBuilder differ = new StringBuilder();
+        for (int length = 0; length <= MAX_SEGMENT; length += length < 16? 1: 101) {
+            byte[] bytes = new byte[length + 7];
+            random.nextBytes(bytes);
+            // a view not at the start of its buffer as data segments are
+            ByteBuffer bb = ByteBuffer.wrap(bytes).slice(7, length);
+            StringWriter sw = new StringWriter();
+            try (PrintWriter pw = new PrintWriter(sw)) {
+                writer.write(pw, bb);
+            }
+            byte[] part = Arrays.copyOfRange(bytes, 7, 7 + length);
+            String expected = Base64.getEncoder().encodeToString(part);
+            if (!expected.equals(sw.toString()) || bb.position() != 0) {
+                differ.append(length).append(' ');
+            }
+        }
+        run.check("Base64Writer same as Base64.getEncoder", differ.length() == 0, differ.toString());
+    }
+
+    private static void leb(ByteArrayOutputStream out, int value) {
+        while (value >= 0x80) {
+            out.write(value & 0x7f | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static void section(ByteArrayOutputStream out, int id, byte[] payload) {
+        out.write(id);
+        leb(out, payload.length);
+        out.writeBytes(payload);
+    }
+
+    // memory large enough for one data segment at offset 16
+    private static byte[] module(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(new byte[]{0, 'a', 's', 'm', 1, 0, 0, 0});
+        ByteArrayOutputStream memory = new ByteArrayOutputStream();
+        memory.writeBytes(new byte[]{1, 0});
+        leb(memory, (16 + data.length) / PAGE_SIZE + 1);
+        section(out, 5, memory.toByteArray());
+        ByteArrayOutputStream segment = new ByteArrayOutputStream();
+        segment.writeBytes(new byte[]{1, 0, 0x41, 16, 0x0b});
+        leb(segment, data.length);
+        segment.writeBytes(data);
+        section(out, 11, segment.toByteArray());
+        return out.toByteArray();
+    }
+
+    // bytes of each STRING_CONST placed at the offset of the BASE64_STORE that follows it
+    private static byte[] stored(String jynx, int size) {
+        byte[] result = new byte[size];
+        byte[] pending = null;
+        for (String line : jynx.split("\n")) {
+            String[] words = line.trim().split(" ");
+            if (words[0].equals("STRING_CONST")) {
+                pending = Base64.getDecoder().decode(words[1].replace("\"", ""));
+            } else if (words[0].equals("BASE64_STORE")) {
+                int offset = Integer.parseInt(words[2].substring(1));
+                System.arraycopy(pending, 0, result, offset, pending.length);
+            }
+        }
+        return result;
+    }
+
+    // first page of memory after the stores ; each store is at the offset of the I32_CONST before it
+    private static byte[] image(String jynx) {
+        byte[] result = new byte[PAGE_SIZE];
+        int base = 0;
+        byte[] pending = null;
+        for (String line : jynx.split("\n")) {
+            String[] words = line.trim().split(" ");
+            if (words[0].equals("I32_CONST")) {
+                base = Integer.parseInt(words[1]);
+            } else if (words[0].equals("STRING_CONST")) {
+                pending = Base64.getDecoder().decode(words[1].replace("\"", ""));
+            } else if (words[0].equals("BASE64_STORE")) {
+                int offset = base + Integer.parseInt(words[2].substring(1));
+                System.arraycopy(pending, 0, result, offset, pending.length);
+            }
+        }
+        return result;
+    }
+
+    void run() throws IOException, InterruptedException {
+        base64();
+
+        TestRun.Result result = run.tool("2JYNX", "dl.wasm");
+        run.check("2JYNX dl exit code", result.exitCode == 0, result.err);
+        run.golden("2JYNX dl", "dl.jx", result.out);
+        result = run.tool("2JYNX", "--LEVEL", "INFO", "--ZERO_RUN", "64", "dl.wasm");
+        run.check("2JYNX --ZERO_RUN 64 dl bytes saved", result.err.contains("bytes saved"), result.err);
+        run.golden("2JYNX --ZERO_RUN 64 dl", "dl.zero64.jx", result.out);
+        run.check("2JYNX --ZERO_RUN 64 dl same memory", Arrays.equals(image(run.golden("dl.jx")), image(result.out)),
+                "differ");
+
+        // several chunks and a short last one
+        byte[] data = new byte[4 * MAX_SEGMENT + 121];
+        new Random(2).nextBytes(data);
+        Path wasm = run.tempDir("data").resolve("big.wasm");
+        Files.write(wasm, module(data));
+        result = run.tool("2JYNX", wasm.toString());
+        run.check("2JYNX big data exit code", result.exitCode == 0, result.err);
+        run.check("2JYNX big data has five chunks", result.out.split("BASE64_STORE", -1).length == 6, result.out);
+        run.check("2JYNX big data chunks give back the segment",
+                Arrays.equals(data, stored(result.out, data.length)),
+                result.out);
+
+        // more chunks than one method can store
+        data = new byte[2 * MAX_CHUNKS * MAX_SEGMENT + 300];
+        new Random(3).nextBytes(data);
+        wasm = wasm.resolveSibling("huge.wasm");
+        Files.write(wasm, module(data));
+        result = run.tool("2JYNX", wasm.toString());
+        run.check("2JYNX huge data exit code", result.exitCode == 0, result.err);
+        String[] methods = result.out.split("\n\\.method ");
+        StringBuilder parts = new StringBuilder();
+        for (String method : methods) {
+            if (method.startsWith("private static __init__Memory")) {
+                int chunks = method.split("BASE64_STORE", -1).length - 1;
+                parts.append(method, 0, method.indexOf('\n')).append(' ').append(chunks).append('\n');
+            }
+        }
+        run.same("2JYNX huge data init methods", String.join("\n",
+                "private static __init__Memory__0()V 0",
+                "private static __init__Memory__0$1()V 1000",
+                "private static __init__Memory__0$2()V 1000",
+                "private static __init__Memory__0$3()V 1",
+                ""), parts.toString());
+        run.check("2JYNX huge data parts called in order",
+                result.out.contains("CALL __init__Memory__0$1()V\n  CALL __init__Memory__0$2()V\n  CALL __init__Memory__0$3()V\n"),
+                result.out.substring(0, Math.min(result.out.length(), 2000)));
+        run.check("2JYNX huge data chunks give back the segment",
+                Arrays.equals(data, stored(result.out, data.length)), "differ");
+    }
+
+}
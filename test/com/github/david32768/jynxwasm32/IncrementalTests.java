@@ -0,0 +1,70 @@
+package com.github.david32768.jynxwasm32;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
+
+/*
+    functions reused from the fragment store give the same output and function stats as printed ones
+    fragments not used for 30 days are pruned ; a reused fragment is kept however old it was
+*/
+class IncrementalTests {
+
+    private final TestRun run;
+
+    IncrementalTests(TestRun run) {
+        this.run = run;
+    }
+
+    private static String statsLines(String err) {
+        StringBuilder sb = new StringBuilder();
+        for (String line : err.split("\n")) {
+            if (!line.contains("fragment store") && !line.contains(" bytes read")) {
+                sb.append(line).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+    private static List<Path> fragments(Path store) throws IOException {
+        try (Stream<Path> paths = Files.list(store)) {
+            return paths.filter(p -> p.toString().endsWith(".jxf")).toList();
+        }
+    }
+
+    void run() throws IOException, InterruptedException {
+        String expected = run.golden("small.jx");
+        Path store = run.tempDir("store");
+        String firstlog = null;
+        for (int i = 1; i <= 2; ++i) {
+            TestRun.Result result = run.tool("2JYNX", "--LEVEL", "INFO", "--INCREMENTAL", store.toString(), "small.wasm");
+            run.same("2JYNX --INCREMENTAL run " + i, expected, result.out);
+            String stats = i == 1? "functions reused = 0 regenerated = 4": "functions reused = 4 regenerated = 0";
+            run.check("2JYNX --INCREMENTAL stats " + i, result.err.contains(stats), result.err);
+            if (i == 1) {
+                firstlog = statsLines(result.err);
+            } else {
+                run.same("2JYNX --INCREMENTAL function stats", firstlog, statsLines(result.err));
+            }
+        }
+
+        List<Path> used = fragments(store);
+        run.check("2JYNX --INCREMENTAL fragment per function", used.size() == 4, used.toString());
+        FileTime old = FileTime.from(Instant.now().minus(Duration.ofDays(60)));
+        Path unused = store.resolve("0".repeat(64) + ".jxf");
+        Files.writeString(unused, "1\n");
+        Files.setLastModifiedTime(unused, old);
+        Files.setLastModifiedTime(used.get(0), old);
+        TestRun.Result result = run.tool("2JYNX", "--LEVEL", "INFO", "--INCREMENTAL", store.toString(), "small.wasm");
+        run.same("2JYNX --INCREMENTAL after prune", expected, result.out);
+        run.check("2JYNX --INCREMENTAL prune stats", result.err.contains("fragments pruned = 1"), result.err);
+        run.check("2JYNX --INCREMENTAL old key pruned", !Files.exists(unused), unused.toString());
+        run.same("2JYNX --INCREMENTAL reused fragment kept", used.toString(), fragments(store).toString());
+    }
+
+}
@@ -0,0 +1,32 @@
+package com.github.david32768.jynxwasm32;
+
+import java.io.IOException;
+
+/*
+    --LAZY decodes function bodies when they are printed so output is the same
+*/
+class LazyTests {
+
+    private final TestRun run;
+
+    LazyTests(TestRun run) {
+        this.run = run;
+    }
+
+    void run() throws IOException, InterruptedException {
+        TestRun.Result result = run.tool("2JYNX", "--LAZY", "small.wasm");
+        run.check("2JYNX --LAZY small exit code", result.exitCode == 0, result.err);
+        run.same("2JYNX --LAZY small", run.golden("small.jx"), result.out);
+        TestRun.Result serial = run.tool("2JYNX", "funcs.wasm");
+        result = run.tool("2JYNX", "--LAZY", "--THREADS", "4", "funcs.wasm");
+        run.same("2JYNX --LAZY --THREADS 4 funcs", serial.out, result.out);
+        // every body is printed so an invalid one is still found
+        result = run.tool("2JYNX", "--LAZY", "funcs.bad.wasm");
+        run.check("2JYNX --LAZY funcs.bad fails", result.exitCode != 0, result.err);
+        // PARSE would not check the bodies
+        result = run.tool("PARSE", "--LAZY", "small.wasm");
+        run.check("PARSE --LAZY is not an option", result.exitCode != 0 && result.err.contains("--LAZY"),
+                result.err);
+    }
+
+}
@@ -0,0 +1,68 @@
+package com.github.david32768.jynxwasm32;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/*
+    a file of 1M or more is mapped and a smaller file is read onto the heap ; output is the same
+    golden files of default output were checked against the tree before the backlog changes
+*/
+class LoadTests {
+
+    private static final int MAPPED_SIZE = 3 << 19;   // 1.5M
+
+    private final TestRun run;
+
+    LoadTests(TestRun run) {
+        this.run = run;
+    }
+
+    void run() throws IOException, InterruptedException {
+        TestRun.Result result = run.tool("2JYNX", "small.wasm");
+        run.check("2JYNX small exit code", result.exitCode == 0, result.err);
+        run.golden("2JYNX small", "small.jx", result.out);
+        run.golden("2JYNX small log", "small.err", result.err);
+        result = run.tool("2JYNX", "--COMMENT", "small.wasm");
+        run.golden("2JYNX --COMMENT small", "small.comment.jx", result.out);
+        result = run.tool("PARSE", "small.wasm");
+        run.check("PARSE small exit code", result.exitCode == 0, result.err);
+        run.golden("PARSE small log", "parse.err", result.err);
+
+        result = run.tool("2JYNX", "--LEVEL", "INFO", "small.wasm");
+        run.check("2JYNX small is read", result.err.contains("small.wasm: 6107 bytes read"), result.err);
+
+        Path large = padded(run.tempDir("load").resolve("small.wasm"));
+        result = run.tool("2JYNX", "--LEVEL", "INFO", large.toString());
+        String mapped = String.format("small.wasm: %d bytes mapped", Files.size(large));
+        run.check("2JYNX large is mapped", result.err.contains(mapped), result.err);
+        run.same("2JYNX large", run.golden("small.jx"), result.out);
+        result = run.tool("PARSE", "--LEVEL", "INFO", large.toString());
+        run.check("PARSE large is mapped", result.exitCode == 0 && result.err.contains(mapped), result.err);
+    }
+
+    // small.wasm followed by a custom section so that it is large enough to be mapped
+    private Path padded(Path path) throws IOException {
+        byte[] name = "padding".getBytes();
+        int size = MAPPED_SIZE;
+        int payload = 1 + name.length + size;
+        ByteBuffer section = ByteBuffer.allocate(1 + 5 + payload);
+        section.put((byte)0);
+        for (int value = payload; ; value >>>= 7) {
+            if (value < 0x80) {
+                section.put((byte)value);
+                break;
+            }
+            section.put((byte)(value & 0x7f | 0x80));
+        }
+        section.put((byte)name.length).put(name).put(new byte[size]);
+        section.flip();
+        byte[] small = Files.readAllBytes(run.fixture("small.wasm"));
+        byte[] result = new byte[small.length + section.remaining()];
+        System.arraycopy(small, 0, result, 0, small.length);
+        section.get(result, small.length, section.remaining());
+        return Files.write(path, result);
+    }
+
+}
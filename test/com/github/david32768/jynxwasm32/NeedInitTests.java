@@ -0,0 +1,25 @@
+package com.github.david32768.jynxwasm32;
+
+import java.io.IOException;
+
+/*
+    locals that must be initialised are found through all control flow
+    the end of an if without else is reached when the condition is false even if the then-part returns
+*/
+class NeedInitTests {
+
+    private final TestRun run;
+
+    NeedInitTests(TestRun run) {
+        this.run = run;
+    }
+
+    void run() throws IOException, InterruptedException {
+        // the op after the if failed an assertion (tests are run with -ea) that was reported on stderr
+        TestRun.Result result = run.tool("2JYNX", "ifret.wasm");
+        run.check("2JYNX ifret exit code", result.exitCode == 0, result.err);
+        run.check("2JYNX ifret no assertion", !result.err.contains("AssertionError"), result.err);
+        run.golden("2JYNX ifret", "ifret.jx", result.out);
+    }
+
+}
@@ -0,0 +1,64 @@
+package com.github.david32768.jynxwasm32;
+
+import java.io.IOException;
+
+import wasm.OpCode;
+import wasm.OpType;
+
+/*
+    opcode lookup tables and the metadata derived from each opcode name
+*/
+class OpCodeTests {
+
+    private final TestRun run;
+
+    OpCodeTests(TestRun run) {
+        this.run = run;
+    }
+
+    // one line for each opcode with all of its metadata
+    static String dump() {
+        StringBuilder sb = new StringBuilder();
+        for (OpCode opcode : OpCode.values()) {
+            OpType optype = opcode.getOpType();
+            sb.append(String.format("%-8x %-20s %-20s %-16s %s prefix %s signed %s suffix %s unsigned %b",
+                    opcode.getCode(), opcode, opcode.getWasmOp(), opcode.getOpName(), optype,
+                    opcode.getPrefix(), opcode.getSignedPrefix(), opcode.getSuffix(), opcode.isUnsigned()));
+            if (optype == OpType.MEMLOAD || optype == OpType.MEMSTORE) {
+                sb.append(" memtype ").append(opcode.getMemType());
+            }
+            if (optype == OpType.COMPARE) {
+                sb.append(" compare ").append(opcode.getCompareName());
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    private void unknown(int inst) {
+        String expected = "unknown opcode - " + Integer.toHexString(inst);
+        try {
+            OpCode opcode = OpCode.getInstance(inst);
+            run.check("unknown opcode " + Integer.toHexString(inst), false, "found " + opcode);
+        } catch (IllegalArgumentException ex) {
+            run.check("unknown opcode " + Integer.toHexString(inst), expected.equals(ex.getMessage()),
+                    ex.getMessage());
+        }
+    }
+
+    void run() throws IOException {
+        StringBuilder differ = new StringBuilder();
+        for (OpCode opcode : OpCode.values()) {
+            if (OpCode.getInstance(opcode.getCode()) != opcode) {
+                differ.append(opcode).append(' ');
+            }
+        }
+        run.check("every opcode is found from its code", differ.length() == 0, differ.toString());
+        // unused single byte, unused and out of range 0xfc extensions, other prefix, negative
+        for (int inst : new int[]{0x06, 0xff, 0xfc000c, 0xfc0fff, 0xfd0000, -1}) {
+            unknown(inst);
+        }
+        run.golden("opcode metadata", "opcodes.out", dump());
+    }
+
+}
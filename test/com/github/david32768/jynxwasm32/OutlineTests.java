@@ -0,0 +1,388 @@
+package com.github.david32768.jynxwasm32;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import jynxwasm32.JavaName;
+import jynxwasm32.Outliner;
+import parse.BranchTarget;
+import parse.Global;
+import parse.Local;
+import parse.LocalFunction;
+import parse.ValueType;
+import parse.WasmFunction;
+import parse.WasmModule;
+import wasm.OpCode;
+import wasm.PackedCode;
+
+/*
+    --MAX_METHOD_SIZE ; functions split into helper methods give the same results as the functions not split
+        when run by a small interpreter of packed code
+    split.wasm has a block that sets one local, blocks that branch to outer blocks, br_table to each outer block,
+        return and whose end is not reached ; blocks in rejects set a local and branch out or return a value
+    helpers pass values back in their return value so no fields are added
+*/
+class OutlineTests {
+
+    private static final String[] FUNCTIONS = {"loops", "table", "noend", "rejects"};
+    // all but rejects are split at 250
+    private static final int[] SIZES = {180, 250, 300};
+
+    private final TestRun run;
+
+    OutlineTests(TestRun run) {
+        this.run = run;
+    }
+
+    private WasmModule module() throws IOException {
+        ByteBuffer stream = ByteBuffer.wrap(Files.readAllBytes(run.fixture("split.wasm")));
+        Logger log = Logger.getGlobal();
+        Level level = log.getLevel();
+        log.setLevel(Level.OFF);
+        try {
+            return WasmModule.getModule("split.wasm", stream);
+        } finally {
+            log.setLevel(level);
+        }
+    }
+
+    // functions of module by name, each followed by its helpers
+    private static Map<String, List<LocalFunction>> outline(WasmModule module, int maxsize) {
+        Outliner outliner = new Outliner(module, new JavaName(true), maxsize);
+        Logger log = Logger.getGlobal();
+        Level level = log.getLevel();
+        log.setLevel(Level.OFF);
+        try {
+            Map<String, List<LocalFunction>> result = new HashMap<>();
+            for (WasmFunction fn : module.getFunctions()) {
+                LocalFunction local = (LocalFunction)fn;
+                result.put(local.getFieldName(), outliner.outline(local));
+            }
+            return result;
+        } finally {
+            log.setLevel(level);
+        }
+    }
+
+    private static List<Object[]> inputs(String function) {
+        List<Object[]> result = new ArrayList<>();
+        switch (function) {
+            case "table":
+            case "noend":
+                for (int n = -2; n < 7; ++n) {
+                    result.add(new Object[]{n});
+                }
+                break;
+            default:
+                for (int n : new int[]{-5, 0, 1, 2, 3, 7, 8, 9, 12, 13, 49}) {
+                    for (long x : new long[]{0, 1, -3, 0x123456789L}) {
+                        result.add(new Object[]{n, x});
+                    }
+                }
+                break;
+        }
+        return result;
+    }
+
+    private static List<String> fields(String jx) {
+        return jx.lines().filter(line -> line.startsWith(".field")).toList();
+    }
+
+    void run() throws IOException, InterruptedException {
+        TestRun.Result result = run.tool("2JYNX", "split.wasm");
+        run.golden("2JYNX split", "split.jx", result.out);
+        String whole = result.out;
+        result = run.tool("2JYNX", "--MAX_METHOD_SIZE", "250", "split.wasm");
+        run.golden("2JYNX --MAX_METHOD_SIZE 250 split", "split.250.jx", result.out);
+        run.same("outline adds no fields", fields(whole).toString(), fields(result.out).toString());
+
+        WasmModule module = module();
+        Map<String, List<LocalFunction>> none = outline(module, 0);
+        for (int size : SIZES) {
+            Map<String, List<LocalFunction>> split = outline(module, size);
+            for (String function : FUNCTIONS) {
+                int methods = split.get(function).size();
+                if (function.equals("rejects")) {
+                    run.check("outline " + size + " rejects", methods == 1, methods + " methods");
+                } else if (size == 250) {
+                    run.check("outline 250 " + function + " has helper", methods > 1, "no helper");
+                }
+                for (Object[] args : inputs(function)) {
+                    String expected = new Interpreter(module).invoke(none.get(function).get(0), args);
+                    String actual = new Interpreter(module).invoke(split.get(function).get(0), args);
+                    run.same(String.format("outline %d %s%s", size, function, List.of(args)), expected, actual);
+                }
+            }
+        }
+    }
+
+    // runs unoptimised packed code with i32, i64 and f64 values ; globals start at zero as in split.wasm
+    private static class Interpreter {
+
+        private final WasmModule module;
+        private final Map<Global, Object> globals;
+
+        private Interpreter(WasmModule module) {
+            this.module = module;
+            this.globals = new IdentityHashMap<>();
+            for (Global global : module.getGlobals()) {
+                globals.put(global, zero(global.getType()));
+            }
+        }
+
+        private static Object zero(ValueType vt) {
+            switch (vt) {
+                case I32:
+                    return 0;
+                case I64:
+                    return 0L;
+                case F64:
+                    return 0.0;
+                default:
+                    throw new UnsupportedOperationException(vt.toString());
+            }
+        }
+
+        // result followed by the globals
+        private String invoke(LocalFunction fn, Object[] args) {
+            String result;
+            try {
+                result = String.valueOf(call(fn, args));
+            } catch (IllegalStateException ex) {
+                result = ex.getMessage();
+            }
+            StringBuilder sb = new StringBuilder(result);
+            for (Global global : module.getGlobals()) {
+                sb.append(' ').append(globals.get(global));
+            }
+            return sb.toString();
+        }
+
+        private record Label(OpCode opcode, int start, int end, int height, boolean result) {}
+
+        // position of END (and ELSE) of each BLOCK, LOOP and IF
+        private static int[][] ends(PackedCode code) {
+            int[][] ends = new int[code.size()][2];
+            Deque<Integer> starts = new ArrayDeque<>();
+            PackedCode.Cursor inst = code.cursor();
+            while (inst.next()) {
+                switch (inst.getOpCode()) {
+                    case BLOCK:
+                    case LOOP:
+                    case IF:
+                        starts.push(inst.position());
+                        break;
+                    case ELSE:
+                        ends[starts.peek()][1] = inst.position();
+                        break;
+                    case END:
+                        if (!starts.isEmpty()) {
+                            ends[starts.pop()][0] = inst.position();
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            }
+            return ends;
+        }
+
+        private Object call(LocalFunction fn, Object[] args) {
+            Local[] locals = fn.getLocals();
+            Object[] vars = new Object[locals.length];
+            for (int i = 0; i < vars.length; ++i) {
+                vars[i] = i < args.length? args[i]: zero(locals[i].getType());
+            }
+            PackedCode code = fn.getCode();
+            int[][] ends = ends(code);
+            boolean hasresult = fn.getFnType().getRtype() != ValueType.V00;
+            Deque<Object> stack = new ArrayDeque<>();
+            List<Label> labels = new ArrayList<>();
+            labels.add(new Label(OpCode.BLOCK, -1, code.size() - 1, 0, hasresult));
+            PackedCode.Cursor inst = code.cursor();
+            int pc = 0;
+            while (!labels.isEmpty()) {
+                inst.position(pc);
+                ++pc;
+                if (inst.isUnreachableOp()) {
+                    throw new AssertionError("unreachable op run at " + inst.position());
+                }
+                OpCode opcode = inst.getOpCode();
+                BranchTarget target = null;
+                switch (opcode) {
+                    case BLOCK:
+                    case LOOP:
+                        labels.add(label(inst, ends, stack));
+                        break;
+                    case IF:
+                        int cond = (Integer)stack.pop();
+                        labels.add(label(inst, ends, stack));
+                        if (cond == 0) {
+                            int[] end = ends[inst.position()];
+                            pc = end[1] > 0? end[1] + 1: end[0];
+                        }
+                        break;
+                    case ELSE:
+                        pc = labels.get(labels.size() - 1).end;
+                        break;
+                    case END:
+                        labels.remove(labels.size() - 1);
+                        break;
+                    case BR:
+                        target = inst.getTarget();
+                        break;
+                    case BR_IF:
+                        if ((Integer)stack.pop() != 0) {
+                            target = inst.getTarget();
+                        }
+                        break;
+                    case BR_TABLE:
+                        int index = (Integer)stack.pop();
+                        int count = inst.getTargetCount();
+                        target = inst.getTarget(index < 0 || index >= count - 1? count - 1: index);
+                        break;
+                    case RETURN:
+                        return hasresult? stack.pop(): null;
+                    case UNREACHABLE:
+                        throw new IllegalStateException("trap");
+                    case CALL:
+                        LocalFunction callee = (LocalFunction)inst.getObject();
+                        Object[] parms = new Object[callee.getFnType().numParms()];
+                        for (int i = parms.length - 1; i >= 0; --i) {
+                            parms[i] = stack.pop();
+                        }
+                        Object value = call(callee, parms);
+                        if (callee.getFnType().getRtype() != ValueType.V00) {
+                            stack.push(value);
+                        }
+                        break;
+                    case DROP:
+                        stack.pop();
+                        break;
+                    case LOCAL_GET:
+                        stack.push(vars[((Local)inst.getObject()).getNumber()]);
+                        break;
+                    case LOCAL_SET:
+                        vars[((Local)inst.getObject()).getNumber()] = stack.pop();
+                        break;
+                    case LOCAL_TEE:
+                        vars[((Local)inst.getObject()).getNumber()] = stack.peek();
+                        break;
+                    case GLOBAL_GET:
+                        stack.push(globals.get((Global)inst.getObject()));
+                        break;
+                    case GLOBAL_SET:
+                        globals.put((Global)inst.getObject(), stack.pop());
+                        break;
+                    case I32_CONST:
+                    case I64_CONST:
+                    case F64_CONST:
+                        stack.push(inst.getConstant());
+                        break;
+                    default:
+                        numeric(opcode, stack);
+                        break;
+                }
+                if (target != null) {
+                    pc = branch(target, labels, stack);
+                }
+            }
+            return hasresult? stack.pop(): null;
+        }
+
+        private static Label label(PackedCode.Cursor inst, int[][] ends, Deque<Object> stack) {
+            int pos = inst.position();
+            boolean result = inst.getBlockType() != ValueType.V00;
+            return new Label(inst.getOpCode(), pos, ends[pos][0], stack.size(), result);
+        }
+
+        // returns position of next op
+        private static int branch(BranchTarget target, List<Label> labels, Deque<Object> stack) {
+            int index = labels.size() - 1 - target.getBr2level();
+            Label label = labels.get(index);
+            if (label.opcode == OpCode.LOOP) {
+                while (stack.size() > label.height) {
+                    stack.pop();
+                }
+                labels.subList(index + 1, labels.size()).clear();
+                return label.start + 1;
+            }
+            Object value = label.result? stack.pop(): null;
+            while (stack.size() > label.height) {
+                stack.pop();
+            }
+            if (label.result) {
+                stack.push(value);
+            }
+            labels.subList(index + 1, labels.size()).clear();
+            return label.end;
+        }
+
+        private static void numeric(OpCode opcode, Deque<Object> stack) {
+            Object b = stack.pop();
+            switch (opcode) {
+                case I32_EQZ:
+                    stack.push((Integer)b == 0? 1: 0);
+                    return;
+                case I64_EXTEND_S_I32:
+                    stack.push((long)(Integer)b);
+                    return;
+                case F64_CONVERT_S_I32:
+                    stack.push((double)(Integer)b);
+                    return;
+                case F64_CONVERT_S_I64:
+                    stack.push((double)(Long)b);
+                    return;
+                default:
+                    break;
+            }
+            Object a = stack.pop();
+            switch (opcode) {
+                case I32_EQ:
+                    stack.push(a.equals(b)? 1: 0);
+                    break;
+                case I32_GT_S:
+                    stack.push((Integer)a > (Integer)b? 1: 0);
+                    break;
+                case I32_ADD:
+                    stack.push((Integer)a + (Integer)b);
+                    break;
+                case I32_SUB:
+                    stack.push((Integer)a - (Integer)b);
+                    break;
+                case I32_AND:
+                    stack.push((Integer)a & (Integer)b);
+                    break;
+                case I64_LT_U:
+                    stack.push(Long.compareUnsigned((Long)a, (Long)b) < 0? 1: 0);
+                    break;
+                case I64_ADD:
+                    stack.push((Long)a + (Long)b);
+                    break;
+                case I64_MUL:
+                    stack.push((Long)a * (Long)b);
+                    break;
+                case F64_ADD:
+                    stack.push((Double)a + (Double)b);
+                    break;
+                case F64_MUL:
+                    stack.push((Double)a * (Double)b);
+                    break;
+                default:
+                    throw new UnsupportedOperationException(opcode.toString());
+            }
+        }
+
+    }
+
+}
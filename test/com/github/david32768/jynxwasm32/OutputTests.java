@@ -0,0 +1,46 @@
+package com.github.david32768.jynxwasm32;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+/*
+    --OUTPUT writes the same text as standard output, gzipped if the name ends with .gz
+    a file that cannot be written fails 2JYNX
+*/
+class OutputTests {
+
+    private final TestRun run;
+
+    OutputTests(TestRun run) {
+        this.run = run;
+    }
+
+    static String gunzip(Path path) throws IOException {
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(path))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    void run() throws IOException, InterruptedException {
+        String expected = run.golden("small.jx");
+        Path dir = run.tempDir("output");
+        Path jx = dir.resolve("small.jx");
+        TestRun.Result result = run.tool("2JYNX", "--OUTPUT", jx.toString(), "small.wasm");
+        run.check("2JYNX --OUTPUT exit code", result.exitCode == 0 && result.out.isEmpty(), result.err);
+        run.same("2JYNX --OUTPUT", expected, Files.readString(jx, StandardCharsets.UTF_8));
+
+        Path gz = dir.resolve("small.jx.gz");
+        result = run.tool("2JYNX", "--OUTPUT", gz.toString(), "small.wasm");
+        run.check("2JYNX --OUTPUT gzip exit code", result.exitCode == 0 && result.out.isEmpty(), result.err);
+        run.same("2JYNX --OUTPUT gzip", expected, gunzip(gz));
+
+        Path bad = jx.resolve("small.jx"); // parent is a file
+        result = run.tool("2JYNX", "--OUTPUT", bad.toString(), "small.wasm");
+        run.check("2JYNX --OUTPUT not writable fails", result.exitCode != 0, result.err);
+    }
+
+}
@@ -0,0 +1,107 @@
+package com.github.david32768.jynxwasm32;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import parse.Global;
+import parse.LocalFunction;
+import parse.ValueTypeStack;
+import parse.WasmFunction;
+import parse.WasmModule;
+import wasm.Instruction;
+import wasm.PackedCode;
+
+/*
+    a cursor over packed code gives the same instructions as were packed
+    and packed code copied from a cursor or rebuilt from its instructions is the same
+    maximum and final stack sizes of packed code are those of a type stack replay
+*/
+class PackedCodeTests {
+
+    private final TestRun run;
+
+    PackedCodeTests(TestRun run) {
+        this.run = run;
+    }
+
+    private static String dump(PackedCode code) {
+        StringBuilder sb = new StringBuilder();
+        PackedCode.Cursor cursor = code.cursor();
+        while (cursor.next()) {
+            sb.append(cursor).append(" : ").append(cursor.getFnType()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private void check(String name) throws IOException {
+        ByteBuffer stream = ByteBuffer.wrap(Files.readAllBytes(run.fixture(name)));
+        Logger log = Logger.getGlobal();
+        Level level = log.getLevel();
+        log.setLevel(Level.SEVERE);
+        WasmModule module;
+        try {
+            module = WasmModule.getModule(name, stream);
+        } finally {
+            log.setLevel(level);
+        }
+        StringBuilder differ = new StringBuilder();
+        int count = 0;
+        for (WasmFunction fn : module.getFunctions()) {
+            if (!(fn instanceof LocalFunction local)) {
+                continue;
+            }
+            PackedCode code = local.getCode();
+            PackedCode.Builder copy = new PackedCode.Builder(code.size());
+            PackedCode.Builder rebuilt = new PackedCode.Builder(code.size());
+            PackedCode.Cursor cursor = code.cursor();
+            while (cursor.next()) {
+                Instruction inst = cursor.instruction();
+                if (!cursor.toString().equals(inst.toString()) || !cursor.getFnType().toString().equals(inst.getFnType().toString())) {
+                    differ.append(String.format("%s %d: %s is %s%n", fn.getFieldName(), cursor.position(),
+                            cursor, inst));
+                }
+                copy.add(cursor);
+                rebuilt.add(inst);
+                ++count;
+            }
+            ValueTypeStack vts = new ValueTypeStack();
+            cursor = code.cursor();
+            while (cursor.next()) {
+                vts.adjustStack(cursor.getFnType());
+            }
+            int endsize = local.getFnType().getRtype().getStackSize();
+            if (vts.getMaxsz() != code.maxStack() || vts.addedEmpty() != (code.endStack() == 0)
+                    || code.endStack() != endsize) {
+                differ.append(String.format("%s: max stack %d end stack %d is %d %d%n", fn.getFieldName(),
+                        vts.getMaxsz(), endsize, code.maxStack(), code.endStack()));
+            }
+            String expected = dump(code);
+            if (!expected.equals(dump(copy.build())) || !expected.equals(dump(rebuilt.build()))) {
+                differ.append(String.format("%s: copy differs%n", fn.getFieldName()));
+            }
+        }
+        run.check(name + " cursor gives packed instructions (" + count + ")", count > 0 && differ.length() == 0,
+                differ.toString());
+        differ.setLength(0);
+        for (Global global : module.getGlobals()) {
+            if (global.isImported()) {
+                continue;
+            }
+            PackedCode.Cursor cursor = global.getConstExpr().cursor();
+            Instruction inst = global.getConstExpr().getConstInst();
+            if (!cursor.toString().equals(inst.toString())) {
+                differ.append(String.format("%s: %s is %s%n", global.getFieldName(), cursor, inst));
+            }
+        }
+        run.check(name + " constant expression cursors", differ.length() == 0, differ.toString());
+    }
+
+    void run() throws IOException {
+        check("small.wasm");
+        check("funcs.wasm");
+    }
+
+}
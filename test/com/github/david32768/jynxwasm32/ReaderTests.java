@@ -0,0 +1,236 @@
+package com.github.david32768.jynxwasm32;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import com.github.david32768.jynxwasm32.reader.DataVisitor;
+import com.github.david32768.jynxwasm32.reader.ExternKind;
+import com.github.david32768.jynxwasm32.reader.FuncType;
+import com.github.david32768.jynxwasm32.reader.FunctionVisitor;
+import com.github.david32768.jynxwasm32.reader.ModuleVisitor;
+import com.github.david32768.jynxwasm32.reader.ValType;
+import com.github.david32768.jynxwasm32.reader.WasmReader;
+
+/*
+    callbacks of the reader api (only public types are used) compared with a golden file
+*/
+class ReaderTests {
+
+    private static final int EXPORT_ID = 7;
+
+    private final TestRun run;
+
+    ReaderTests(TestRun run) {
+        this.run = run;
+    }
+
+    // records each callback as a line
+    private static class Recorder extends ModuleVisitor {
+
+        private final StringBuilder sb = new StringBuilder();
+        private final Set<Integer> skip;
+
+        private Recorder(Integer... skip) {
+            this.skip = Set.of(skip);
+        }
+
+        private void line(String format, Object... args) {
+            sb.append(String.format(format, args)).append('\n');
+        }
+
+        @Override
+        public boolean visitSection(int id, int size) {
+            line("section %d size %d", id, size);
+            return !skip.contains(id);
+        }
+
+        @Override
+        public void visitType(int typeidx, FuncType type) {
+            line("type %d %s", typeidx, type);
+        }
+
+        @Override
+        public void visitImport(ExternKind kind, int index, String module, String field) {
+            line("import %s %d %s.%s", kind, index, module, field);
+        }
+
+        @Override
+        public FunctionVisitor visitFunction(int funcidx, String name, FuncType type) {
+            line("function %d %s %s", funcidx, name, type);
+            return new FunctionVisitor() {
+
+                private void op(int opcode, Object... immediates) {
+                    StringBuilder text = new StringBuilder("  ").append(WasmReader.opName(opcode));
+                    for (Object imm : immediates) {
+                        text.append(' ').append(imm);
+                    }
+                    line("%s", text);
+                }
+
+                @Override
+                public void visitLocals(List<ValType> locals) {
+                    line("  locals %s", locals);
+                }
+
+                @Override
+                public void visitOp(int opcode) {
+                    op(opcode);
+                }
+
+                @Override
+                public void visitIntOp(int opcode, int operand) {
+                    op(opcode, operand);
+                }
+
+                @Override
+                public void visitLongOp(int opcode, long operand) {
+                    op(opcode, operand + "L");
+                }
+
+                @Override
+                public void visitFloatOp(int opcode, float operand) {
+                    op(opcode, operand + "F");
+                }
+
+                @Override
+                public void visitDoubleOp(int opcode, double operand) {
+                    op(opcode, operand);
+                }
+
+                @Override
+                public void visitLabelOp(int opcode, int depth) {
+                    op(opcode, "label", depth);
+                }
+
+                @Override
+                public void visitLabelsOp(int opcode, int[] depths) {
+                    op(opcode, "labels", Arrays.toString(depths));
+                }
+
+                @Override
+                public void visitTypeOp(int opcode, ValType type) {
+                    op(opcode, "type", type == null? "()": type);
+                }
+
+                @Override
+                public void visitIndirectOp(int opcode, int typeidx, int tableidx) {
+                    op(opcode, "type", typeidx, "table", tableidx);
+                }
+
+                @Override
+                public void visitMemoryOp(int opcode, int align, int offset) {
+                    op(opcode, "align", align, "offset", Integer.toUnsignedString(offset));
+                }
+
+                @Override
+                public void visitEnd() {
+                    line("  end function");
+                }
+
+            };
+        }
+
+        @Override
+        public DataVisitor visitData(int index, int memidx, String offset, int size) {
+            line("data %d memory %d offset %s size %d", index, memidx, offset, size);
+            return new DataVisitor() {
+
+                private int total;
+
+                @Override
+                public void visitBytes(ByteBuffer chunk) {
+                    total += chunk.remaining();
+                }
+
+                @Override
+                public void visitEnd() {
+                    line("  end data %d bytes", total);
+                }
+
+            };
+        }
+
+        @Override
+        public void visitCustom(String name, ByteBuffer payload) {
+            line("custom %s %d bytes", name, payload.remaining());
+        }
+
+        @Override
+        public void visitEnd() {
+            line("end");
+        }
+
+    }
+
+    private static String read(byte[] wasm, Recorder recorder) throws IOException {
+        try (InputStream in = new ByteArrayInputStream(wasm)) {
+            new WasmReader("small", in).accept(recorder);
+        }
+        return recorder.sb.toString();
+    }
+
+    // copy of wasm with the payload of the first section with id overwritten by 0xff bytes
+    private static byte[] corrupt(byte[] wasm, int id) {
+        byte[] result = wasm.clone();
+        int pos = 8;
+        while (pos < result.length) {
+            int sectionid = result[pos++];
+            int size = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = result[pos++];
+                size |= (b & 0x7f) << shift;
+                if (b >= 0) {
+                    break;
+                }
+            }
+            if (sectionid == id) {
+                Arrays.fill(result, pos, pos + size, (byte)0xff);
+                return result;
+            }
+            pos += size;
+        }
+        throw new AssertionError("no section " + id);
+    }
+
+    void run() throws IOException {
+        byte[] small = Files.readAllBytes(run.fixture("small.wasm"));
+        String stream = read(small, new Recorder());
+        run.golden("reader small", "reader.out", stream);
+
+        Recorder channel = new Recorder();
+        try (FileChannel fc = FileChannel.open(run.fixture("small.wasm"))) {
+            new WasmReader("small", fc).accept(channel);
+        }
+        run.same("reader small from channel", stream, channel.sb.toString());
+
+        String text = read(small, new Recorder(10));
+        run.check("reader skips code section", !text.contains("function") && text.contains("data 2"), text);
+
+        // import, function, code, data etc. need the types so are skipped without a callback
+        text = read(small, new Recorder(1));
+        run.check("reader skips sections that need the type section",
+                !text.contains("type ") && !text.contains("import ") && !text.contains("function ")
+                        && !text.contains("section 10 ") && !text.contains("data ")
+                        && text.contains("custom name") && text.endsWith("end\n"),
+                text);
+
+        // a skipped declaration section is not parsed
+        byte[] badexport = corrupt(small, EXPORT_ID);
+        try {
+            read(badexport, new Recorder());
+            run.check("reader fails on corrupt export section", false, "no exception");
+        } catch (IllegalArgumentException ex) {
+            run.check("reader fails on corrupt export section", true, ex.toString());
+        }
+        run.same("reader skips corrupt export section", read(small, new Recorder(EXPORT_ID)),
+                read(badexport, new Recorder(EXPORT_ID)));
+    }
+
+}
@@ -0,0 +1,42 @@
+package com.github.david32768.jynxwasm32;
+
+import java.io.IOException;
+
+/*
+    PARSE --SECTIONS parses the listed sections and those they need ; the others are skipped
+*/
+class SectionsTests {
+
+    private final TestRun run;
+
+    SectionsTests(TestRun run) {
+        this.run = run;
+    }
+
+    private boolean parsed(String out, String section) {
+        return out.lines().anyMatch(line -> line.contains(" " + section + " ") && line.endsWith(" parsed"));
+    }
+
+    void run() throws IOException, InterruptedException {
+        TestRun.Result result = run.tool("PARSE", "--SECTIONS", "type,export", "small.wasm");
+        run.check("PARSE --SECTIONS type,export exit code", result.exitCode == 0, result.err);
+        run.golden("PARSE --SECTIONS type,export", "sections.out", result.out);
+
+        // code is type checked so needs the declarations but not data or element
+        result = run.tool("PARSE", "--SECTIONS", "code", "small.wasm");
+        run.check("PARSE --SECTIONS code exit code", result.exitCode == 0, result.err);
+        run.check("PARSE --SECTIONS code parses code and the declarations",
+                parsed(result.out, "code") && parsed(result.out, "type") && parsed(result.out, "global")
+                        && !parsed(result.out, "data") && !parsed(result.out, "element"),
+                result.out);
+
+        // a skipped code section is not checked against the function section
+        result = run.tool("PARSE", "--SECTIONS", "type", "funcs.bad.wasm");
+        run.check("PARSE --SECTIONS type does not check bodies", result.exitCode == 0, result.err);
+
+        result = run.tool("PARSE", "--SECTIONS", "type,nosuch", "small.wasm");
+        run.check("PARSE --SECTIONS unknown section", result.exitCode != 0 && result.err.contains("nosuch"),
+                result.err);
+    }
+
+}
@@ -0,0 +1,100 @@
+package com.github.david32768.jynxwasm32;
+
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/*
+    requests sent to SERVER give the same output as 2JYNX
+    clients at the same time each get their own output
+    a connection that sends nothing does not hold up other clients or STOP
+    --OUTPUT relative to the client directory is written by the server
+*/
+class ServerTests {
+
+    private static final long CLIENT_SECONDS = 60;
+
+    private final TestRun run;
+
+    ServerTests(TestRun run) {
+        this.run = run;
+    }
+
+    private static void waitFor(Path socket, Process server) throws InterruptedException {
+        for (int i = 0; i < 600 && !Files.exists(socket) && server.isAlive(); ++i) {
+            Thread.sleep(50);
+        }
+    }
+
+    private TestRun.Result client(Path socket, String... args) throws IOException, InterruptedException {
+        List<String> list = new ArrayList<>();
+        list.add(socket.toString());
+        list.addAll(List.of(args));
+        return run.run(Client.class.getName(), list.toArray(String[]::new));
+    }
+
+    void run() throws Exception {
+        String small = run.golden("small.jx");
+        String funcs = run.tool("2JYNX", "funcs.wasm").out;
+        Path socket = run.tempDir("server").resolve("jynx.sock");
+        Process server = run.start(Main.class.getName(), "SERVER", socket.toString());
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            waitFor(socket, server);
+            run.check("SERVER started", Files.exists(socket), "no socket file");
+            TestRun.Result result = client(socket, "2JYNX", "small.wasm");
+            run.same("SERVER 2JYNX small", small, result.out);
+            run.same("SERVER 2JYNX small log", run.golden("small.err"), result.err);
+            result = client(socket, "PARSE", "small.wasm");
+            run.check("SERVER PARSE small", result.exitCode == 0, result.err);
+            result = client(socket, "PARSE", "funcs.bad.wasm");
+            run.check("SERVER PARSE funcs.bad fails", result.exitCode != 0, result.err);
+
+            try (SocketChannel idle = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+                idle.connect(UnixDomainSocketAddress.of(socket));
+                List<Future<TestRun.Result>> futures = new ArrayList<>();
+                for (int i = 0; i < 4; ++i) {
+                    String[] args = i % 2 == 0?
+                            new String[]{"2JYNX", "--THREADS", "4", "funcs.wasm"}:
+                            new String[]{"2JYNX", "small.wasm"};
+                    futures.add(pool.submit(() -> client(socket, args)));
+                }
+                for (int i = 0; i < futures.size(); ++i) {
+                    String expected = i % 2 == 0? funcs: small;
+                    String name = "SERVER client " + i + " with idle connection";
+                    try {
+                        run.same(name, expected, futures.get(i).get(CLIENT_SECONDS, TimeUnit.SECONDS).out);
+                    } catch (TimeoutException ex) {
+                        run.check(name, false, "timed out");
+                    }
+                }
+                result = client(socket, "STATUS");
+                run.check("SERVER STATUS", result.exitCode == 0 && result.out.contains("requests = 7 failed = 1"),
+                        result.out + result.err);
+                Path output = run.tempDir("server.output").resolve("small.jx.gz");
+                result = client(socket, "2JYNX", "--OUTPUT", run.fixtures().relativize(output).toString(), "small.wasm");
+                run.check("SERVER --OUTPUT exit code", result.exitCode == 0 && result.out.isEmpty(), result.err);
+                run.same("SERVER --OUTPUT", small, OutputTests.gunzip(output));
+                result = client(socket, "STOP");
+                run.check("SERVER STOP", result.exitCode == 0, result.err);
+                run.check("SERVER stopped with idle connection", server.waitFor(30, TimeUnit.SECONDS),
+                        "server still running");
+            }
+            run.check("SERVER socket removed", !Files.exists(socket), socket.toString());
+        } finally {
+            pool.shutdownNow();
+            server.destroyForcibly();
+        }
+    }
+
+}
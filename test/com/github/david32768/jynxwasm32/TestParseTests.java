@@ -0,0 +1,66 @@
+package com.github.david32768.jynxwasm32;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/*
+    TESTPARSE on a pool of workers reports the same as one worker, in test order
+    several files (or a directory of them, searched in name order) are reported in order followed by a total
+    comments, CRLF and an expression not closed at end of file do not change the report
+*/
+class TestParseTests {
+
+    private static final int REPEATS = 3;
+
+    private final TestRun run;
+
+    TestParseTests(TestRun run) {
+        this.run = run;
+    }
+
+    void run() throws IOException, InterruptedException {
+        String out = run.golden("testparse.out");
+        String err = run.golden("testparse.err");
+        TestRun.Result result = run.tool("TESTPARSE", "--WORKERS", "1", "binary.wast");
+        run.same("TESTPARSE --WORKERS 1", out, result.out);
+        run.same("TESTPARSE --WORKERS 1 log", err, result.err);
+        for (int i = 1; i <= REPEATS; ++i) {
+            result = run.tool("TESTPARSE", "--WORKERS", "4", "binary.wast");
+            run.same("TESTPARSE --WORKERS 4 run " + i, out, result.out);
+            run.same("TESTPARSE --WORKERS 4 log run " + i, err, result.err);
+        }
+
+        // the same file three times is reported three times in order then totals
+        result = run.tool("TESTPARSE", "--WORKERS", "4", "binary.wast", "binary.wast", "binary.wast");
+        run.golden("TESTPARSE --WORKERS 4 three files", "testparse3.out", result.out);
+
+        Path dir = run.tempDir("wast");
+        for (String sub : new String[]{"a", "b", "c"}) {
+            Files.copy(run.fixture("binary.wast"), Files.createDirectories(dir.resolve(sub)).resolve("binary.wast"));
+        }
+        result = run.tool("TESTPARSE", "--WORKERS", "4", dir.toString());
+        String files = result.out.replace(dir.toString() + File.separator, "")
+                .replace("a" + File.separator, "").replace("b" + File.separator, "").replace("c" + File.separator, "");
+        run.check("TESTPARSE directory exit code", result.exitCode == 0, result.err);
+        run.same("TESTPARSE directory", run.golden("testparse3.out"), files);
+
+        // comments and line endings that the reader removes do not change the report
+        StringBuilder sb = new StringBuilder();
+        sb.append("(; block comment with ( and \" over\r\n two lines ;)\r\n");
+        for (String line : Files.readAllLines(run.fixture("binary.wast"))) {
+            sb.append(line);
+            if (line.endsWith(")")) {
+                sb.append(" ;; trailing comment (module)");
+            }
+            sb.append("\r\n");
+        }
+        sb.append("(module binary \"\\00asm\" ;; not closed at end of file\r\n");
+        Path wast = run.tempDir("comments").resolve("binary.wast");
+        Files.writeString(wast, sb.toString());
+        result = run.tool("TESTPARSE", "--WORKERS", "4", wast.toString());
+        run.same("TESTPARSE comments and CRLF", out, result.out.replace(wast.toString(), "binary.wast"));
+    }
+
+}
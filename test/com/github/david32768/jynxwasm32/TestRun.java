@@ -0,0 +1,183 @@
+package com.github.david32768.jynxwasm32;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/*
+    state of a test run and helpers shared by the tests
+    tools are run in a new jvm with the class path of this one and the fixtures directory as working directory
+    expected output is in golden ; if update is true golden files are written instead of compared
+*/
+class TestRun {
+
+    private static final long TIMEOUT_SECONDS = 120;
+
+    static class Result {
+
+        final int exitCode;
+        final String out;
+        final String err;
+
+        private Result(int exitcode, String out, String err) {
+            this.exitCode = exitcode;
+            this.out = out;
+            this.err = err;
+        }
+
+    }
+
+    private final Path fixtures;
+    private final Path golden;
+    private final Path temp;
+    private final boolean update;
+    private final List<String> failures;
+    private int count;
+
+    TestRun(Path testdir, boolean update) throws IOException {
+        this.fixtures = testdir.resolve("fixtures").toAbsolutePath();
+        this.golden = testdir.resolve("golden").toAbsolutePath();
+        this.temp = Files.createTempDirectory("jynxwasm32-test");
+        this.update = update;
+        this.failures = new ArrayList<>();
+        this.count = 0;
+    }
+
+    Path fixtures() {
+        return fixtures;
+    }
+
+    Path fixture(String name) {
+        return fixtures.resolve(name);
+    }
+
+    // new empty directory that is deleted at the end of the run
+    Path tempDir(String name) throws IOException {
+        Path dir = temp.resolve(name);
+        delete(dir);
+        return Files.createDirectories(dir);
+    }
+
+    private static List<String> command(String mainclass, String... args) {
+        List<String> cmd = new ArrayList<>();
+        cmd.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        cmd.add("-ea");
+        cmd.add("-cp");
+        cmd.add(System.getProperty("java.class.path"));
+        cmd.add(mainclass);
+        cmd.addAll(List.of(args));
+        return cmd;
+    }
+
+    Process start(String mainclass, String... args) throws IOException {
+        return new ProcessBuilder(command(mainclass, args))
+                .directory(fixtures.toFile())
+                .start();
+    }
+
+    private static CompletableFuture<String> text(InputStream in) {
+        return CompletableFuture.supplyAsync(() -> {
+            try (InputStream is = in) {
+                return new String(is.readAllBytes(), StandardCharsets.UTF_8);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+    }
+
+    Result run(String mainclass, String... args) throws IOException, InterruptedException {
+        Process process = start(mainclass, args);
+        process.getOutputStream().close();
+        CompletableFuture<String> out = text(process.getInputStream());
+        CompletableFuture<String> err = text(process.getErrorStream());
+        if (!process.waitFor(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+            throw new IllegalStateException("timed out: " + String.join(" ", args));
+        }
+        return new Result(process.exitValue(), out.join(), err.join());
+    }
+
+    // runs Main
+    Result tool(String... args) throws IOException, InterruptedException {
+        return run(Main.class.getName(), args);
+    }
+
+    void check(String name, boolean ok, String msg) {
+        ++count;
+        if (ok) {
+            System.out.format("PASS %s%n", name);
+        } else {
+            System.out.format("FAIL %s: %s%n", name, msg);
+            failures.add(name);
+        }
+    }
+
+    void same(String name, String expected, String actual) {
+        check(name, expected.equals(actual), difference(expected, actual));
+    }
+
+    // compares with golden file goldname (or writes it if updating)
+    void golden(String name, String goldname, String actual) throws IOException {
+        Path path = golden.resolve(goldname);
+        if (update) {
+            Files.writeString(path, actual, StandardCharsets.UTF_8);
+            System.out.format("UPDATED %s%n", goldname);
+            return;
+        }
+        if (!Files.exists(path)) {
+            check(name, false, goldname + " does not exist");
+            return;
+        }
+        same(name, Files.readString(path, StandardCharsets.UTF_8), actual);
+    }
+
+    String golden(String goldname) throws IOException {
+        return Files.readString(golden.resolve(goldname), StandardCharsets.UTF_8);
+    }
+
+    private static String difference(String expected, String actual) {
+        String[] exp = expected.split("\n", -1);
+        String[] act = actual.split("\n", -1);
+        int lines = Math.min(exp.length, act.length);
+        for (int i = 0; i < lines; ++i) {
+            if (!exp[i].equals(act[i])) {
+                return String.format("line %d%n  expected: %s%n  actual:   %s", i + 1, exp[i], act[i]);
+            }
+        }
+        return String.format("expected %d lines but was %d lines", exp.length, act.length);
+    }
+
+    private static void delete(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(path)) {
+            for (Path p : (Iterable<Path>)paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(p);
+            }
+        }
+    }
+
+    // returns true if all tests passed
+    boolean finish() throws IOException {
+        delete(temp);
+        if (update) {
+            return true;
+        }
+        System.out.format("%ntests = %d failed = %d%n", count, failures.size());
+        failures.forEach(name -> System.out.format("    %s%n", name));
+        return failures.isEmpty();
+    }
+
+}
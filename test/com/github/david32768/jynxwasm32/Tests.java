@@ -0,0 +1,47 @@
+package com.github.david32768.jynxwasm32;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/*
+    runs the tests without a test framework ; see test/run.sh
+    fixtures are small wasm and wast files:
+        small.wasm  imports, memory, table, globals, data, element and name sections, all control ops
+        funcs.wasm  16 small functions so threads have work to share ; funcs.bad.wasm has two invalid ones
+        ifret.wasm  if without else whose then-part returns
+        split.wasm  functions with blocks to move to helper methods ; see OutlineTests
+        dl.wasm     overlapping and adjacent data segments with zero runs
+        binary.wast binary modules from the spec test suite for TESTPARSE
+*/
+public class Tests {
+
+    private Tests() {}
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1 || args.length > 2 || args.length == 2 && !args[1].equals("--UPDATE")) {
+            System.err.println("Usage: test-directory [--UPDATE]");
+            System.exit(1);
+        }
+        Path testdir = Paths.get(args[0]);
+        TestRun run = new TestRun(testdir, args.length == 2);
+        new LoadTests(run).run();
+        new ThreadsTests(run).run();
+        new LazyTests(run).run();
+        new ReaderTests(run).run();
+        new SectionsTests(run).run();
+        new OpCodeTests(run).run();
+        new PackedCodeTests(run).run();
+        new NeedInitTests(run).run();
+        new OutlineTests(run).run();
+        new DataTests(run).run();
+        new ValidateTests(run).run();
+        new CacheTests(run).run();
+        new IncrementalTests(run).run();
+        new BatchTests(run).run();
+        new ServerTests(run).run();
+        new TestParseTests(run).run();
+        new OutputTests(run).run();
+        System.exit(run.finish()? 0: 1);
+    }
+
+}
@@ -0,0 +1,87 @@
+package com.github.david32768.jynxwasm32;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/*
+    output with more than one thread is the same as serial output, with functions in module order
+    each multi-threaded case is run more than once as a race may not show every time
+*/
+class ThreadsTests {
+
+    private static final int REPEATS = 3;
+    private static final Pattern METHOD = Pattern.compile("^\\.method public static (f\\d\\d)\\(", Pattern.MULTILINE);
+
+    private final TestRun run;
+
+    ThreadsTests(TestRun run) {
+        this.run = run;
+    }
+
+    void run() throws IOException, InterruptedException {
+        TestRun.Result serial = run.tool("2JYNX", "funcs.wasm");
+        run.check("2JYNX funcs exit code", serial.exitCode == 0, serial.err);
+        List<String> methods = new ArrayList<>();
+        Matcher matcher = METHOD.matcher(serial.out);
+        while (matcher.find()) {
+            methods.add(matcher.group(1));
+        }
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 16; ++i) {
+            expected.add(String.format("f%02d", i));
+        }
+        run.check("2JYNX funcs methods in module order", methods.equals(expected), methods.toString());
+        run.check("2JYNX funcs f05 calls f04", serial.out.contains("  CALL f04(I32)->I32\n"), serial.out);
+
+        for (int i = 1; i <= REPEATS; ++i) {
+            TestRun.Result result = run.tool("2JYNX", "--THREADS", "4", "funcs.wasm");
+            run.same("2JYNX --THREADS 4 funcs run " + i, serial.out, result.out);
+            run.same("2JYNX --THREADS 4 funcs log run " + i, serial.err, result.err);
+            result = run.tool("2JYNX", "--THREADS", "3", "small.wasm");
+            run.same("2JYNX --THREADS 3 small run " + i, run.golden("small.jx"), result.out);
+            result = run.tool("2JYNX", "--THREADS", "3", "--COMMENT", "small.wasm");
+            run.same("2JYNX --THREADS 3 --COMMENT small run " + i, run.golden("small.comment.jx"), result.out);
+        }
+
+        // functions from the store and printed functions are written in module order
+        String store = run.tempDir("threads.store").toString();
+        for (int i = 1; i <= 2; ++i) {
+            TestRun.Result result = run.tool("2JYNX", "--LEVEL", "INFO", "--THREADS", "4",
+                    "--INCREMENTAL", store, "funcs.wasm");
+            run.same("2JYNX --THREADS 4 --INCREMENTAL funcs run " + i, serial.out, result.out);
+            String stats = i == 1? "functions reused = 0 regenerated = 16": "functions reused = 16 regenerated = 0";
+            run.check("2JYNX --THREADS 4 --INCREMENTAL stats " + i, result.err.contains(stats), result.err);
+            run.check("2JYNX --THREADS 4 --INCREMENTAL function count " + i,
+                    result.err.contains("number of functions = 16 "), result.err);
+        }
+
+        serial = run.tool("PARSE", "funcs.wasm");
+        run.check("PARSE funcs exit code", serial.exitCode == 0, serial.err);
+        TestRun.Result bad = run.tool("PARSE", "funcs.bad.wasm");
+        run.check("PARSE funcs.bad fails", bad.exitCode != 0, bad.err);
+        for (int i = 1; i <= REPEATS; ++i) {
+            TestRun.Result result = run.tool("PARSE", "--THREADS", "4", "funcs.wasm");
+            run.check("PARSE --THREADS 4 funcs run " + i, result.exitCode == 0, result.err);
+            run.same("PARSE --THREADS 4 funcs log run " + i, serial.err, result.err);
+            // f03 and f09 are invalid ; the error is the one for f03 as in serial
+            result = run.tool("PARSE", "--THREADS", "4", "funcs.bad.wasm");
+            run.check("PARSE --THREADS 4 funcs.bad run " + i, result.exitCode == bad.exitCode, result.err);
+            run.same("PARSE --THREADS 4 funcs.bad error run " + i, message(bad.err), message(result.err));
+        }
+    }
+
+    // exception without the stack trace
+    private static String message(String err) {
+        StringBuilder sb = new StringBuilder();
+        for (String line : err.split("\n")) {
+            if (!line.startsWith("\tat ")) {
+                sb.append(line).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,105 @@
+package com.github.david32768.jynxwasm32;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import parse.ParseOptions;
+import parse.WasmModule;
+
+/*
+    validate only (CodeValidator) and a full parse (InstructionChecker) accept and reject the same modules
+    checked on the fixtures and on seeded mutations of their code sections
+*/
+class ValidateTests {
+
+    private static final int CODE_ID = 10;
+    private static final int MUTATIONS = 300;
+    private static final long SEED = 32768;
+
+    private static final ParseOptions VALIDATE = ParseOptions.DEFAULT.withValidateOnly(true);
+
+    private final TestRun run;
+
+    ValidateTests(TestRun run) {
+        this.run = run;
+    }
+
+    // class and message of the exception thrown or "OK"
+    private static String parse(String name, byte[] wasm, ParseOptions options) {
+        try {
+            WasmModule.getModule(name, ByteBuffer.wrap(wasm), options);
+            return "OK";
+        } catch (Exception | AssertionError ex) {
+            return ex.toString();
+        }
+    }
+
+    // {start, end} of the payload of the code section
+    private static int[] codeSection(byte[] wasm) {
+        int pos = 8;
+        while (pos < wasm.length) {
+            int sectionid = wasm[pos++];
+            int size = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = wasm[pos++];
+                size |= (b & 0x7f) << shift;
+                if (b >= 0) {
+                    break;
+                }
+            }
+            if (sectionid == CODE_ID) {
+                return new int[]{pos, pos + size};
+            }
+            pos += size;
+        }
+        throw new AssertionError("no code section");
+    }
+
+    private void check(String name, Random random) throws IOException {
+        byte[] wasm = Files.readAllBytes(run.fixture(name));
+        String full = parse(name, wasm, ParseOptions.DEFAULT);
+        run.same("validate " + name, full, parse(name, wasm, VALIDATE));
+        int[] code = codeSection(wasm);
+        StringBuilder differ = new StringBuilder();
+        int accepted = 0;
+        for (int i = 0; i < MUTATIONS; ++i) {
+            byte[] mutant = wasm.clone();
+            int pos = code[0] + random.nextInt(code[1] - code[0]);
+            mutant[pos] = (byte)random.nextInt(256);
+            full = parse(name, mutant, ParseOptions.DEFAULT);
+            String validated = parse(name, mutant, VALIDATE);
+            if (!full.equals(validated)) {
+                differ.append(String.format("offset %d = 0x%02x%n  parse:    %s%n  validate: %s%n",
+                        pos, mutant[pos] & 0xff, full, validated));
+            } else if (full.equals("OK")) {
+                ++accepted;
+            }
+        }
+        String msg = String.format("validate %s mutations (accepted = %d rejected = %d)",
+                name, accepted, MUTATIONS - accepted);
+        run.check(msg, differ.length() == 0, differ.toString());
+    }
+
+    void run() throws IOException, InterruptedException {
+        Logger log = Logger.getGlobal();
+        Level level = log.getLevel();
+        log.setLevel(Level.OFF);
+        Random random = new Random(SEED);
+        try {
+            for (String name : new String[]{"small.wasm", "funcs.wasm", "funcs.bad.wasm", "ifret.wasm"}) {
+                check(name, random);
+            }
+        } finally {
+            log.setLevel(level);
+        }
+
+        TestRun.Result result = run.tool("TESTPARSE", "binary.wast");
+        run.golden("TESTPARSE binary", "testparse.out", result.out);
+        run.golden("TESTPARSE binary log", "testparse.err", result.err);
+    }
+
+}
@@ -0,0 +1,12 @@
+;; generated test
+(module binary "\00\61\73\6d\01\00\00\00\01\18\05\60\02\7f\7f\01\7f\60\00\00\60\01\7f\00\60\02\7e\7c\01\7c\60\00\01\7f\02\17\02\03\65\6e"
+  "\76\05\70\72\69\6e\74\00\02\03\65\6e\76\02\67\30\03\7f\00\03\05\04\00\01\03\04\04\04\01\70\00\04\05\04\01\01\01\04\06\0d\02\7f\01\41\80\08\0b\7e\00\42\cd\00\0b\07\1f\04\06\6d\65\6d\6f\72\79\02\00\03\61\64\64\00\01\06\5f\73\74\61\72\74\00\02\03\74\61\62\01\00\09\0e\02\00\41\00\0b\02\01\03\00\41\02\0b\01\02\0c\01\03\0a\e3\01\04\60\02\01\7f\01\7e\02\40\03\40\20\00\41\01\6b\22\00\45\0d\01\20\01\41\03\6a\21\01\20\00\41\05\48\0d\00\0b\0b\02\40\02\40\02\40\20\00\0e\02\00\01\02\0b\41\07\21\02\0b\41\77\21\02\0b\20\00\20\01\4a\04\7f\20\00\05\20\01\0b\20\02\6a\20\00\20\01\20\02\1b\6a\20\00\20\01\46\04\40\41\00\10\00\0b\0b\4b\00\41\10\41\c5\c6\04\36\02\04\41\10\28\02\04\24\01\41\20\42\ec\cb\9b\8b\b4\7c\37\03\00\41\03\41\04\10\01\1a\41\01\41\02\41\00\11\00\00\1a\3f\00\40\00\1a\42\05\44\00\00\00\00\00\00\04\40\10\03\1a\41\00\41\00\41\08\fc\0b\00\0b\24\01\02\7d\20\00\b9\20\01\a0\43\00\00\c0\3f\bb\a2\20\00\42\01\86\50\04\40\44\00\00\00\00\00\00\f8\7f\0f\0b\0b\0f\00\02\7f\41\2a\0c\00\41\01\6a\0b\0f\41\00\0b\0b\94\28\03\00\41\08\0b\0c\48\65\6c\6c\6f\2c\20\77\61\73\6d\21\00\41\14\0b\00\00\41\80\20\0b\f6\27\44\20\82\3c\fd\e6\f1\c2\6b\30\f9\0e\c7\dd\01\e4\88\75\34\a2\0f\0b\0d\04\c3\6e\d8\0e\71\e0\fd\77\b0\76\70\eb\94\0b\d5\33\5f\97\3d\aa\d8\61\9b\91\ff\c9\11\f5\7c\ce\d4\58\bb\bf\2c\e0\37\53\c9\bd\fa\0f\f0\16\9d\c9\57\56\74\06\66\76\cf\b0\b4\eb\89\02\c4\42\69\da\1c\f6\ba\66\d3\f8\b6\d4\b1\00\a9\ea\0e\75\5a\5c\2e\82\10\24\2a\08\e7\07\8f\7f\89\38\5e\b0\94\23\55\51\82\56\8b\96\e8\a4\fe\f2\3a\0c\9f\c5\af\d7\60\84\37\81\6b\dd\0a\73\09\cb\4a\12\52\e4\da\70\e6\72\0f\ca\a4\da\1e\98\40\6c\18\9c\24\27\9e\98\51\d5\81\42\04\13\6f\eb\57\13\c1\66\b1\32\69\dd\63\fc\35\c7\97\ff\08\a6\cd\90\09\50\66\a7\45\ad\db\6d\88\31\c2\b0\f8\78\21\14\2b\44\56\55\6d\89\aa\82\bc\ad\ae\3a\95\78\fa\45\35\a4\14\d0\25\c2\4b\40\ae\3a\c1\27\72\29\88\ba\97\3a\ea\8d\37\17\97\06\07\2e\d3\3a\14\60\7a\d7\52\3b\e6\55\7b\51\34\de\c1\96\81\f4\a1\33\6a\a2\14\0d\05\97\a3\e6\c8\a0\cc\20\20\a2\e9\39\80\6e\f0\b6\84\5d\6a\9d\65\7e\b8\29\8f\2d\e5\2e\ad\74\c7\9d\15\a7\5f\a2\9b\7d\ab\33\2f\7d\70\0a\7c\cd\25\89\24\26\0b\05\94\b7\fc\f0\4e\33\a7\27\58\5b\4c\48\a3\9c\36\96\40\69\48\10\a1\69\5b\99\dd\50\18\7e\81\20\e4\dc\80\e0\e8\05\ca\ad\57\84\f8\0c\d5\09\1f\b5\46\40\46\84\8d\cb\cd\58\2d\77\f8\03\5a\a2\e0\73\7a\a0\fd\f5\73\d3\ac\8c\70\18\24\bc\51\68\9f\98\99\be\54\ed\2b\3f\c1\5a\4f\80\da\6f\1a\fd\c9\b2\c4\54\14\2e\82\33\88\2a\47\29\e3\7b\c3\dd\cb\54\a6\e0\40\f9\6c\3d\dc\d1\3c\97\8e\7f\c1\02\61\e0\0a\0f\7c\85\69\58\91\4b\66\8b\9f\80\e4\56\b6\fb\d7\3e\6a\c4\68\91\37\0c\3c\06\97\45\26\bf\9f\df\b6\a5\00\3f\e2\e6\b3\9c\cc\ad\fc\39\c1\c3\68\01\8e\65\ec\d1\9c\57\e6\65\b8\01\c7\da\cf\ac\22\fc\7e\94\0a\d0\4f\cb\8a\5b\25\05\b2\87\d2\9b\4d\ec\84\f8\56\ef\17\8a\32\d8\23\b5\22\e2\0a\54\52\2f\cd\8d\9b\6a\6a\79\aa\89\23\26\bc\ef\19\56\98\8a\b6\76\c8\cc\58\f7\84\a8\71\84\7d\0f\ce\a2\dd\7f\89\61\25\54\e3\4b\86\eb\53\46\46\e1\b8\9e\cd\7b\3b\69\9c\22\36\74\cb\a4\fc\33\5f\17\1c\0b\6e\11\fd\e2\af\8c\3c\58\30\71\cc\77\fd\e6\c1\56\76\78\91\ec\c7\6c\e7\84\a9\fe\38\6d\28\17\07\02\f5\a3\c4\93\64\cc\51\4d\0f\07\c6\4a\1d\c2\82\42\28\ec\9b\07\12\1f\42\15\8c\3c\dd\2e\61\0e\ff\42\8e\62\e5\c7\a8\89\85\7c\7d\1e\59\b3\db\1f\b4\d3\66\d9\23\88\25\80\5a\31\4d\1e\68\db\16\1b\2e\f0\bd\32\a0\14\40\10\e2\41\ca\e4\0c\8a\2e\80\a6\2b\9a\11\c4\1d\85\a0\42\85\c2\3b\9b\30\d9\7d\69\a9\ad\c8\f6\35\42\e5\0f\95\50\66\bd\c7\a6\31\d1\b0\40\21\16\99\a0\d5\98\a3\b4\8b\a6\04\3e\4c\a2\a6\a7\23\e7\8f\f5\e8\ba\c2\28\1c\44\18\fb\80\7d\ad\b9\bd\ce\9d\ed\ae\55\0e\4b\80\71\44\39\5e\d2\19\32\88\36\68\85\22\28\25\6f\58\dd\0b\bc\f9\91\70\66\fc\78\d9\e7\bb\60\f6\25\83\d0\67\04\c2\f9\27\ce\d9\14\b4\ea\03\61\99\02\3d\9a\a1\90\d2\d1\9d\e7\9a\43\e3\47\53\81\04\d9\12\bc\d7\cd\90\09\2e\2e\02\c4\89\ed\8b\be\f6\ac\c6\e9\3b\f7\b5\4a\d4\4b\09\58\85\bc\41\93\d3\84\93\d7\8c\dd\ab\f8\6e\fb\cd\d9\2e\20\42\69\4c\75\0d\34\81\4f\f5\32\cc\5f\01\2d\da\1a\6f\d8\b1\18\34\d6\3c\87\8e\5b\f5\18\6d\2c\c7\3f\e5\96\fe\c9\3b\f5\36\4c\c5\67\55\83\d5\93\fc\6d\ac\f8\34\04\b1\88\1c\e1\99\33\75\8c\8a\7e\d2\4b\42\83\63\d0\1d\4c\d3\8a\8f\f5\9c\88\fb\6d\ff\bc\f0\7b\ad\5a\5c\e6\4c\1d\a6\45\6d\a1\fc\f5\a8\3c\41\47\83\73\2d\19\58\3b\73\66\9d\d8\a7\02\0a\9c\70\2b\72\8f\ae\89\c2\0b\3e\a8\b1\47\3a\80\49\15\b1\27\2f\34\99\a2\7f\89\19\b9\0f\28\47\cc\be\7b\30\a8\8c\04\a4\39\b4\40\8a\cf\2e\f3\d6\c9\9a\70\9a\44\1b\38\59\7b\6e\de\8c\0a\80\8a\86\f2\40\ce\35\bf\23\b9\0f\9d\e4\43\4f\26\48\6e\f7\ab\ba\95\51\4f\c3\e1\cf\3c\4a\8a\97\04\04\43\c2\33\eb\0f\dd\d8\8d\bd\d1\cf\ec\1b\32\f1\13\00\15\38\47\b6\8a\b6\f2\7d\7a\36\b7\51\3b\14\a0\d8\b1\81\1c\de\d4\c0\b7\96\ae\e1\79\49\1c\ae\3a\58\f9\ae\3e\0b\f5\6b\c4\59\cb\74\33\7f\ab\a8\7d\ec\f1\bd\fc\63\dd\e1\cc\3d\f9\88\40\4c\06\c0\d4\37\0d\26\5d\ea\c1\93\4f\4e\36\82\09\ed\cb\74\c8\02\7f\d8\51\5b\af\7a\26\52\59\c0\0b\6f\da\78\14\61\27\7e\cb\ee\3c\18\c6\2d\30\f5\17\7a\06\0a\9f\ee\8e\d4\55\44\a2\e5\d5\55\ca\c7\66\fd\8e\b8\4d\84\8f\59\2a\b8\ac\49\84\82\81\b2\c4\8e\ef\06\4c\42\81\73\64\24\65\db\7a\47\eb\c8\64\2a\27\4e\1d\0f\cf\c3\d5\46\42\25\7b\c3\47\92\67\cb\b6\5b\73\98\49\b2\fb\95\2d\99\6a\ed\0b\94\34\be\e3\82\1d\1a\a1\51\43\34\39\de\7d\6a\cb\3e\6c\c4\44\82\01\3d\67\c1\f6\76\89\13\55\77\d2\8c\d7\cc\8b\fc\32\42\5f\08\e8\16\fa\6d\c9\ac\7c\30\27\15\d8\e2\60\58\61\c5\b8\64\77\b8\21\ae\1a\ea\16\5a\4b\92\f0\16\21\ca\2f\cc\9a\c9\89\b4\f0\19\f4\08\da\9b\a2\4c\8e\21\b8\d4\c8\0c\3a\12\07\33\aa\ac\bc\11\bd\25\f8\2a\e4\ab\01\52\a6\b8\6d\4a\4b\37\ce\a2\d7\b8\ae\85\bc\13\20\7e\87\cb\91\2a\26\57\88\d3\2a\40\90\86\78\6b\32\8d\f5\18\9a\68\26\a1\ad\97\44\12\e2\ba\13\0e\a1\d5\53\14\d9\5e\65\77\3a\42\3e\88\ea\64\1c\b8\e9\ab\b5\70\04\07\fa\10\54\81\14\04\75\2b\58\11\66\6b\e2\93\7c\fb\be\a6\c8\25\63\5c\60\98\da\f2\ba\0b\f9\0a\35\dd\af\ad\25\d7\63\fd\f4\e6\f1\54\89\9a\ca\84\82\9e\07\17\ea\ea\b6\76\e3\6b\f3\ab\4a\c4\df\1b\38\b6\04\82\1b\9c\c1\07\a6\ad\9e\19\6a\29\a8\3d\21\41\96\d1\ae\77\0d\5d\bb\9a\96\c1\d7\ec\25\65\d0\76\15\7b\72\7c\ca\c2\6b\4d\99\b8\00\9d\e3\fe\57\4a\0f\bd\df\af\fa\a2\39\95\8d\db\05\9f\2c\fb\3a\70\87\df\be\76\1b\34\53\42\95\18\22\6f\01\1f\d8\0a\21\1c\04\11\ad\aa\09\04\6c\f0\66\88\97\80\77\5d\6b\c8\1e\7a\e7\12\a9\a7\d0\3d\08\5e\2f\5e\6f\73\5a\9b\32\1e\a0\4a\20\e2\4c\76\16\92\b0\1d\2d\e2\66\74\5e\3d\1d\67\1b\3b\2c\70\92\81\d8\7f\10\80\63\a6\b3\b6\e8\c3\c5\2d\da\7d\fa\af\5b\3a\7a\25\df\8d\9b\ab\bd\d1\e9\ba\b4\a1\ca\f1\08\bd\41\9a\56\9a\40\4c\55\ea\4d\45\52\28\81\78\b6\a1\57\8d\f2\9e\27\db\4e\b4\e6\37\4f\a1\23\5f\f5\11\17\62\b6\bb\b5\bf\af\3d\5e\c0\10\8a\6b\1f\7e\9b\a7\ce\7d\b8\19\76\94\03\64\31\45\72\bc\88\48\53\74\26\9f\dd\e0\f3\5d\b6\64\dd\25\8d\69\75\48\44\6a\0a\53\f8\b9\5e\19\b8\2a\79\6c\2c\e1\64\af\54\09\6f\a1\f5\12\1a\bb\ff\b2\45\f9\22\a3\9f\a2\2d\f6\ad\d4\24\86\20\a5\09\5c\a7\73\a0\86\81\9c\f9\d4\06\96\53\94\18\3b\dc\dc\6f\8e\b6\fd\90\83\58\a5\49\b4\30\cb\b6\62\ca\e6\4c\f6\7c\13\7e\28\24\13\f1\f7\a7\57\fe\cb\06\c5\e6\54\bf\1a\bc\b4\e0\79\9b\2d\e2\b6\63\52\44\e2\17\ba\ac\58\fb\f4\04\77\1e\e3\53\6a\cc\ee\3f\a1\86\46\56\a8\43\5c\9d\77\da\ef\ea\9f\56\9e\69\90\4f\03\ae\3c\d9\c2\5b\e1\e6\e2\ba\69\1b\2b\36\31\c6\46\e3\cb\5d\f3\e5\12\63\e6\fa\c7\94\b2\58\8b\5c\0e\1f\21\75\e4\a3\e2\ab\34\c6\1b\ef\8e\d1\ee\a9\31\54\cd\da\f4\4c\a3\4a\b3\46\63\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\68\65\6c\6c\6f\20\77\6f\72\6c\64\68\65\6c\6c\6f\20\77\6f\72\6c\64\68\65\6c\6c\6f\20\77\6f\72\6c\64\68\65\6c\6c\6f\20\77\6f\72\6c\64\68\65\6c\6c\6f\20\77\6f\72\6c\64\68\65\6c\6c\6f\20\77\6f\72\6c\64\68\65\6c\6c\6f\20\77\6f\72\6c\64\68\65\6c\6c\6f\20\77\6f\72\6c\64\68\65\6c\6c\6f\20\77\6f\72\6c\64\68\65\6c\6c\6f\20\77\6f\72\6c\64\00\27\04\6e\61\6d\65\00\08\07\74\65\73\74\6d\6f\64\01\0b\02\01\03\61\64\64\03\03\6d\69\78\02\09\01\01\02\00\01\61\01\01\62\00\80\04\0b\2e\64\65\62\75\67\5f\69\6e\66\6f\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\00\1f\09\70\72\6f\64\75\63\65\72\73\01\08\6c\61\6e\67\75\61\67\65\01\04\52\75\73\74\04\31\2e\37\30")
+(assert_malformed (module binary "") "unexpected end")
+(assert_malformed (module binary "\00asm" "\02\00\00\00") "unknown binary version")
+(assert_malformed (module binary "\00asm" "\01\00\00\00" "\0d\00") "malformed section id")
+(assert_malformed (module binary "\00ASM" "\01\00\00\00") "magic header not detected")
+(assert_malformed (module binary "\00asm" "\01\00\00\00" "\01\05\01\60\00\00") "section size mismatch")
+(assert_malformed (module binary "\00asm" "\01\00\00\00" "\05\07\01\00\82\80\80\80\10") "integer too large")
+(assert_malformed (module binary "\00asm" "\01\00\00\00" "\05\08\01\00\82\80\80\80\80\00") "integer representation too long")
+(module (func))
+(assert_invalid (module (func (result i32))) "type mismatch")
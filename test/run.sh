@@ -0,0 +1,15 @@
+#!/bin/sh
+# compiles src and test and runs the tests
+# usage: test/run.sh [--UPDATE]   (--UPDATE rewrites test/golden from the current output)
+# src/jynx and the classes only it uses are not part of the build so are not compiled
+set -e
+testdir=$(cd "$(dirname "$0")" && pwd)
+root=$(dirname "$testdir")
+build=$(mktemp -d)
+trap 'rm -rf "$build"' EXIT
+find "$root/src" "$testdir" -name '*.java' \
+    | grep -v -e '/src/jynx/' -e '/src/main/Main.java' -e '/parse/Expression.java' \
+        -e '/wasm/ImmediateInstruction.java' -e '/wasm/ObjectInstruction.java' -e 'module-info.java' \
+    > "$build/sources"
+javac -nowarn -d "$build/classes" @"$build/sources"
+java -ea -cp "$build/classes" com.github.david32768.jynxwasm32.Tests "$testdir" "$@"